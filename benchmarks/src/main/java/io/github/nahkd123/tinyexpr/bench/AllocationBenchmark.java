@@ -0,0 +1,62 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.nahkd123.tinyexpr.Expr;
+import io.github.nahkd123.tinyexpr.ExprParser;
+import io.github.nahkd123.tinyexpr.Frame;
+import io.github.nahkd123.tinyexpr.Value;
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+
+/**
+ * <p>
+ * Comparison-heavy predicates evaluated with {@link Expr#eval(java.util.function.Function)}.
+ * Run with {@code -prof gc} to see the allocation rate
+ * ({@code gc.alloc.rate.norm} is bytes per evaluation).
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocationBenchmark {
+    @Param({
+        "(x > 2) == (y < 10)",
+        "(x >= 0) * (x <= 100) * (y != 3) * (level > 5)",
+        "(level + 1) * 2 - x"
+    })
+    public String source;
+
+    private Expr expr;
+    private Frame frame;
+
+    @Setup
+    public void setup() {
+        frame = new Frame(List.of("x", "y", "level"));
+        frame.set(0, LongValue.valueOf(7));
+        frame.set(1, DoubleValue.valueOf(2.5));
+        frame.set(2, LongValue.valueOf(42));
+        expr = ExprParser.parse(source).bind(frame.schema());
+    }
+
+    @Benchmark
+    public Value eval() {
+        return expr.eval(frame);
+    }
+}
@@ -0,0 +1,28 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <p>
+ * Run benchmarks with the GC profiler, which reports allocation rates
+ * ({@code gc.alloc.rate.norm} is bytes per operation).
+ * </p>
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar io.github.nahkd123.tinyexpr.bench.BenchmarkMain [regex] [threads]}.
+ * </p>
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : ".*";
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+
+        new Runner(new OptionsBuilder()
+            .include(include)
+            .threads(threads)
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
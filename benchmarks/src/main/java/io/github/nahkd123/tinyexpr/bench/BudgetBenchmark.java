@@ -0,0 +1,65 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.nahkd123.tinyexpr.EvalBudget;
+import io.github.nahkd123.tinyexpr.Expr;
+import io.github.nahkd123.tinyexpr.ExprParser;
+import io.github.nahkd123.tinyexpr.Value;
+
+/**
+ * <p>
+ * Cost of evaluating with {@link EvalBudget}: plain evaluation, the unlimited
+ * budget, and a budget with all limits set (but never reached).
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BudgetBenchmark {
+    @Param
+    public Workload workload;
+
+    private Expr expr;
+    private EvalBudget limited;
+
+    @Setup
+    public void setup() {
+        expr = ExprParser.parse(workload.source);
+        limited = EvalBudget.UNLIMITED
+            .withMaxSteps(10_000)
+            .withTimeout(Duration.ofMillis(10))
+            .withMaxStringLength(1 << 20);
+    }
+
+    @Benchmark
+    public Value plain() {
+        return expr.eval(Workload.VARS);
+    }
+
+    @Benchmark
+    public Value unlimited() {
+        return EvalBudget.UNLIMITED.eval(expr, Workload.VARS);
+    }
+
+    @Benchmark
+    public Value limited() {
+        return limited.eval(expr, Workload.VARS);
+    }
+}
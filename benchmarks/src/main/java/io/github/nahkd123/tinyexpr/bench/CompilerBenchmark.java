@@ -0,0 +1,85 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.nahkd123.tinyexpr.CompiledExpr;
+import io.github.nahkd123.tinyexpr.Expr;
+import io.github.nahkd123.tinyexpr.ExprCompiler;
+import io.github.nahkd123.tinyexpr.ExprParser;
+import io.github.nahkd123.tinyexpr.SpecializingEvaluator;
+import io.github.nahkd123.tinyexpr.Value;
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+/**
+ * <p>
+ * Tree-walking interpreter ({@link Expr#eval(Function)}) against compiled
+ * hidden classes ({@link ExprCompiler}) and self-specializing nodes
+ * ({@link SpecializingEvaluator}).
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompilerBenchmark {
+    @Param({
+        "x * 5 + y * 3",
+        "(x * x + y * y) / (x + y + 1) - 42",
+        "(x > 2) ? ((y < 1) ? x * 2 : y * 3) : 0",
+        "math.sqrt(x * x + y * y)",
+        "name + ' scored ' + x"
+    })
+    public String source;
+
+    private Expr expr;
+    private CompiledExpr compiled;
+    private SpecializingEvaluator specializing;
+    private Function<String, Value> vars;
+
+    @Setup
+    public void setup() {
+        Map<String, Value> map = Map.of(
+            "x", new LongValue(7),
+            "y", new DoubleValue(2.5),
+            "name", new StringValue("player"),
+            "math", MapValue.MATH);
+        vars = map::get;
+        expr = ExprParser.parse(source);
+        compiled = ExprCompiler.compile(expr);
+        specializing = new SpecializingEvaluator(expr);
+    }
+
+    @Benchmark
+    public Value interpreted() {
+        return expr.eval(vars);
+    }
+
+    @Benchmark
+    public Value compiled() {
+        return compiled.eval(vars);
+    }
+
+    @Benchmark
+    public Value specializing() {
+        return specializing.eval(vars);
+    }
+}
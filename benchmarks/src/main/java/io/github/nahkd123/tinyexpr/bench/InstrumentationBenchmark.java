@@ -0,0 +1,61 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.nahkd123.tinyexpr.CompiledExpr;
+import io.github.nahkd123.tinyexpr.Expr;
+import io.github.nahkd123.tinyexpr.ExprInstrumentation;
+import io.github.nahkd123.tinyexpr.ExprMetrics;
+import io.github.nahkd123.tinyexpr.ExprParser;
+import io.github.nahkd123.tinyexpr.Value;
+
+/**
+ * <p>
+ * Overhead of {@link ExprInstrumentation} on a small expression: no wrapper,
+ * wrapped with JFR events only (no recording running), and wrapped with
+ * in-memory metrics.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentationBenchmark {
+    private Expr expr;
+    private CompiledExpr events, metrics;
+
+    @Setup
+    public void setup() {
+        expr = ExprParser.parse(Workload.NUMERIC.source);
+        events = new ExprInstrumentation(null, true).wrap("numeric", expr);
+        metrics = new ExprInstrumentation(new ExprMetrics.Recorder(), false).wrap("numeric", expr);
+    }
+
+    @Benchmark
+    public Value plain() {
+        return expr.eval(Workload.VARS);
+    }
+
+    @Benchmark
+    public Value events() {
+        return events.eval(Workload.VARS);
+    }
+
+    @Benchmark
+    public Value metrics() {
+        return metrics.eval(Workload.VARS);
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.github.nahkd123.tinyexpr.Expr;
+import io.github.nahkd123.tinyexpr.ExprLexer;
+import io.github.nahkd123.tinyexpr.ExprParser;
+
+/**
+ * <p>
+ * Lexing and parsing throughput over a corpus of generated expressions.
+ * Scores are per corpus of 1000 expressions.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+    private static final String[] ATOMS = {
+        "x", "player.level", "12", "0x1F", "3.25", "'text'", "math.sqrt(y)", "list[2]"
+    };
+    private static final String[] OPS = { " + ", " - ", " * ", " / ", " << ", " == ", " <= ", " & " };
+
+    private String[] corpus;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        corpus = new String[1000];
+
+        for (int i = 0; i < corpus.length; i++) {
+            StringBuilder builder = new StringBuilder(ATOMS[random.nextInt(ATOMS.length)]);
+            int terms = 2 + random.nextInt(10);
+
+            for (int j = 0; j < terms; j++) builder
+                .append(OPS[random.nextInt(OPS.length)])
+                .append(ATOMS[random.nextInt(ATOMS.length)]);
+
+            corpus[i] = builder.toString();
+        }
+    }
+
+    @Benchmark
+    public void lexCursor(Blackhole blackhole) {
+        for (String source : corpus) {
+            ExprLexer lexer = new ExprLexer(source);
+            while (lexer.next()) blackhole.consume(lexer.type());
+        }
+    }
+
+    @Benchmark
+    public void lexTokens(Blackhole blackhole) {
+        for (String source : corpus) {
+            ExprLexer lexer = new ExprLexer(source);
+            while (lexer.next()) blackhole.consume(lexer.token());
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (String source : corpus) {
+            Expr expr = ExprParser.parse(source);
+            blackhole.consume(expr);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.nahkd123.tinyexpr.Value;
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+import io.github.nahkd123.tinyexpr.impl.MethodValue;
+
+/**
+ * <p>
+ * Direct {@link MethodValue#call(Value[])} for the double fast path and for a
+ * generic method handle.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodCallBenchmark {
+    private Value sqrt, pow, repeat;
+    private Value[] sqrtParams, powParams, repeatParams;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        sqrt = MapValue.MATH.get("sqrt");
+        pow = MapValue.MATH.get("pow");
+        MethodType type = MethodType.methodType(String.class, int.class);
+        repeat = new MethodValue(MethodHandles.publicLookup().findVirtual(String.class, "repeat", type)
+            .bindTo("ab"), type);
+        sqrtParams = new Value[] { DoubleValue.valueOf(2.5) };
+        powParams = new Value[] { LongValue.valueOf(2), DoubleValue.valueOf(0.5) };
+        repeatParams = new Value[] { LongValue.valueOf(3) };
+    }
+
+    @Benchmark
+    public Value sqrt() {
+        return sqrt.call(sqrtParams);
+    }
+
+    @Benchmark
+    public Value pow() {
+        return pow.call(powParams);
+    }
+
+    @Benchmark
+    public Value generic() {
+        return repeat.call(repeatParams);
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.nahkd123.tinyexpr.Expr;
+import io.github.nahkd123.tinyexpr.ExprParser;
+import io.github.nahkd123.tinyexpr.ParallelEvaluator;
+
+/**
+ * <p>
+ * Scaling of {@link ParallelEvaluator} from 1 to 16 worker threads over one
+ * million rows. Thread counts above the number of cores show the overhead of
+ * oversubscription.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelBenchmark {
+    private static final int ROWS = 1 << 20;
+
+    @Param({
+        "(x * x + y * y) / (x + y + 1) - 42",
+        "(x > 0) ? ((y < 1) ? x * 2 : y * 3) : 0"
+    })
+    public String source;
+
+    @Param({ "1", "2", "4", "8", "16" })
+    public int threads;
+
+    @Param({ "8192" })
+    public int grain;
+
+    private Expr expr;
+    private Map<String, Object> columns;
+    private double[] out;
+    private ForkJoinPool pool;
+    private ParallelEvaluator evaluator;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        double[] x = new double[ROWS], y = new double[ROWS];
+
+        for (int i = 0; i < ROWS; i++) {
+            x[i] = random.nextDouble() * 10 - 5;
+            y[i] = random.nextDouble() * 10 - 5;
+        }
+
+        expr = ExprParser.parse(source);
+        columns = Map.of("x", x, "y", y);
+        out = new double[ROWS];
+        pool = new ForkJoinPool(threads);
+        evaluator = new ParallelEvaluator(pool, grain);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public double[] parallel() {
+        evaluator.evalBatch(expr, columns, ROWS, out);
+        return out;
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.nahkd123.tinyexpr.Expr;
+import io.github.nahkd123.tinyexpr.ExprParser;
+
+/**
+ * <p>
+ * Parsing long operator chains, such as machine-generated sums. The time per
+ * operator should stay flat as the number of operators grows.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    private static final String[] OPS = { " + ", " * ", " - ", " / ", " == " };
+
+    @Param({ "10", "1000", "100000" })
+    public int operators;
+
+    private String source;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder("x0");
+        for (int i = 1; i <= operators; i++) builder.append(OPS[i % OPS.length]).append('x').append(i % 100);
+        source = builder.toString();
+    }
+
+    @Benchmark
+    public Expr parse() {
+        return ExprParser.parse(source);
+    }
+}
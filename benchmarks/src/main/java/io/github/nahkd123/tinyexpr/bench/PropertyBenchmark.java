@@ -0,0 +1,95 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.nahkd123.tinyexpr.BinaryOp;
+import io.github.nahkd123.tinyexpr.Expr;
+import io.github.nahkd123.tinyexpr.ExprParser;
+import io.github.nahkd123.tinyexpr.Value;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+/**
+ * <p>
+ * Reading property chains through the inline caches of property nodes, from
+ * immutable maps (where the resolved values are reused), a different immutable
+ * map on every evaluation (where they never are), mutable maps and strings,
+ * compared with calling {@link Value#get(String)} directly.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyBenchmark {
+    private Expr chain;
+    private Expr string;
+    private Value immutableOrder;
+    private Value[] distinctOrders;
+    private int next;
+    private Value mutableOrder;
+    private Value name;
+
+    @Setup
+    public void setup() {
+        chain = ExprParser.parse("order.customer.tier + order.customer.discount");
+        string = ExprParser.parse("name.len + name.upper.len");
+        immutableOrder = new MapValue(Map.of("customer", new MapValue(Map.of(
+            "tier", LongValue.valueOf(3),
+            "discount", LongValue.valueOf(15)))));
+        mutableOrder = new MapValue(new HashMap<>(Map.of("customer", new MapValue(new HashMap<>(Map.of(
+            "tier", LongValue.valueOf(3),
+            "discount", LongValue.valueOf(15)))))));
+        name = new StringValue("tinyexpr");
+
+        // Built up front, so that only the property reads are measured
+        distinctOrders = new Value[1024];
+        for (int i = 0; i < distinctOrders.length; i++) distinctOrders[i] = new MapValue(Map.of(
+            "customer", new MapValue(Map.of(
+                "tier", LongValue.valueOf(i % 5),
+                "discount", LongValue.valueOf(i % 20)))));
+    }
+
+    @Benchmark
+    public Value immutableMaps() {
+        return chain.eval(n -> immutableOrder);
+    }
+
+    @Benchmark
+    public Value distinctImmutableMaps() {
+        Value order = distinctOrders[next++ & (distinctOrders.length - 1)];
+        return chain.eval(n -> order);
+    }
+
+    @Benchmark
+    public Value mutableMaps() {
+        return chain.eval(n -> mutableOrder);
+    }
+
+    @Benchmark
+    public Value uncached() {
+        Value tier = immutableOrder.get("customer").get("tier");
+        return tier.op(BinaryOp.ADD, immutableOrder.get("customer").get("discount"));
+    }
+
+    @Benchmark
+    public Value strings() {
+        return string.eval(n -> name);
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.nahkd123.tinyexpr.Expr;
+import io.github.nahkd123.tinyexpr.ExprParser;
+import io.github.nahkd123.tinyexpr.ReactiveEvaluator;
+import io.github.nahkd123.tinyexpr.Value;
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+
+/**
+ * <p>
+ * Changing one variable of an expression with many variables, then evaluating
+ * the whole expression again or recomputing only the changed path with
+ * {@link ReactiveEvaluator}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReactiveBenchmark {
+    @Param({ "16", "256" })
+    public int variables;
+
+    private Expr expr;
+    private Map<String, Value> values;
+    private ReactiveEvaluator reactive;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        expr = ExprParser.parse(IntStream.range(0, variables)
+            .mapToObj(i -> "v%d * %d".formatted(i, i + 1))
+            .collect(Collectors.joining(" + ")));
+        values = new HashMap<>();
+        for (int i = 0; i < variables; i++) values.put("v" + i, DoubleValue.valueOf(i));
+        reactive = new ReactiveEvaluator(expr, values::get);
+        reactive.value();
+    }
+
+    private String change() {
+        String name = "v" + next;
+        next = (next + 1) % variables;
+        values.put(name, DoubleValue.valueOf(next));
+        return name;
+    }
+
+    @Benchmark
+    public Value full() {
+        change();
+        return expr.eval(values::get);
+    }
+
+    @Benchmark
+    public Value reactive() {
+        reactive.invalidate(change());
+        return reactive.value();
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.nahkd123.tinyexpr.Expr;
+import io.github.nahkd123.tinyexpr.ExprParser;
+import io.github.nahkd123.tinyexpr.MemoizingResolver;
+import io.github.nahkd123.tinyexpr.Value;
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+
+/**
+ * <p>
+ * Evaluating an expression that uses each variable several times, with a
+ * resolver that parses the value from text on every call, directly and through
+ * {@link MemoizingResolver}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolverBenchmark {
+    private Expr expr;
+    private Function<String, Value> resolver;
+    private MemoizingResolver memoizing;
+
+    @Setup
+    public void setup() {
+        expr = ExprParser.parse("(price * qty - discount) / qty + (price > 100 ? price * 0.1 : discount) + qty * 2");
+        Map<String, String> fields = new HashMap<>(Map.of("price", "129.95", "qty", "3", "discount", "12.5"));
+        resolver = name -> DoubleValue.valueOf(Double.parseDouble(fields.get(name)));
+        memoizing = new MemoizingResolver(resolver);
+    }
+
+    @Benchmark
+    public Value direct() {
+        return expr.eval(resolver);
+    }
+
+    @Benchmark
+    public Value memoizing() {
+        return memoizing.eval(expr);
+    }
+}
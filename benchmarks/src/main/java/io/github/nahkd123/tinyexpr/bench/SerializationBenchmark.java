@@ -0,0 +1,71 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.nahkd123.tinyexpr.Expr;
+import io.github.nahkd123.tinyexpr.ExprParser;
+import io.github.nahkd123.tinyexpr.ExprSerializer;
+
+/**
+ * <p>
+ * Loading a corpus of expressions, either by parsing the sources again or by
+ * reading a precompiled corpus from a direct buffer.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({ "100", "10000" })
+    public int size;
+
+    private final ExprSerializer serializer = new ExprSerializer();
+    private List<String> sources;
+    private ByteBuffer corpus;
+
+    @Setup
+    public void setup() {
+        Workload[] workloads = Workload.values();
+        sources = new ArrayList<>(size);
+        List<Expr> exprs = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            String source = workloads[i % workloads.length].source + " + " + i;
+            sources.add(source);
+            exprs.add(ExprParser.parse(source));
+        }
+
+        byte[] bytes = serializer.write(exprs);
+        corpus = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    }
+
+    @Benchmark
+    public List<Expr> parse() {
+        List<Expr> exprs = new ArrayList<>(size);
+        for (String source : sources) exprs.add(ExprParser.parse(source));
+        return exprs;
+    }
+
+    @Benchmark
+    public List<Expr> read() {
+        return serializer.read(corpus);
+    }
+}
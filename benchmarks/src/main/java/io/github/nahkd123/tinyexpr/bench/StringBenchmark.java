@@ -0,0 +1,74 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.nahkd123.tinyexpr.Expr;
+import io.github.nahkd123.tinyexpr.ExprParser;
+import io.github.nahkd123.tinyexpr.Value;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+/**
+ * <p>
+ * Long chains of string concatenation, which are ropes until the result is
+ * read, compared with building the same string with a {@link StringBuilder};
+ * and indexing strings, which returns canonical single-character values.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringBenchmark {
+    @Param({ "16", "256", "2048" })
+    public int terms;
+
+    private Expr chain;
+    private Expr index;
+    private Map<String, Value> vars;
+
+    @Setup
+    public void setup() {
+        chain = ExprParser.parse(IntStream.range(0, terms)
+            .mapToObj(i -> i % 2 == 0 ? "name" : "' scored ' + x")
+            .collect(Collectors.joining(" + ")));
+        index = ExprParser.parse(IntStream.range(0, terms)
+            .mapToObj(i -> "name[%d]".formatted(i % 6))
+            .collect(Collectors.joining(" == ")));
+        vars = Map.of("name", new StringValue("player"), "x", LongValue.valueOf(42));
+    }
+
+    @Benchmark
+    public String chain() {
+        return ((StringValue) chain.eval(vars::get)).value();
+    }
+
+    @Benchmark
+    public String builder() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < terms; i++) builder.append(i % 2 == 0 ? "player" : " scored 42");
+        return builder.toString();
+    }
+
+    @Benchmark
+    public Value index() {
+        return index.eval(vars::get);
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import io.github.nahkd123.tinyexpr.Value;
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.ListValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+/**
+ * <p>
+ * Named expressions and variables shared by the benchmarks. Use the enum names
+ * as {@code @Param} values.
+ * </p>
+ */
+public enum Workload {
+    NUMERIC("x * 5 + y * 3 - (x - y) / 2"),
+    STRING("name + ' scored ' + x + ' points in ' + name.upper"),
+    PROPERTY("player.level * 2 + player.stats.len + player.stats[2]"),
+    INDEX("items[0] + items[3] * items[5] - items[items.len - 1]"),
+    MATH("math.sqrt(x * x + y * y) + math.max(x, y) * math.sin(y)"),
+    TERNARY(nestedTernary(8));
+
+    public static final Function<String, Value> VARS;
+
+    static {
+        List<Value> items = List.of(
+            LongValue.valueOf(3), LongValue.valueOf(1), LongValue.valueOf(4), LongValue.valueOf(1),
+            LongValue.valueOf(5), LongValue.valueOf(9), LongValue.valueOf(2), LongValue.valueOf(6));
+        MapValue player = new MapValue(Map.of(
+            "level", LongValue.valueOf(42),
+            "stats", new ListValue(List.of(DoubleValue.valueOf(1.5), DoubleValue.valueOf(2.5), DoubleValue.valueOf(3.5)))));
+        Map<String, Value> map = Map.of(
+            "x", LongValue.valueOf(7),
+            "y", DoubleValue.valueOf(2.5),
+            "name", new StringValue("player"),
+            "player", player,
+            "items", new ListValue(items),
+            "math", MapValue.MATH);
+        VARS = map::get;
+    }
+
+    public final String source;
+
+    private Workload(String source) {
+        this.source = source;
+    }
+
+    private static String nestedTernary(int depth) {
+        String expr = "x";
+        for (int i = 0; i < depth; i++) expr = "(x > %d) ? (%s) : (y * %d)".formatted(i, expr, i);
+        return expr;
+    }
+}
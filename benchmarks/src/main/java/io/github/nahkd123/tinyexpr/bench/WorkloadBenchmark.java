@@ -0,0 +1,62 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.github.nahkd123.tinyexpr.Expr;
+import io.github.nahkd123.tinyexpr.ExprParser;
+import io.github.nahkd123.tinyexpr.ExprToken;
+import io.github.nahkd123.tinyexpr.Value;
+
+/**
+ * <p>
+ * Tokenizing, parsing and evaluating each {@link Workload}. The expression is
+ * immutable and shared, so this can also run with several threads
+ * ({@code -t 4}, or {@link BenchmarkMain}).
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorkloadBenchmark {
+    @Param
+    public Workload workload;
+
+    private Expr expr;
+
+    @Setup
+    public void setup() {
+        expr = ExprParser.parse(workload.source);
+    }
+
+    @Benchmark
+    public void tokenize(Blackhole blackhole) {
+        String source = workload.source;
+        ExprToken.tokenize(source, 0, source.length(), blackhole::consume);
+    }
+
+    @Benchmark
+    public Expr parse() {
+        return ExprParser.parse(workload.source);
+    }
+
+    @Benchmark
+    public Value eval() {
+        return expr.eval(Workload.VARS);
+    }
+}
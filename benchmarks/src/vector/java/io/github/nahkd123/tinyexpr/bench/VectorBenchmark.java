@@ -0,0 +1,101 @@
+package io.github.nahkd123.tinyexpr.bench;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.nahkd123.tinyexpr.BatchEvaluator;
+import io.github.nahkd123.tinyexpr.Expr;
+import io.github.nahkd123.tinyexpr.ExprParser;
+import io.github.nahkd123.tinyexpr.Frame;
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.vector.VectorEvaluator;
+
+/**
+ * <p>
+ * Row-by-row evaluation ({@link Expr#evalDouble(java.util.function.Function)})
+ * against columnar evaluation ({@link BatchEvaluator}) and SIMD evaluation
+ * ({@link VectorEvaluator}) at several batch sizes. Scores are per batch.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class VectorBenchmark {
+    @Param({
+        "x * 5 + y * 3",
+        "(x * x + y * y) / (x + y + 1) - 42",
+        "(x > 0) ? ((y < 1) ? x * 2 : y * 3) : 0",
+        "(n & 7) == 3 ? n << 2 : n / 3"
+    })
+    public String source;
+
+    @Param({ "64", "1024", "65536" })
+    public int rows;
+
+    private Expr expr;
+    private Map<String, Object> columns;
+    private double[] x, y, out;
+    private long[] n;
+    private Frame frame;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        x = new double[rows];
+        y = new double[rows];
+        n = new long[rows];
+        out = new double[rows];
+
+        for (int i = 0; i < rows; i++) {
+            x[i] = random.nextDouble() * 10 - 5;
+            y[i] = random.nextDouble() * 10 - 5;
+            n[i] = random.nextInt(1000);
+        }
+
+        columns = Map.of("x", x, "y", y, "n", n);
+        frame = new Frame(List.of("x", "y", "n"));
+        expr = ExprParser.parse(source).bind(frame.schema());
+    }
+
+    @Benchmark
+    public double[] scalar() {
+        for (int i = 0; i < rows; i++) {
+            frame.set(0, new DoubleValue(x[i]));
+            frame.set(1, new DoubleValue(y[i]));
+            frame.set(2, new LongValue(n[i]));
+            out[i] = expr.evalDouble(frame);
+        }
+
+        return out;
+    }
+
+    @Benchmark
+    public double[] batch() {
+        BatchEvaluator.evalBatch(expr, columns, rows, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] vector() {
+        VectorEvaluator.evalBatch(expr, columns, rows, out);
+        return out;
+    }
+}
@@ -0,0 +1,539 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+
+/**
+ * <p>
+ * Evaluate an expression over many rows at once. Variables are columns, given
+ * as {@code double[]}, {@code long[]} or {@code Value[]} arrays, or as a single
+ * {@link Value} that is the same for all rows (such as {@code math}). Each node
+ * of the expression is evaluated once per chunk of rows, with loops over
+ * primitive arrays for {@code long} and {@code double} values, instead of once
+ * per row.
+ * </p>
+ * <p>
+ * Ternaries split the rows with selection vectors, so each branch is only
+ * evaluated for the rows that take it, and the right operand of {@code &&} and
+ * {@code ||} only for the rows that need it. Guards such as
+ * {@code (x != 0) ? (10 / x) : 0} therefore work the same as when evaluating
+ * row by row. Properties, indexing, method calls and strings are evaluated
+ * row by row with {@link Value}.
+ * </p>
+ *
+ * @see #evalBatch(Expr, Map, int, double[])
+ */
+public final class BatchEvaluator {
+    static final int CHUNK_SIZE = 1024;
+
+    private static final int LONG = 0;
+    private static final int DOUBLE = 1;
+    private static final int VALUE = 2;
+
+    private Map<String, ?> columns;
+    private final ArrayDeque<Vector> vectors = new ArrayDeque<>();
+    private final ArrayDeque<int[]> selections = new ArrayDeque<>();
+    private int offset;
+    private int size;
+
+    private static final class Vector {
+        int kind;
+        final long[] l = new long[CHUNK_SIZE];
+        final double[] d = new double[CHUNK_SIZE];
+        Value[] v;
+    }
+
+    BatchEvaluator() {}
+
+    /**
+     * <p>
+     * Evaluate the expression for rows {@code 0} to {@code rows - 1} and store
+     * the results as {@code double}.
+     * </p>
+     *
+     * @param expr    The expression.
+     * @param columns The columns, keyed by variable name.
+     * @param rows    Number of rows.
+     * @param out     The output array.
+     */
+    public static void evalBatch(Expr expr, Map<String, ?> columns, int rows, double[] out) {
+        evalBatch(expr, columns, 0, rows, out);
+    }
+
+    /**
+     * <p>
+     * Evaluate the expression for rows {@code 0} to {@code rows - 1} and store
+     * the results as {@code long}.
+     * </p>
+     *
+     * @param expr    The expression.
+     * @param columns The columns, keyed by variable name.
+     * @param rows    Number of rows.
+     * @param out     The output array.
+     */
+    public static void evalBatch(Expr expr, Map<String, ?> columns, int rows, long[] out) {
+        evalBatch(expr, columns, 0, rows, out);
+    }
+
+    /**
+     * <p>
+     * Evaluate the expression for rows {@code from} (inclusive) to {@code to}
+     * (exclusive) and store the results as {@code double} at the same indices of
+     * the output array.
+     * </p>
+     *
+     * @param expr    The expression.
+     * @param columns The columns, keyed by variable name.
+     * @param from    The first row.
+     * @param to      The end row (exclusive).
+     * @param out     The output array.
+     */
+    public static void evalBatch(Expr expr, Map<String, ?> columns, int from, int to, double[] out) {
+        new BatchEvaluator().run(expr, columns, from, to, out);
+    }
+
+    /**
+     * <p>
+     * Same as {@link #evalBatch(Expr, Map, int, int, double[])}, but reuses the
+     * buffers of this evaluator.
+     * </p>
+     */
+    void run(Expr expr, Map<String, ?> columns, int from, int to, double[] out) {
+        this.columns = columns;
+
+        for (int start = from; start < to; start += CHUNK_SIZE) {
+            Vector result = evalChunk(expr, start, Math.min(to - start, CHUNK_SIZE));
+            for (int i = 0; i < size; i++) out[start + i] = switch (result.kind) {
+            case LONG -> (double) result.l[i];
+            case DOUBLE -> result.d[i];
+            default -> result.v[i].unwrapAs(double.class);
+            };
+            release(result);
+        }
+
+        this.columns = null;
+    }
+
+    /**
+     * <p>
+     * Evaluate the expression for rows {@code from} (inclusive) to {@code to}
+     * (exclusive) and store the results as {@code long} at the same indices of
+     * the output array.
+     * </p>
+     *
+     * @param expr    The expression.
+     * @param columns The columns, keyed by variable name.
+     * @param from    The first row.
+     * @param to      The end row (exclusive).
+     * @param out     The output array.
+     */
+    public static void evalBatch(Expr expr, Map<String, ?> columns, int from, int to, long[] out) {
+        new BatchEvaluator().run(expr, columns, from, to, out);
+    }
+
+    /**
+     * <p>
+     * Same as {@link #evalBatch(Expr, Map, int, int, long[])}, but reuses the
+     * buffers of this evaluator.
+     * </p>
+     */
+    void run(Expr expr, Map<String, ?> columns, int from, int to, long[] out) {
+        this.columns = columns;
+
+        for (int start = from; start < to; start += CHUNK_SIZE) {
+            Vector result = evalChunk(expr, start, Math.min(to - start, CHUNK_SIZE));
+            for (int i = 0; i < size; i++) out[start + i] = switch (result.kind) {
+            case LONG -> result.l[i];
+            case DOUBLE -> (long) result.d[i];
+            default -> result.v[i].unwrapAs(long.class);
+            };
+            release(result);
+        }
+
+        this.columns = null;
+    }
+
+    private Vector evalChunk(Expr expr, int offset, int size) {
+        this.offset = offset;
+        this.size = size;
+        return eval(expr, null, size);
+    }
+
+    private Vector acquire(int kind) {
+        Vector vector = vectors.poll();
+        if (vector == null) vector = new Vector();
+        vector.kind = kind;
+        if (kind == VALUE && vector.v == null) vector.v = new Value[CHUNK_SIZE];
+        return vector;
+    }
+
+    private void release(Vector vector) {
+        if (vector.v != null) Arrays.fill(vector.v, null);
+        vectors.push(vector);
+    }
+
+    private int[] acquireSelection() {
+        int[] selection = selections.poll();
+        return selection != null ? selection : new int[CHUNK_SIZE];
+    }
+
+    private static Value box(Vector vector, int i) {
+        return switch (vector.kind) {
+        case LONG -> LongValue.valueOf(vector.l[i]);
+        case DOUBLE -> DoubleValue.valueOf(vector.d[i]);
+        default -> vector.v[i];
+        };
+    }
+
+    private static boolean test(Vector vector, int i) {
+        return switch (vector.kind) {
+        case LONG -> vector.l[i] != 0;
+        case DOUBLE -> vector.d[i] != 0;
+        default -> vector.v[i].unwrapAs(boolean.class);
+        };
+    }
+
+    private Vector toValues(Vector vector, int[] sel, int count) {
+        if (vector.kind == VALUE) return vector;
+        Vector result = acquire(VALUE);
+        for (int k = 0; k < count; k++) {
+            int i = sel == null ? k : sel[k];
+            result.v[i] = box(vector, i);
+        }
+        release(vector);
+        return result;
+    }
+
+    /**
+     * <p>
+     * Evaluate the expression for the selected rows. The returned vector holds
+     * the result of row {@code i} at index {@code i}, where {@code i} is
+     * {@code sel[k]}, or {@code k} if {@code sel} is {@code null}.
+     * </p>
+     */
+    private Vector eval(Expr expr, int[] sel, int count) {
+        return switch (expr) {
+        case Expr.Const c -> constant(c.value(), sel, count);
+        case Expr.Variable v -> column(v.name(), sel, count);
+        case Expr.Slot s -> column(s.name(), sel, count);
+        case Expr.Unary u -> unary(u.op(), eval(u.expr(), sel, count), sel, count);
+        case Expr.Binary b -> {
+            Vector a = eval(b.a(), sel, count);
+            yield binary(b.op(), a, eval(b.b(), sel, count), sel, count);
+        }
+        case Expr.Index i -> {
+            Vector target = toValues(eval(i.expr(), sel, count), sel, count);
+            Vector index = eval(i.index(), sel, count);
+            for (int k = 0; k < count; k++) {
+                int row = sel == null ? k : sel[k];
+                target.v[row] = i.cache().get(target.v[row], switch (index.kind) {
+                case LONG -> (int) index.l[row];
+                case DOUBLE -> (int) index.d[row];
+                default -> index.v[row].unwrapAs(int.class);
+                });
+            }
+            release(index);
+            yield target;
+        }
+        case Expr.Property p -> {
+            Vector target = toValues(eval(p.expr(), sel, count), sel, count);
+            for (int k = 0; k < count; k++) {
+                int row = sel == null ? k : sel[k];
+                target.v[row] = p.cache().get(target.v[row]);
+            }
+            yield target;
+        }
+        case Expr.Call c -> {
+            Vector[] params = new Vector[c.params().length];
+            for (int i = 0; i < params.length; i++) params[i] = eval(c.params()[i], sel, count);
+            Vector callee = toValues(eval(c.expr(), sel, count), sel, count);
+
+            for (int k = 0; k < count; k++) {
+                int row = sel == null ? k : sel[k];
+                Value[] inputs = new Value[params.length];
+                for (int i = 0; i < inputs.length; i++) inputs[i] = box(params[i], row);
+                callee.v[row] = callee.v[row].call(inputs);
+            }
+
+            for (Vector param : params) release(param);
+            yield callee;
+        }
+        case Expr.Ternary t -> ternary(t, sel, count);
+        case Expr.Logical l -> logical(l, sel, count);
+        case Expr.Scope s -> eval(s.body(), sel, count);
+        // Shared values would only be valid for the rows they were evaluated for
+        case Expr.Shared s -> eval(s.expr(), sel, count);
+        };
+    }
+
+    private Vector constant(Value value, int[] sel, int count) {
+        if (value instanceof LongValue x) {
+            Vector result = acquire(LONG);
+            Arrays.fill(result.l, 0, size, x.value());
+            return result;
+        }
+
+        if (value instanceof DoubleValue x) {
+            Vector result = acquire(DOUBLE);
+            Arrays.fill(result.d, 0, size, x.value());
+            return result;
+        }
+
+        Vector result = acquire(VALUE);
+        Arrays.fill(result.v, 0, size, value);
+        return result;
+    }
+
+    private Vector column(String name, int[] sel, int count) {
+        Object column = columns.get(name);
+
+        switch (column) {
+        case double[] array -> {
+            Vector result = acquire(DOUBLE);
+            System.arraycopy(array, offset, result.d, 0, size);
+            return result;
+        }
+        case long[] array -> {
+            Vector result = acquire(LONG);
+            System.arraycopy(array, offset, result.l, 0, size);
+            return result;
+        }
+        case Value[] array -> {
+            Vector result = acquire(VALUE);
+            System.arraycopy(array, offset, result.v, 0, size);
+            return unboxColumn(result, sel, count);
+        }
+        case Value value -> {
+            return constant(value, sel, count);
+        }
+        case null -> throw new IllegalArgumentException("Column '%s' is not provided".formatted(name));
+        default -> throw new IllegalArgumentException("Column '%s' must be double[], long[], Value[] or Value"
+            .formatted(name));
+        }
+    }
+
+    /**
+     * <p>
+     * Turn a column of boxed values into a primitive column if all selected rows
+     * are numbers of the same kind.
+     * </p>
+     */
+    private Vector unboxColumn(Vector vector, int[] sel, int count) {
+        boolean allLong = true, allDouble = true;
+
+        for (int k = 0; k < count && (allLong || allDouble); k++) {
+            Value value = vector.v[sel == null ? k : sel[k]];
+            allLong &= value instanceof LongValue;
+            allDouble &= value instanceof DoubleValue;
+        }
+
+        if (!allLong && !allDouble) return vector;
+        Vector result = acquire(allLong ? LONG : DOUBLE);
+
+        for (int k = 0; k < count; k++) {
+            int i = sel == null ? k : sel[k];
+            if (allLong) result.l[i] = ((LongValue) vector.v[i]).value();
+            else result.d[i] = ((DoubleValue) vector.v[i]).value();
+        }
+
+        release(vector);
+        return result;
+    }
+
+    private Vector unary(UnaryOp op, Vector x, int[] sel, int count) {
+        // Unselected rows hold stale values, but primitive operators on them never throw
+        int n = sel == null ? count : size;
+
+        if (x.kind == LONG) {
+            long[] l = x.l;
+            switch (op) {
+            case INVERT -> { for (int i = 0; i < n; i++) l[i] = ~l[i]; }
+            case NEGATE -> { for (int i = 0; i < n; i++) l[i] = -l[i]; }
+            case NOT -> { for (int i = 0; i < n; i++) l[i] = l[i] != 0 ? 0 : 1; }
+            }
+            return x;
+        }
+
+        if (x.kind == DOUBLE && op == UnaryOp.NEGATE) {
+            double[] d = x.d;
+            for (int i = 0; i < n; i++) d[i] = -d[i];
+            return x;
+        }
+
+        if (x.kind == DOUBLE && op == UnaryOp.NOT) {
+            for (int i = 0; i < n; i++) x.l[i] = x.d[i] != 0 ? 0 : 1;
+            x.kind = LONG;
+            return x;
+        }
+
+        Vector result = toValues(x, sel, count);
+        for (int k = 0; k < count; k++) {
+            int i = sel == null ? k : sel[k];
+            result.v[i] = result.v[i].op(op);
+        }
+        return result;
+    }
+
+    private Vector binary(BinaryOp op, Vector a, Vector b, int[] sel, int count) {
+        int n = sel == null ? count : size;
+
+        if (a.kind == LONG && b.kind == LONG && op != BinaryOp.DIVIDE) {
+            long[] x = a.l, y = b.l;
+            switch (op) {
+            case ADD -> { for (int i = 0; i < n; i++) x[i] = x[i] + y[i]; }
+            case SUBTRACT -> { for (int i = 0; i < n; i++) x[i] = x[i] - y[i]; }
+            case MULTIPLY -> { for (int i = 0; i < n; i++) x[i] = x[i] * y[i]; }
+            case AND -> { for (int i = 0; i < n; i++) x[i] = x[i] & y[i]; }
+            case OR -> { for (int i = 0; i < n; i++) x[i] = x[i] | y[i]; }
+            case XOR -> { for (int i = 0; i < n; i++) x[i] = x[i] ^ y[i]; }
+            case SHIFT_LEFT -> { for (int i = 0; i < n; i++) x[i] = x[i] << y[i]; }
+            case SHIFT_RIGHT -> { for (int i = 0; i < n; i++) x[i] = x[i] >> y[i]; }
+            case EQUALS -> { for (int i = 0; i < n; i++) x[i] = x[i] == y[i] ? 1 : 0; }
+            case NOT_EQUALS -> { for (int i = 0; i < n; i++) x[i] = x[i] != y[i] ? 1 : 0; }
+            case LESS_THAN -> { for (int i = 0; i < n; i++) x[i] = x[i] < y[i] ? 1 : 0; }
+            case LESS_THAN_OR_EQUALS -> { for (int i = 0; i < n; i++) x[i] = x[i] <= y[i] ? 1 : 0; }
+            case GREATER_THAN -> { for (int i = 0; i < n; i++) x[i] = x[i] > y[i] ? 1 : 0; }
+            case GREATER_THAN_OR_EQUALS -> { for (int i = 0; i < n; i++) x[i] = x[i] >= y[i] ? 1 : 0; }
+            default -> throw new IllegalStateException();
+            }
+            release(b);
+            return a;
+        }
+
+        if (a.kind == LONG && b.kind == LONG) {
+            // Division by zero throws, so only divide the selected rows
+            long[] x = a.l, y = b.l;
+            for (int k = 0; k < count; k++) {
+                int i = sel == null ? k : sel[k];
+                x[i] = x[i] / y[i];
+            }
+            release(b);
+            return a;
+        }
+
+        boolean doubleOp = switch (op) {
+        case ADD, SUBTRACT, MULTIPLY, DIVIDE,
+            EQUALS, NOT_EQUALS, LESS_THAN, LESS_THAN_OR_EQUALS, GREATER_THAN, GREATER_THAN_OR_EQUALS -> true;
+        default -> false;
+        };
+
+        if (doubleOp && a.kind != VALUE && b.kind != VALUE) {
+            // Mixed long and double operands are promoted to double, same as LongValue and DoubleValue
+            double[] x = toDoubles(a, n), y = toDoubles(b, n);
+            double[] r = a.d;
+            long[] c = a.l;
+            switch (op) {
+            case ADD -> { for (int i = 0; i < n; i++) r[i] = x[i] + y[i]; }
+            case SUBTRACT -> { for (int i = 0; i < n; i++) r[i] = x[i] - y[i]; }
+            case MULTIPLY -> { for (int i = 0; i < n; i++) r[i] = x[i] * y[i]; }
+            case DIVIDE -> { for (int i = 0; i < n; i++) r[i] = x[i] / y[i]; }
+            case EQUALS -> { for (int i = 0; i < n; i++) c[i] = x[i] == y[i] ? 1 : 0; }
+            case NOT_EQUALS -> { for (int i = 0; i < n; i++) c[i] = x[i] != y[i] ? 1 : 0; }
+            case LESS_THAN -> { for (int i = 0; i < n; i++) c[i] = x[i] < y[i] ? 1 : 0; }
+            case LESS_THAN_OR_EQUALS -> { for (int i = 0; i < n; i++) c[i] = x[i] <= y[i] ? 1 : 0; }
+            case GREATER_THAN -> { for (int i = 0; i < n; i++) c[i] = x[i] > y[i] ? 1 : 0; }
+            case GREATER_THAN_OR_EQUALS -> { for (int i = 0; i < n; i++) c[i] = x[i] >= y[i] ? 1 : 0; }
+            default -> throw new IllegalStateException();
+            }
+            a.kind = switch (op) {
+            case ADD, SUBTRACT, MULTIPLY, DIVIDE -> DOUBLE;
+            default -> LONG;
+            };
+            release(b);
+            return a;
+        }
+
+        Vector result = toValues(a, sel, count);
+        for (int k = 0; k < count; k++) {
+            int i = sel == null ? k : sel[k];
+            result.v[i] = result.v[i].op(op, box(b, i));
+        }
+        release(b);
+        return result;
+    }
+
+    private static double[] toDoubles(Vector vector, int n) {
+        if (vector.kind == DOUBLE) return vector.d;
+        for (int i = 0; i < n; i++) vector.d[i] = (double) vector.l[i];
+        return vector.d;
+    }
+
+    private Vector ternary(Expr.Ternary ternary, int[] sel, int count) {
+        Vector test = eval(ternary.test(), sel, count);
+        int[] trueRows = acquireSelection(), falseRows = acquireSelection();
+        int trueCount = 0, falseCount = 0;
+
+        for (int k = 0; k < count; k++) {
+            int i = sel == null ? k : sel[k];
+            if (test(test, i)) trueRows[trueCount++] = i;
+            else falseRows[falseCount++] = i;
+        }
+
+        release(test);
+        Vector a = trueCount > 0 ? eval(ternary.ifTrue(), trueRows, trueCount) : null;
+        Vector b = falseCount > 0 ? eval(ternary.ifFalse(), falseRows, falseCount) : null;
+        Vector result;
+
+        if (a == null || b == null) {
+            result = a != null ? a : b;
+        } else {
+            if (a.kind != b.kind) {
+                // Branches of different kinds, fall back to boxed values for this node
+                a = toValues(a, trueRows, trueCount);
+                b = toValues(b, falseRows, falseCount);
+            }
+
+            for (int k = 0; k < falseCount; k++) {
+                int i = falseRows[k];
+                switch (a.kind) {
+                case LONG -> a.l[i] = b.l[i];
+                case DOUBLE -> a.d[i] = b.d[i];
+                default -> a.v[i] = b.v[i];
+                }
+            }
+
+            release(b);
+            result = a;
+        }
+
+        selections.push(trueRows);
+        selections.push(falseRows);
+        return result;
+    }
+
+    /**
+     * <p>
+     * Evaluate the right operand only for the rows where the left operand does
+     * not decide the result.
+     * </p>
+     */
+    private Vector logical(Expr.Logical logical, int[] sel, int count) {
+        boolean and = logical.op() == BinaryOp.LOGICAL_AND;
+        Vector a = eval(logical.a(), sel, count);
+        Vector result = acquire(LONG);
+        int[] rest = acquireSelection();
+        int restCount = 0;
+
+        for (int k = 0; k < count; k++) {
+            int i = sel == null ? k : sel[k];
+            boolean value = test(a, i);
+            result.l[i] = value ? 1 : 0;
+            if (value == and) rest[restCount++] = i;
+        }
+
+        release(a);
+
+        if (restCount > 0) {
+            Vector b = eval(logical.b(), rest, restCount);
+            for (int k = 0; k < restCount; k++) result.l[rest[k]] = test(b, rest[k]) ? 1 : 0;
+            release(b);
+        }
+
+        selections.push(rest);
+        return result;
+    }
+}
@@ -19,7 +19,9 @@ public enum BinaryOp {
     LESS_THAN(0),
     LESS_THAN_OR_EQUALS(0),
     GREATER_THAN(0),
-    GREATER_THAN_OR_EQUALS(0),;
+    GREATER_THAN_OR_EQUALS(0),
+    LOGICAL_AND(-1),
+    LOGICAL_OR(-2),;
 
     private int priority;
 
@@ -29,11 +31,19 @@ public enum BinaryOp {
 
     public int getPriority() { return priority; }
 
+    /**
+     * @return {@code true} for {@link #LOGICAL_AND} and {@link #LOGICAL_OR},
+     *         which are parsed as {@link Expr.Logical}.
+     */
+    public boolean isLogical() { return this == LOGICAL_AND || this == LOGICAL_OR; }
+
     public static final BinaryOp[][] SORTED = {
         { SHIFT_LEFT, SHIFT_RIGHT, AND, OR, XOR },
         { MULTIPLY, DIVIDE },
         { ADD, SUBTRACT },
-        { EQUALS, NOT_EQUALS, LESS_THAN, LESS_THAN_OR_EQUALS, GREATER_THAN, GREATER_THAN_OR_EQUALS }
+        { EQUALS, NOT_EQUALS, LESS_THAN, LESS_THAN_OR_EQUALS, GREATER_THAN, GREATER_THAN_OR_EQUALS },
+        { LOGICAL_AND },
+        { LOGICAL_OR }
     };
 
     public static final List<Set<BinaryOp>> SORTED_COLLECTIONS = Stream.of(SORTED)
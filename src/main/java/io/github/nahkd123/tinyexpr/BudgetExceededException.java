@@ -0,0 +1,33 @@
+package io.github.nahkd123.tinyexpr;
+
+/**
+ * <p>
+ * Thrown when an evaluation goes over one of the limits of its
+ * {@link EvalBudget}.
+ * </p>
+ *
+ * @see EvalBudget#eval(Expr, java.util.function.Function)
+ */
+public class BudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public enum Limit {
+        STEPS,
+        DEADLINE,
+        STRING_LENGTH
+    }
+
+    private final Limit limit;
+
+    public BudgetExceededException(Limit limit, String message) {
+        super(message);
+        this.limit = limit;
+    }
+
+    /**
+     * @return The limit that was exceeded.
+     */
+    public Limit limit() {
+        return limit;
+    }
+}
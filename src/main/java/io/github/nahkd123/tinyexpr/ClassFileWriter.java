@@ -0,0 +1,441 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Minimal class file writer for {@link ExprCompiler}. Only the constant pool
+ * entries, instructions and attributes the compiler actually emits are
+ * supported.
+ * </p>
+ */
+final class ClassFileWriter {
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+    static final int ACC_SYNTHETIC = 0x1000;
+
+    private static final int VERSION = 65; // Java 21
+    private static final int MAX_CODE_LENGTH = Short.MAX_VALUE;
+
+    private final Bytes pool = new Bytes();
+    private final Map<String, Integer> poolIndices = new HashMap<>();
+    private int poolCount = 1;
+
+    private final String name;
+    private final Bytes fields = new Bytes();
+    private int fieldsCount = 0;
+    private final Bytes methods = new Bytes();
+    private int methodsCount = 0;
+    private final List<String> interfaces = new ArrayList<>();
+
+    public ClassFileWriter(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public void addInterface(String internalName) {
+        interfaces.add(internalName);
+    }
+
+    public void addField(int access, String name, String descriptor) {
+        fields.u2(access).u2(utf8(name)).u2(utf8(descriptor)).u2(0);
+        fieldsCount++;
+    }
+
+    public void addMethod(int access, String name, String descriptor, Code code) {
+        if (code.bytes.length > MAX_CODE_LENGTH) throw new TooLargeException();
+
+        Bytes attrs = new Bytes();
+        int attrsCount = 0;
+
+        if (code.frames.size() > 0) {
+            Bytes table = new Bytes().u2(code.frames.size());
+            int last = -1;
+
+            for (Code.Frame frame : code.frames) {
+                table.u1(255).u2(frame.offset - last - 1);
+                table.u2(2).u1(7).u2(classRef(this.name)).u1(7).u2(classRef("java/util/function/Function"));
+                table.u2(frame.stack.size());
+                for (String type : frame.stack) {
+                    if (type.equals("I")) table.u1(1);
+                    else table.u1(7).u2(classRef(type));
+                }
+
+                last = frame.offset;
+            }
+
+            attrs.u2(utf8("StackMapTable")).u4(table.length).bytes(table);
+            attrsCount++;
+        }
+
+        Bytes body = new Bytes()
+            .u2(code.maxStack)
+            .u2(code.maxLocals)
+            .u4(code.bytes.length)
+            .bytes(code.bytes)
+            .u2(0)
+            .u2(attrsCount)
+            .bytes(attrs);
+
+        methods.u2(access).u2(utf8(name)).u2(utf8(descriptor)).u2(1);
+        methods.u2(utf8("Code")).u4(body.length).bytes(body);
+        methodsCount++;
+    }
+
+    public byte[] toByteArray() {
+        int thisClass = classRef(name);
+        int superClass = classRef("java/lang/Object");
+        int[] interfaceIndices = interfaces.stream().mapToInt(this::classRef).toArray();
+
+        Bytes out = new Bytes()
+            .u4(0xCAFEBABE)
+            .u2(0)
+            .u2(VERSION)
+            .u2(poolCount)
+            .bytes(pool)
+            .u2(ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC)
+            .u2(thisClass)
+            .u2(superClass)
+            .u2(interfaceIndices.length);
+        for (int index : interfaceIndices) out.u2(index);
+        out.u2(fieldsCount).bytes(fields);
+        out.u2(methodsCount).bytes(methods);
+        out.u2(0);
+
+        byte[] result = new byte[out.length];
+        System.arraycopy(out.data, 0, result, 0, out.length);
+        return result;
+    }
+
+    int utf8(String value) {
+        Integer existing = poolIndices.get("U" + value);
+        if (existing != null) return existing;
+
+        Bytes encoded = new Bytes();
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+
+            if (ch != 0 && ch < 0x80) {
+                encoded.u1(ch);
+            } else if (ch < 0x800) {
+                encoded.u1(0xC0 | (ch >> 6)).u1(0x80 | (ch & 0x3F));
+            } else {
+                encoded.u1(0xE0 | (ch >> 12)).u1(0x80 | ((ch >> 6) & 0x3F)).u1(0x80 | (ch & 0x3F));
+            }
+        }
+
+        pool.u1(1).u2(encoded.length).bytes(encoded);
+        return register("U" + value, 1);
+    }
+
+    int integer(int value) {
+        Integer existing = poolIndices.get("I" + value);
+        if (existing != null) return existing;
+        pool.u1(3).u4(value);
+        return register("I" + value, 1);
+    }
+
+    int classRef(String internalName) {
+        Integer existing = poolIndices.get("C" + internalName);
+        if (existing != null) return existing;
+        int nameIndex = utf8(internalName);
+        pool.u1(7).u2(nameIndex);
+        return register("C" + internalName, 1);
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(9, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(10, owner, name, descriptor);
+    }
+
+    int interfaceMethodRef(String owner, String name, String descriptor) {
+        return memberRef(11, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        String key = tag + owner + "." + name + ":" + descriptor;
+        Integer existing = poolIndices.get(key);
+        if (existing != null) return existing;
+
+        int ownerIndex = classRef(owner);
+        int natIndex = nameAndType(name, descriptor);
+        pool.u1(tag).u2(ownerIndex).u2(natIndex);
+        return register(key, 1);
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        String key = "N" + name + ":" + descriptor;
+        Integer existing = poolIndices.get(key);
+        if (existing != null) return existing;
+
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        pool.u1(12).u2(nameIndex).u2(descriptorIndex);
+        return register(key, 1);
+    }
+
+    private int register(String key, int slots) {
+        int index = poolCount;
+        poolCount += slots;
+        if (poolCount > 0xFFFF) throw new TooLargeException();
+        poolIndices.put(key, index);
+        return index;
+    }
+
+    /**
+     * <p>
+     * Thrown when the generated class would exceed one of the class file limits
+     * (method code length, constant pool size).
+     * </p>
+     */
+    static final class TooLargeException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        TooLargeException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * <p>
+     * Bytecode of a single method. Keeps track of the verification types on the
+     * operand stack, so that frames can be emitted at branch targets. Locals are
+     * always {@code this} followed by the variables function.
+     * </p>
+     */
+    final class Code {
+        private final Bytes bytes = new Bytes();
+        private final List<String> stack = new ArrayList<>();
+        private final List<Frame> frames = new ArrayList<>();
+        private int maxStack = 0;
+        private final int maxLocals;
+
+        record Frame(int offset, List<String> stack) {
+        }
+
+        final class Label {
+            private int offset = -1;
+            private List<String> stack;
+            private final List<Integer> patches = new ArrayList<>();
+        }
+
+        public Code(int maxLocals) {
+            this.maxLocals = maxLocals;
+        }
+
+        private void push(String type) {
+            stack.add(type);
+            maxStack = Math.max(maxStack, stack.size());
+        }
+
+        private void pop(int count) {
+            for (int i = 0; i < count; i++) stack.removeLast();
+        }
+
+        public void aload(int slot, String type) {
+            bytes.u1(0x19).u1(slot);
+            push(type);
+        }
+
+        public void iconst(int value) {
+            if (value >= -1 && value <= 5) bytes.u1(0x03 + value);
+            else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) bytes.u1(0x10).u1(value);
+            else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) bytes.u1(0x11).u2(value);
+            else bytes.u1(0x13).u2(integer(value));
+            push("I");
+        }
+
+        public void astore(int slot) {
+            bytes.u1(0x3A).u1(slot);
+            pop(1);
+        }
+
+        public void pop() {
+            bytes.u1(0x57);
+            pop(1);
+        }
+
+        public void dup() {
+            bytes.u1(0x59);
+            push(stack.getLast());
+        }
+
+        public void swap() {
+            bytes.u1(0x5F);
+            String a = stack.removeLast();
+            String b = stack.removeLast();
+            stack.add(a);
+            stack.add(b);
+        }
+
+        public void anewarray(String componentType) {
+            bytes.u1(0xBD).u2(classRef(componentType));
+            pop(1);
+            push("[L" + componentType + ";");
+        }
+
+        public void aaload(String componentType) {
+            bytes.u1(0x32);
+            pop(2);
+            push(componentType);
+        }
+
+        public void aastore() {
+            bytes.u1(0x53);
+            pop(3);
+        }
+
+        public void checkcast(String type) {
+            bytes.u1(0xC0).u2(classRef(type));
+            pop(1);
+            push(type);
+        }
+
+        public void getfield(String owner, String name, String descriptor, String type) {
+            bytes.u1(0xB4).u2(fieldRef(owner, name, descriptor));
+            pop(1);
+            push(type);
+        }
+
+        public void putfield(String owner, String name, String descriptor) {
+            bytes.u1(0xB5).u2(fieldRef(owner, name, descriptor));
+            pop(2);
+        }
+
+        public void invokestatic(String owner, String name, String descriptor, int args, String returnType) {
+            bytes.u1(0xB8).u2(methodRef(owner, name, descriptor));
+            pop(args);
+            if (returnType != null) push(returnType);
+        }
+
+        public void invokespecial(String owner, String name, String descriptor, int args, String returnType) {
+            bytes.u1(0xB7).u2(methodRef(owner, name, descriptor));
+            pop(args + 1);
+            if (returnType != null) push(returnType);
+        }
+
+        public void invokevirtual(String owner, String name, String descriptor, int args, String returnType) {
+            bytes.u1(0xB6).u2(methodRef(owner, name, descriptor));
+            pop(args + 1);
+            if (returnType != null) push(returnType);
+        }
+
+        public void invokeinterface(String owner, String name, String descriptor, int args, String returnType) {
+            bytes.u1(0xB9).u2(interfaceMethodRef(owner, name, descriptor)).u1(args + 1).u1(0);
+            pop(args + 1);
+            if (returnType != null) push(returnType);
+        }
+
+        public void areturn() {
+            bytes.u1(0xB0);
+            pop(1);
+        }
+
+        public void vreturn() {
+            bytes.u1(0xB1);
+        }
+
+        public Label newLabel() {
+            return new Label();
+        }
+
+        public void ifeq(Label target) {
+            pop(1);
+            jump(0x99, target);
+        }
+
+        public void ifne(Label target) {
+            pop(1);
+            jump(0x9A, target);
+        }
+
+        public void ifnonnull(Label target) {
+            pop(1);
+            jump(0xC7, target);
+        }
+
+        public void goTo(Label target) {
+            jump(0xA7, target);
+        }
+
+        private void jump(int opcode, Label target) {
+            int offset = bytes.length;
+            target.stack = List.copyOf(stack);
+            bytes.u1(opcode);
+            target.patches.add(offset);
+            bytes.u2(0);
+        }
+
+        public void place(Label label) {
+            label.offset = bytes.length;
+            stack.clear();
+            stack.addAll(label.stack);
+
+            for (int patch : label.patches) {
+                int delta = label.offset - patch;
+                if (delta > Short.MAX_VALUE) throw new TooLargeException();
+                bytes.set2(patch + 1, delta);
+            }
+
+            if (frames.isEmpty() || frames.getLast().offset != label.offset)
+                frames.add(new Frame(label.offset, label.stack));
+        }
+    }
+
+    private static final class Bytes {
+        private byte[] data = new byte[64];
+        private int length = 0;
+
+        private void ensure(int extra) {
+            if (length + extra <= data.length) return;
+            byte[] d2 = new byte[Math.max(data.length * 2, length + extra)];
+            System.arraycopy(data, 0, d2, 0, length);
+            data = d2;
+        }
+
+        Bytes u1(int v) {
+            ensure(1);
+            data[length++] = (byte) v;
+            return this;
+        }
+
+        Bytes u2(int v) {
+            ensure(2);
+            data[length++] = (byte) (v >> 8);
+            data[length++] = (byte) v;
+            return this;
+        }
+
+        Bytes u4(int v) {
+            ensure(4);
+            data[length++] = (byte) (v >> 24);
+            data[length++] = (byte) (v >> 16);
+            data[length++] = (byte) (v >> 8);
+            data[length++] = (byte) v;
+            return this;
+        }
+
+        Bytes bytes(Bytes another) {
+            ensure(another.length);
+            System.arraycopy(another.data, 0, data, length, another.length);
+            length += another.length;
+            return this;
+        }
+
+        void set2(int pos, int v) {
+            data[pos] = (byte) (v >> 8);
+            data[pos + 1] = (byte) v;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import io.github.nahkd123.tinyexpr.impl.MethodValue;
+
+/**
+ * <p>
+ * Find subtrees that appear more than once in an expression and evaluate them
+ * only once per evaluation. Repeated subtrees are replaced with
+ * {@link Expr.Shared} nodes and the whole expression is wrapped in an
+ * {@link Expr.Scope}, which holds the shared values while evaluating.
+ * </p>
+ * <p>
+ * Only pure subtrees are shared: operators, properties, indexing and ternaries
+ * over variables and constants, as well as calls to constant
+ * {@link MethodValue} marked with {@link MethodValue#markPure()}. Calls through
+ * variables such as {@code math.sqrt(x)} are only shared after the callee was
+ * folded into a constant, for example by running {@link ExprOptimizer} with
+ * {@code math} as a constant first.
+ * </p>
+ *
+ * @see #eliminate(Expr)
+ */
+public final class CommonSubexprEliminator {
+    private final Map<Object, Integer> ids = new HashMap<>();
+    private final Map<Expr, Integer> idOf = new IdentityHashMap<>();
+    private final List<Boolean> pure = new ArrayList<>();
+    private final List<Integer> counts = new ArrayList<>();
+    private final Map<Integer, Integer> uses = new HashMap<>();
+    private final Map<Integer, Expr.Shared> shared = new HashMap<>();
+    private int temps = 0;
+
+    private CommonSubexprEliminator() {}
+
+    /**
+     * <p>
+     * Share repeated pure subtrees of the expression.
+     * </p>
+     *
+     * @param expr The expression.
+     * @return A new {@link Expr.Scope} if there are repeated subtrees, otherwise
+     *         the expression itself.
+     */
+    public static Expr eliminate(Expr expr) {
+        if (expr instanceof Expr.Scope) return expr;
+        CommonSubexprEliminator cse = new CommonSubexprEliminator();
+        cse.number(expr);
+        cse.countUses(expr);
+        Expr body = cse.rewrite(expr);
+        return cse.temps == 0 ? expr : new Expr.Scope(cse.temps, body);
+    }
+
+    /**
+     * <p>
+     * Give each distinct subtree a number, so that structurally equal subtrees
+     * get the same number. Keys only contain the numbers of the children, which
+     * keeps this linear in the size of the tree.
+     * </p>
+     */
+    private int number(Expr expr) {
+        Object key;
+        boolean isPure;
+
+        switch (expr) {
+        case Expr.Const c -> {
+            key = List.of("const", c.value());
+            isPure = true;
+        }
+        case Expr.Variable v -> {
+            key = List.of("var", v.name());
+            isPure = true;
+        }
+        case Expr.Slot s -> {
+            key = List.of("slot", s.slot(), s.name());
+            isPure = true;
+        }
+        case Expr.Unary u -> {
+            int a = number(u.expr());
+            key = List.of("unary", u.op(), a);
+            isPure = pure.get(a);
+        }
+        case Expr.Binary b -> {
+            int a = number(b.a());
+            int c = number(b.b());
+            key = List.of("binary", b.op(), a, c);
+            isPure = pure.get(a) && pure.get(c);
+        }
+        case Expr.Logical l -> {
+            int a = number(l.a());
+            int c = number(l.b());
+            key = List.of("logical", l.op(), a, c);
+            isPure = pure.get(a) && pure.get(c);
+        }
+        case Expr.Index i -> {
+            int a = number(i.expr());
+            int c = number(i.index());
+            key = List.of("index", a, c);
+            isPure = pure.get(a) && pure.get(c);
+        }
+        case Expr.Property p -> {
+            int a = number(p.expr());
+            key = List.of("property", a, p.name());
+            isPure = pure.get(a);
+        }
+        case Expr.Call c -> {
+            List<Object> parts = new ArrayList<>();
+            parts.add("call");
+            isPure = c.expr() instanceof Expr.Const callee
+                && callee.value() instanceof MethodValue method
+                && method.pure();
+
+            for (Expr param : c.params()) {
+                int a = number(param);
+                parts.add(a);
+                isPure &= pure.get(a);
+            }
+
+            parts.add(number(c.expr()));
+            key = parts;
+        }
+        case Expr.Ternary t -> {
+            int a = number(t.test());
+            int b = number(t.ifTrue());
+            int c = number(t.ifFalse());
+            key = List.of("ternary", a, b, c);
+            isPure = pure.get(a) && pure.get(b) && pure.get(c);
+        }
+        case Expr.Scope s -> {
+            // Nested scopes are left as is
+            key = new Object();
+            isPure = false;
+        }
+        case Expr.Shared s -> {
+            key = new Object();
+            isPure = false;
+        }
+        }
+
+        Integer id = ids.get(key);
+
+        if (id == null) {
+            id = pure.size();
+            ids.put(key, id);
+            pure.add(isPure);
+            counts.add(0);
+        }
+
+        counts.set(id, counts.get(id) + 1);
+        idOf.put(expr, id);
+        return id;
+    }
+
+    private boolean isCandidate(Expr expr) {
+        int id = idOf.get(expr);
+        return pure.get(id) && counts.get(id) > 1
+            && !(expr instanceof Expr.Const || expr instanceof Expr.Variable || expr instanceof Expr.Slot);
+    }
+
+    /**
+     * <p>
+     * Count how many times each candidate appears once repeated candidates are
+     * collapsed. A subtree that only repeats inside a repeated parent is then
+     * counted once, and is not shared on its own.
+     * </p>
+     */
+    private void countUses(Expr expr) {
+        if (isCandidate(expr) && uses.merge(idOf.get(expr), 1, Integer::sum) > 1) return;
+        forEachChild(expr, this::countUses);
+    }
+
+    private Expr rewrite(Expr expr) {
+        if (!isCandidate(expr) || uses.get(idOf.get(expr)) < 2) return rewriteChildren(expr);
+
+        int id = idOf.get(expr);
+        Expr.Shared existing = shared.get(id);
+        if (existing != null) return existing;
+
+        // Shared children must get their temps before the parent takes the next
+        // one, otherwise the parent and its first shared child would share it
+        Expr body = rewriteChildren(expr);
+        Expr.Shared node = new Expr.Shared(temps++, body);
+        shared.put(id, node);
+        return node;
+    }
+
+    private Expr rewriteChildren(Expr expr) {
+        return switch (expr) {
+        case Expr.Unary u -> new Expr.Unary(u.op(), rewrite(u.expr()));
+        case Expr.Binary b -> new Expr.Binary(b.op(), rewrite(b.a()), rewrite(b.b()));
+        case Expr.Logical l -> new Expr.Logical(l.op(), rewrite(l.a()), rewrite(l.b()));
+        case Expr.Index i -> new Expr.Index(rewrite(i.expr()), rewrite(i.index()));
+        case Expr.Property p -> new Expr.Property(rewrite(p.expr()), p.name());
+        case Expr.Call c -> {
+            Expr[] params = new Expr[c.params().length];
+            for (int i = 0; i < params.length; i++) params[i] = rewrite(c.params()[i]);
+            yield new Expr.Call(rewrite(c.expr()), params);
+        }
+        case Expr.Ternary t -> new Expr.Ternary(rewrite(t.test()), rewrite(t.ifTrue()), rewrite(t.ifFalse()));
+        default -> expr;
+        };
+    }
+
+    private static void forEachChild(Expr expr, Consumer<Expr> consumer) {
+        switch (expr) {
+        case Expr.Unary u -> consumer.accept(u.expr());
+        case Expr.Binary b -> {
+            consumer.accept(b.a());
+            consumer.accept(b.b());
+        }
+        case Expr.Logical l -> {
+            consumer.accept(l.a());
+            consumer.accept(l.b());
+        }
+        case Expr.Index i -> {
+            consumer.accept(i.expr());
+            consumer.accept(i.index());
+        }
+        case Expr.Property p -> consumer.accept(p.expr());
+        case Expr.Call c -> {
+            for (Expr param : c.params()) consumer.accept(param);
+            consumer.accept(c.expr());
+        }
+        case Expr.Ternary t -> {
+            consumer.accept(t.test());
+            consumer.accept(t.ifTrue());
+            consumer.accept(t.ifFalse());
+        }
+        default -> {}
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.function.Function;
+
+/**
+ * <p>
+ * An expression that was compiled by {@link ExprCompiler}. Evaluating a
+ * compiled expression gives the same result as evaluating the {@link Expr} it
+ * was compiled from.
+ * </p>
+ * 
+ * @see ExprCompiler#compile(Expr)
+ */
+@FunctionalInterface
+public interface CompiledExpr {
+    /**
+     * <p>
+     * Evaluate the compiled expression and return the value from the evaluation.
+     * </p>
+     * 
+     * @param vars A function that returns {@link Value} for variable with provided
+     *             name. Depending on expression, this may or may not be optional.
+     * @return A value.
+     * @see Expr#eval(Function)
+     */
+    Value eval(Function<String, Value> vars);
+}
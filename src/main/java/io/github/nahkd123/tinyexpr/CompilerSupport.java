@@ -0,0 +1,141 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.function.Function;
+
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+
+/**
+ * <p>
+ * Runtime helpers called from classes generated by {@link ExprCompiler}. Each
+ * helper handles the {@link LongValue} and {@link DoubleValue} cases inline and
+ * defers to {@link Value#op(BinaryOp, Value)} (or {@link Value#op(UnaryOp)})
+ * for everything else, so the results are identical to the interpreter. The
+ * helpers are small on purpose so that the JIT inlines them into the generated
+ * method.
+ * </p>
+ */
+final class CompilerSupport {
+    private CompilerSupport() {}
+
+    static Value negate(Value v) {
+        if (v instanceof LongValue x) return LongValue.valueOf(-x.value());
+        if (v instanceof DoubleValue x) return DoubleValue.valueOf(-x.value());
+        return v.op(UnaryOp.NEGATE);
+    }
+
+    static Value invert(Value v) {
+        if (v instanceof LongValue x) return LongValue.valueOf(~x.value());
+        return v.op(UnaryOp.INVERT);
+    }
+
+    static Value not(Value v) {
+        if (v instanceof LongValue x) return LongValue.valueOf(x.value() == 0);
+        if (v instanceof DoubleValue x) return LongValue.valueOf(x.value() == 0);
+        return v.op(UnaryOp.NOT);
+    }
+
+    static Value add(Value a, Value b) {
+        if (a instanceof LongValue x && b instanceof LongValue y) return LongValue.valueOf(x.value() + y.value());
+        if (a instanceof DoubleValue x && b instanceof DoubleValue y) return DoubleValue.valueOf(x.value() + y.value());
+        return a.op(BinaryOp.ADD, b);
+    }
+
+    static Value subtract(Value a, Value b) {
+        if (a instanceof LongValue x && b instanceof LongValue y) return LongValue.valueOf(x.value() - y.value());
+        if (a instanceof DoubleValue x && b instanceof DoubleValue y) return DoubleValue.valueOf(x.value() - y.value());
+        return a.op(BinaryOp.SUBTRACT, b);
+    }
+
+    static Value multiply(Value a, Value b) {
+        if (a instanceof LongValue x && b instanceof LongValue y) return LongValue.valueOf(x.value() * y.value());
+        if (a instanceof DoubleValue x && b instanceof DoubleValue y) return DoubleValue.valueOf(x.value() * y.value());
+        return a.op(BinaryOp.MULTIPLY, b);
+    }
+
+    static Value divide(Value a, Value b) {
+        if (a instanceof LongValue x && b instanceof LongValue y) return LongValue.valueOf(x.value() / y.value());
+        if (a instanceof DoubleValue x && b instanceof DoubleValue y) return DoubleValue.valueOf(x.value() / y.value());
+        return a.op(BinaryOp.DIVIDE, b);
+    }
+
+    static Value shiftLeft(Value a, Value b) {
+        if (a instanceof LongValue x && b instanceof LongValue y) return LongValue.valueOf(x.value() << y.value());
+        return a.op(BinaryOp.SHIFT_LEFT, b);
+    }
+
+    static Value shiftRight(Value a, Value b) {
+        if (a instanceof LongValue x && b instanceof LongValue y) return LongValue.valueOf(x.value() >> y.value());
+        return a.op(BinaryOp.SHIFT_RIGHT, b);
+    }
+
+    static Value and(Value a, Value b) {
+        if (a instanceof LongValue x && b instanceof LongValue y) return LongValue.valueOf(x.value() & y.value());
+        return a.op(BinaryOp.AND, b);
+    }
+
+    static Value or(Value a, Value b) {
+        if (a instanceof LongValue x && b instanceof LongValue y) return LongValue.valueOf(x.value() | y.value());
+        return a.op(BinaryOp.OR, b);
+    }
+
+    static Value xor(Value a, Value b) {
+        if (a instanceof LongValue x && b instanceof LongValue y) return LongValue.valueOf(x.value() ^ y.value());
+        return a.op(BinaryOp.XOR, b);
+    }
+
+    static Value equals(Value a, Value b) {
+        if (a instanceof LongValue x && b instanceof LongValue y) return LongValue.valueOf(x.value() == y.value());
+        if (a instanceof DoubleValue x && b instanceof DoubleValue y) return LongValue.valueOf(x.value() == y.value());
+        return a.op(BinaryOp.EQUALS, b);
+    }
+
+    static Value notEquals(Value a, Value b) {
+        if (a instanceof LongValue x && b instanceof LongValue y) return LongValue.valueOf(x.value() != y.value());
+        if (a instanceof DoubleValue x && b instanceof DoubleValue y) return LongValue.valueOf(x.value() != y.value());
+        return a.op(BinaryOp.NOT_EQUALS, b);
+    }
+
+    static Value lessThan(Value a, Value b) {
+        if (a instanceof LongValue x && b instanceof LongValue y) return LongValue.valueOf(x.value() < y.value());
+        if (a instanceof DoubleValue x && b instanceof DoubleValue y) return LongValue.valueOf(x.value() < y.value());
+        return a.op(BinaryOp.LESS_THAN, b);
+    }
+
+    static Value lessThanOrEquals(Value a, Value b) {
+        if (a instanceof LongValue x && b instanceof LongValue y) return LongValue.valueOf(x.value() <= y.value());
+        if (a instanceof DoubleValue x && b instanceof DoubleValue y) return LongValue.valueOf(x.value() <= y.value());
+        return a.op(BinaryOp.LESS_THAN_OR_EQUALS, b);
+    }
+
+    static Value greaterThan(Value a, Value b) {
+        if (a instanceof LongValue x && b instanceof LongValue y) return LongValue.valueOf(x.value() > y.value());
+        if (a instanceof DoubleValue x && b instanceof DoubleValue y) return LongValue.valueOf(x.value() > y.value());
+        return a.op(BinaryOp.GREATER_THAN, b);
+    }
+
+    static Value greaterThanOrEquals(Value a, Value b) {
+        if (a instanceof LongValue x && b instanceof LongValue y) return LongValue.valueOf(x.value() >= y.value());
+        if (a instanceof DoubleValue x && b instanceof DoubleValue y) return LongValue.valueOf(x.value() >= y.value());
+        return a.op(BinaryOp.GREATER_THAN_OR_EQUALS, b);
+    }
+
+    static Value index(IndexCache cache, Value target, Value index) {
+        if (index instanceof LongValue i) return cache.get(target, (int) i.value());
+        return cache.get(target, index.unwrapAs(int.class));
+    }
+
+    static boolean test(Value v) {
+        if (v instanceof LongValue x) return x.value() != 0;
+        if (v instanceof DoubleValue x) return x.value() != 0;
+        return v.unwrapAs(boolean.class);
+    }
+
+    static Value sharedGet(Function<String, Value> vars, int temp) {
+        return vars instanceof Frame frame ? frame.getTemp(temp) : null;
+    }
+
+    static Value sharedPut(Function<String, Value> vars, int temp, Value value) {
+        return vars instanceof Frame frame ? frame.putTemp(temp, value) : value;
+    }
+}
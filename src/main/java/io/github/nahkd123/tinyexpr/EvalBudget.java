@@ -0,0 +1,146 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import io.github.nahkd123.tinyexpr.BudgetExceededException.Limit;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+/**
+ * <p>
+ * Limits for a single evaluation: the number of evaluated nodes (steps), the
+ * time since the evaluation started, and the length of strings produced by the
+ * evaluation. Going over a limit stops the evaluation with
+ * {@link BudgetExceededException}.
+ * </p>
+ * <p>
+ * String concatenations, with a string on either side of {@code +}, are
+ * checked before the new string is created. The deadline is checked every
+ * {@value #DEADLINE_CHECK_INTERVAL} steps and after every call, so a single
+ * slow method call can overrun the deadline by its own duration. Evaluating with {@link #UNLIMITED} is the same as calling
+ * {@link Expr#eval(Function)} directly.
+ * </p>
+ *
+ * @param maxSteps        Maximum number of evaluated nodes.
+ * @param timeoutNanos    Maximum duration of the evaluation, in nanoseconds.
+ * @param maxStringLength Maximum length of strings produced by the evaluation.
+ * @see #eval(Expr, Function)
+ */
+public record EvalBudget(long maxSteps, long timeoutNanos, int maxStringLength) {
+    public static final EvalBudget UNLIMITED = new EvalBudget(Long.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE);
+    public static final int DEADLINE_CHECK_INTERVAL = 64;
+
+    public EvalBudget {
+        if (maxSteps <= 0) throw new IllegalArgumentException("Maximum steps must be positive");
+        if (timeoutNanos <= 0) throw new IllegalArgumentException("Timeout must be positive");
+        if (maxStringLength < 0) throw new IllegalArgumentException("Maximum string length can't be negative");
+    }
+
+    public EvalBudget withMaxSteps(long maxSteps) {
+        return new EvalBudget(maxSteps, timeoutNanos, maxStringLength);
+    }
+
+    public EvalBudget withTimeout(Duration timeout) {
+        return new EvalBudget(maxSteps, timeout.toNanos(), maxStringLength);
+    }
+
+    public EvalBudget withMaxStringLength(int maxStringLength) {
+        return new EvalBudget(maxSteps, timeoutNanos, maxStringLength);
+    }
+
+    public boolean isUnlimited() {
+        return maxSteps == Long.MAX_VALUE && timeoutNanos == Long.MAX_VALUE && maxStringLength == Integer.MAX_VALUE;
+    }
+
+    /**
+     * <p>
+     * Evaluate the expression within this budget.
+     * </p>
+     *
+     * @param expr The expression.
+     * @param vars A function that returns {@link Value} for variable with provided
+     *             name.
+     * @return The value from the evaluation.
+     * @throws BudgetExceededException if a limit is exceeded.
+     * @see Expr#eval(Function)
+     */
+    public Value eval(Expr expr, Function<String, Value> vars) {
+        if (isUnlimited()) return expr.eval(vars);
+        return new Meter().eval(expr, vars);
+    }
+
+    private final class Meter {
+        final long start = System.nanoTime();
+        long steps = 0;
+
+        Value eval(Expr expr, Function<String, Value> vars) {
+            if (++steps > maxSteps) throw new BudgetExceededException(Limit.STEPS,
+                "Evaluation exceeded %d steps".formatted(maxSteps));
+            if (steps % DEADLINE_CHECK_INTERVAL == 0) checkDeadline();
+
+            return switch (expr) {
+            case Expr.Const c -> c.value();
+            case Expr.Variable v -> v.eval(vars);
+            case Expr.Slot s -> s.eval(vars);
+            case Expr.Unary u -> checkString(eval(u.expr(), vars).op(u.op()));
+            case Expr.Binary b -> {
+                Value a = eval(b.a(), vars);
+                Value other = eval(b.b(), vars);
+
+                if (b.op() == BinaryOp.ADD && (a instanceof StringValue || other instanceof StringValue)) {
+                    long length = (long) length(a) + length(other);
+                    if (length > maxStringLength) throw stringTooLong(length);
+                }
+
+                yield checkString(a.op(b.op(), other));
+            }
+            case Expr.Index i -> {
+                Value target = eval(i.expr(), vars);
+                yield checkString(i.cache().get(target, eval(i.index(), vars).unwrapAs(int.class)));
+            }
+            case Expr.Property p -> checkString(p.cache().get(eval(p.expr(), vars)));
+            case Expr.Call c -> {
+                Value[] inputs = new Value[c.params().length];
+                for (int i = 0; i < inputs.length; i++) inputs[i] = eval(c.params()[i], vars);
+                Value value = eval(c.expr(), vars).call(inputs);
+                checkDeadline();
+                yield checkString(value);
+            }
+            case Expr.Logical l -> {
+                boolean result = eval(l.a(), vars).unwrapAs(boolean.class);
+                if (result == (l.op() == BinaryOp.LOGICAL_AND)) result = eval(l.b(), vars).unwrapAs(boolean.class);
+                yield LongValue.valueOf(result);
+            }
+            case Expr.Ternary t -> eval(t.test(), vars).unwrapAs(boolean.class)
+                ? eval(t.ifTrue(), vars)
+                : eval(t.ifFalse(), vars);
+            case Expr.Scope s -> eval(s.body(), Frame.withTemps(vars, s.temps()));
+            case Expr.Shared s -> {
+                if (!(vars instanceof Frame frame)) yield eval(s.expr(), vars);
+                Value value = frame.getTemp(s.temp());
+                yield value != null ? value : frame.putTemp(s.temp(), eval(s.expr(), vars));
+            }
+            };
+        }
+
+        void checkDeadline() {
+            if (System.nanoTime() - start > timeoutNanos) throw new BudgetExceededException(Limit.DEADLINE,
+                "Evaluation exceeded %d ns".formatted(timeoutNanos));
+        }
+
+        static int length(Value value) {
+            return value instanceof StringValue s ? s.length() : value.toString().length();
+        }
+
+        Value checkString(Value value) {
+            if (value instanceof StringValue s && s.length() > maxStringLength) throw stringTooLong(s.length());
+            return value;
+        }
+
+        BudgetExceededException stringTooLong(long length) {
+            return new BudgetExceededException(Limit.STRING_LENGTH, "String of length %d exceeds %d characters"
+                .formatted(length, maxStringLength));
+        }
+    }
+}
@@ -1,15 +1,21 @@
 package io.github.nahkd123.tinyexpr;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+
 /**
  * <p>
  * Represent an expression.
  * </p>
  * 
  * @see #eval(Function)
+ * @see #evalDouble(Function)
+ * @see #bind(List)
  */
 public sealed interface Expr {
     /**
@@ -23,12 +29,78 @@ public sealed interface Expr {
      */
     Value eval(Function<String, Value> vars);
 
+    /**
+     * <p>
+     * Evaluate the expression as {@code double}. Numeric subtrees are computed
+     * with primitives without allocating {@link Value}, falling back to
+     * {@link #eval(Function)} only for strings, properties and method calls. The
+     * result is the same as {@code eval(vars).unwrapAs(double.class)}.
+     * </p>
+     * 
+     * @param vars A function that returns {@link Value} for variable with provided
+     *             name. Depending on expression, this may or may not be optional.
+     * @return The evaluated value as {@code double}.
+     */
+    default double evalDouble(Function<String, Value> vars) {
+        return new PrimitiveEvaluator(vars).evalDouble(this);
+    }
+
+    /**
+     * <p>
+     * Evaluate the expression as {@code long}. The result is the same as
+     * {@code eval(vars).unwrapAs(long.class)}.
+     * </p>
+     * 
+     * @param vars A function that returns {@link Value} for variable with provided
+     *             name. Depending on expression, this may or may not be optional.
+     * @return The evaluated value as {@code long}.
+     * @see #evalDouble(Function)
+     */
+    default long evalLong(Function<String, Value> vars) {
+        return new PrimitiveEvaluator(vars).evalLong(this);
+    }
+
+    /**
+     * <p>
+     * Evaluate the expression as {@code boolean}. The result is the same as
+     * {@code eval(vars).unwrapAs(boolean.class)}.
+     * </p>
+     * 
+     * @param vars A function that returns {@link Value} for variable with provided
+     *             name. Depending on expression, this may or may not be optional.
+     * @return The evaluated value as {@code boolean}.
+     * @see #evalDouble(Function)
+     */
+    default boolean evalBoolean(Function<String, Value> vars) {
+        return new PrimitiveEvaluator(vars).evalBoolean(this);
+    }
+
+    /**
+     * <p>
+     * Resolve variables to slots in the given schema. Each {@link Variable} whose
+     * name is in the schema is replaced with a {@link Slot}, which is loaded
+     * from the slots array when evaluating with a {@link Frame}. Variables that
+     * are not in the schema are left as is.
+     * </p>
+     * 
+     * @param schema The variable names, where the index of each name is the slot
+     *               index.
+     * @return The bound expression.
+     * @see Frame
+     */
+    Expr bind(List<String> schema);
+
     record Const(Value value) implements Expr {
         @Override
         public Value eval(Function<String, Value> vars) {
             return value;
         }
 
+        @Override
+        public Expr bind(List<String> schema) {
+            return this;
+        }
+
         @Override
         public final String toString() {
             return value.toString();
@@ -42,6 +114,31 @@ public sealed interface Expr {
             return vars.apply(name);
         }
 
+        @Override
+        public Expr bind(List<String> schema) {
+            int slot = schema.indexOf(name);
+            return slot != -1 ? new Slot(slot, name) : this;
+        }
+
+        @Override
+        public final String toString() {
+            return name;
+        }
+    }
+
+    record Slot(int slot, String name) implements Expr {
+        @Override
+        public Value eval(Function<String, Value> vars) {
+            if (vars instanceof Frame frame) return frame.slot(slot, name);
+            if (vars == null) throw new IllegalArgumentException("No access to current variables");
+            return vars.apply(name);
+        }
+
+        @Override
+        public Expr bind(List<String> schema) {
+            return new Variable(name).bind(schema);
+        }
+
         @Override
         public final String toString() {
             return name;
@@ -54,6 +151,11 @@ public sealed interface Expr {
             return expr.eval(vars).op(op);
         }
 
+        @Override
+        public Expr bind(List<String> schema) {
+            return new Unary(op, expr.bind(schema));
+        }
+
         @Override
         public final String toString() {
             return "%s%s".formatted(switch (op) {
@@ -71,6 +173,11 @@ public sealed interface Expr {
             return a.eval(vars).op(op, b.eval(vars));
         }
 
+        @Override
+        public Expr bind(List<String> schema) {
+            return new Binary(op, a.bind(schema), b.bind(schema));
+        }
+
         @Override
         public final String toString() {
             return "(%s %s %s)".formatted(a, switch (op) {
@@ -92,10 +199,65 @@ public sealed interface Expr {
         }
     }
 
-    record Index(Expr expr, Expr index) implements Expr {
+    /**
+     * <p>
+     * Short-circuit {@code &&} and {@code ||}. The right operand is only
+     * evaluated when the left operand does not decide the result. The result is
+     * {@code 1} or {@code 0}, like comparisons.
+     * </p>
+     */
+    record Logical(BinaryOp op, Expr a, Expr b) implements Expr {
+        public Logical {
+            if (!op.isLogical()) throw new IllegalArgumentException("%s is not a logical operator".formatted(op));
+        }
+
         @Override
         public Value eval(Function<String, Value> vars) {
-            return expr.eval(vars).get(index.eval(vars).unwrapAs(int.class));
+            boolean result = a.eval(vars).unwrapAs(boolean.class);
+            if (result == (op == BinaryOp.LOGICAL_AND)) result = b.eval(vars).unwrapAs(boolean.class);
+            return LongValue.valueOf(result);
+        }
+
+        @Override
+        public Expr bind(List<String> schema) {
+            return new Logical(op, a.bind(schema), b.bind(schema));
+        }
+
+        @Override
+        public final String toString() {
+            return "(%s %s %s)".formatted(a, op == BinaryOp.LOGICAL_AND ? "&&" : "||", b);
+        }
+    }
+
+    /**
+     * <p>
+     * Indexing. Each node has its own {@link IndexCache}, which is not part of
+     * {@link #equals(Object)}.
+     * </p>
+     */
+    record Index(Expr expr, Expr index, IndexCache cache) implements Expr {
+        public Index(Expr expr, Expr index) {
+            this(expr, index, new IndexCache());
+        }
+
+        @Override
+        public Value eval(Function<String, Value> vars) {
+            return cache.get(expr.eval(vars), index.eval(vars).unwrapAs(int.class));
+        }
+
+        @Override
+        public Expr bind(List<String> schema) {
+            return new Index(expr.bind(schema), index.bind(schema));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Index i && expr.equals(i.expr) && index.equals(i.index);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * expr.hashCode() + index.hashCode();
         }
 
         @Override
@@ -104,10 +266,40 @@ public sealed interface Expr {
         }
     }
 
-    record Property(Expr expr, String name) implements Expr {
+    /**
+     * <p>
+     * Property access. Each node has its own {@link PropertyCache}, which is not
+     * part of {@link #equals(Object)}.
+     * </p>
+     */
+    record Property(Expr expr, String name, PropertyCache cache) implements Expr {
+        public Property {
+            if (!cache.name().equals(name))
+                throw new IllegalArgumentException("Cache for '%s' used for property '%s'".formatted(cache.name(), name));
+        }
+
+        public Property(Expr expr, String name) {
+            this(expr, name, new PropertyCache(name));
+        }
+
         @Override
         public Value eval(Function<String, Value> vars) {
-            return expr.eval(vars).get(name);
+            return cache.get(expr.eval(vars));
+        }
+
+        @Override
+        public Expr bind(List<String> schema) {
+            return new Property(expr.bind(schema), name);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Property p && expr.equals(p.expr) && name.equals(p.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * expr.hashCode() + name.hashCode();
         }
 
         @Override
@@ -124,6 +316,23 @@ public sealed interface Expr {
             return expr.eval(vars).call(inputs);
         }
 
+        @Override
+        public Expr bind(List<String> schema) {
+            Expr[] bound = new Expr[params.length];
+            for (int i = 0; i < bound.length; i++) bound[i] = params[i].bind(schema);
+            return new Call(expr.bind(schema), bound);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Call call && expr.equals(call.expr) && Arrays.equals(params, call.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * expr.hashCode() + Arrays.hashCode(params);
+        }
+
         @Override
         public final String toString() {
             return "%s(%s)".formatted(expr, Stream.of(params).map(Expr::toString).collect(Collectors.joining(", ")));
@@ -136,9 +345,68 @@ public sealed interface Expr {
             return test.eval(vars).unwrapAs(boolean.class) ? ifTrue.eval(vars) : ifFalse.eval(vars);
         }
 
+        @Override
+        public Expr bind(List<String> schema) {
+            return new Ternary(test.bind(schema), ifTrue.bind(schema), ifFalse.bind(schema));
+        }
+
         @Override
         public final String toString() {
             return "(%s ? %s : %s)".formatted(test, ifTrue, ifFalse);
         }
     }
+
+    /**
+     * <p>
+     * Root of an expression that has {@link Shared} subtrees. Each evaluation of
+     * the scope gets its own storage for the values of shared subtrees.
+     * </p>
+     * 
+     * @see CommonSubexprEliminator
+     */
+    record Scope(int temps, Expr body) implements Expr {
+        @Override
+        public Value eval(Function<String, Value> vars) {
+            return body.eval(Frame.withTemps(vars, temps));
+        }
+
+        @Override
+        public Expr bind(List<String> schema) {
+            return new Scope(temps, body.bind(schema));
+        }
+
+        @Override
+        public final String toString() {
+            return body.toString();
+        }
+    }
+
+    /**
+     * <p>
+     * A subtree that is evaluated at most once per evaluation of the enclosing
+     * {@link Scope}. The value is computed when the subtree is first reached,
+     * so shared subtrees in ternary branches that are not taken are never
+     * evaluated.
+     * </p>
+     * 
+     * @see CommonSubexprEliminator
+     */
+    record Shared(int temp, Expr expr) implements Expr {
+        @Override
+        public Value eval(Function<String, Value> vars) {
+            if (!(vars instanceof Frame frame)) return expr.eval(vars);
+            Value value = frame.getTemp(temp);
+            return value != null ? value : frame.putTemp(temp, expr.eval(vars));
+        }
+
+        @Override
+        public Expr bind(List<String> schema) {
+            return new Shared(temp, expr.bind(schema));
+        }
+
+        @Override
+        public final String toString() {
+            return expr.toString();
+        }
+    }
 }
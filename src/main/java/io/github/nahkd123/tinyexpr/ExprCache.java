@@ -0,0 +1,160 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * Thread-safe cache of parsed expressions, keyed by source text. Reads do not
+ * take any lock. When many threads ask for the same missing source at once,
+ * only one of them parses it while the others wait for the result.
+ * </p>
+ * <p>
+ * The cache holds at most {@code maximumSize} expressions (it may briefly go
+ * above that while several threads insert at once). Entries are evicted with
+ * the CLOCK algorithm, which approximates LRU: every hit marks the entry as
+ * recently used, and eviction skips marked entries once before removing
+ * them.
+ * </p>
+ *
+ * @see #get(CharSequence)
+ * @see #stats()
+ */
+public final class ExprCache {
+    private final int maximumSize;
+    private final Function<String, Expr> parser;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> clock = new ConcurrentLinkedQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static final class Entry {
+        final String source;
+        final CompletableFuture<Expr> expr = new CompletableFuture<>();
+        volatile boolean referenced = false;
+
+        Entry(String source) {
+            this.source = source;
+        }
+    }
+
+    /**
+     * <p>
+     * Cache statistics.
+     * </p>
+     *
+     * @param hits      Number of lookups that were served from the cache,
+     *                  including lookups that waited for another thread to
+     *                  finish parsing.
+     * @param misses    Number of lookups that parsed the source.
+     * @param evictions Number of entries evicted to keep the cache size bounded.
+     * @param size      Number of entries currently in the cache.
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {
+    }
+
+    /**
+     * <p>
+     * Create a new cache that parses with the given parser.
+     * </p>
+     *
+     * @param maximumSize Maximum number of expressions to keep.
+     * @param parser      The parser, such as
+     *                    {@code source -> ExprParser.parse(source, optimizer)}.
+     */
+    public ExprCache(int maximumSize, Function<String, Expr> parser) {
+        if (maximumSize <= 0) throw new IllegalArgumentException("Maximum size must be positive");
+        this.maximumSize = maximumSize;
+        this.parser = parser;
+    }
+
+    public ExprCache(int maximumSize) {
+        this(maximumSize, ExprParser::parse);
+    }
+
+    /**
+     * <p>
+     * Get the parsed expression for the source, parsing it if it is not cached.
+     * Sources that fail to parse are not cached.
+     * </p>
+     *
+     * @param source The source text.
+     * @return The parsed expression.
+     */
+    public Expr get(CharSequence source) {
+        String key = source.toString();
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            Entry created = new Entry(key);
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) return load(created);
+        }
+
+        entry.referenced = true;
+        hits.increment();
+
+        try {
+            return entry.expr.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error error) throw error;
+            throw e;
+        }
+    }
+
+    private Expr load(Entry entry) {
+        misses.increment();
+        Expr expr;
+
+        try {
+            expr = parser.apply(entry.source);
+        } catch (Throwable t) {
+            // Errors such as StackOverflowError must also release the waiting
+            // threads, or the entry would block every later lookup
+            entries.remove(entry.source, entry);
+            entry.expr.completeExceptionally(t);
+            throw t;
+        }
+
+        entry.expr.complete(expr);
+        clock.add(entry);
+        evict();
+        return expr;
+    }
+
+    private void evict() {
+        // Each entry is skipped at most once, so this terminates after 2 laps
+        int budget = 2 * (entries.size() + 1);
+
+        while (entries.size() > maximumSize && budget-- > 0) {
+            Entry entry = clock.poll();
+            if (entry == null) return;
+
+            if (entry.referenced) {
+                entry.referenced = false;
+                clock.add(entry);
+            } else if (entries.remove(entry.source, entry)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size());
+    }
+
+    public void clear() {
+        entries.clear();
+        clock.clear();
+    }
+}
@@ -0,0 +1,277 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+
+/**
+ * <p>
+ * Compile {@link Expr} trees to JVM bytecode. Each compiled expression is a
+ * hidden class (see {@link MethodHandles.Lookup#defineHiddenClass}) with a
+ * single {@code eval} method that evaluates the whole tree as straight-line
+ * code, instead of walking the tree through {@link Expr#eval} calls. Hidden
+ * classes are unloaded once the compiled expression is no longer reachable.
+ * </p>
+ * <p>
+ * Constants, variable names and the inline caches of property and index nodes
+ * are stored in final fields of the generated class. Operators call into small
+ * static helpers that handle {@code long} and {@code double} operands inline
+ * and defer to {@link Value#op(BinaryOp, Value)} otherwise, so compiled
+ * expressions have exactly the same semantics as the interpreter.
+ * </p>
+ *
+ * @see #compile(Expr)
+ */
+public final class ExprCompiler {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final String CLASS_NAME = "io/github/nahkd123/tinyexpr/CompiledExpr$Generated";
+    private static final String COMPILED_EXPR = "io/github/nahkd123/tinyexpr/CompiledExpr";
+    private static final String SUPPORT = "io/github/nahkd123/tinyexpr/CompilerSupport";
+    private static final String EXPR = "io/github/nahkd123/tinyexpr/Expr";
+    private static final String VALUE = "io/github/nahkd123/tinyexpr/Value";
+    private static final String VALUE_ARRAY = "[L" + VALUE + ";";
+    private static final String PROPERTY_CACHE = "io/github/nahkd123/tinyexpr/PropertyCache";
+    private static final String INDEX_CACHE = "io/github/nahkd123/tinyexpr/IndexCache";
+    private static final String FRAME = "io/github/nahkd123/tinyexpr/Frame";
+    private static final String FUNCTION = "java/util/function/Function";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String STRING = "java/lang/String";
+
+    private static final String EVAL_DESC = "(L" + FUNCTION + ";)L" + VALUE + ";";
+    private static final String UNARY_DESC = "(L" + VALUE + ";)L" + VALUE + ";";
+    private static final String BINARY_DESC = "(L" + VALUE + ";L" + VALUE + ";)L" + VALUE + ";";
+
+    private ExprCompiler() {}
+
+    /**
+     * <p>
+     * Compile the expression into a new hidden class. If the expression is too
+     * large to fit in a single method, the returned {@link CompiledExpr} simply
+     * evaluates the tree instead.
+     * </p>
+     *
+     * @param expr The expression to compile.
+     * @return The compiled expression.
+     */
+    public static CompiledExpr compile(Expr expr) {
+        Generator generator = new Generator();
+        byte[] bytes;
+
+        try {
+            bytes = generator.generate(expr);
+        } catch (ClassFileWriter.TooLargeException e) {
+            return expr::eval;
+        }
+
+        try {
+            MethodHandles.Lookup lookup = LOOKUP.defineHiddenClass(bytes, true);
+            MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(),
+                MethodType.methodType(void.class, Object[].class));
+            return (CompiledExpr) constructor.invoke(generator.constants.toArray());
+        } catch (Throwable t) {
+            throw new IllegalStateException("Unable to define compiled expression for %s".formatted(expr), t);
+        }
+    }
+
+    private static final class Generator {
+        private final ClassFileWriter writer = new ClassFileWriter(CLASS_NAME);
+        private final List<Object> constants = new ArrayList<>();
+        private final List<String> constantTypes = new ArrayList<>();
+        private final Map<Object, Integer> constantIndices = new IdentityHashMap<>();
+        private ClassFileWriter.Code code;
+
+        byte[] generate(Expr expr) {
+            writer.addInterface(COMPILED_EXPR);
+
+            code = writer.new Code(2);
+
+            if (expr instanceof Expr.Scope scope) {
+                // Replace the variables with a frame that stores shared values
+                code.aload(1, FUNCTION);
+                code.iconst(scope.temps());
+                code.invokestatic(FRAME, "withTemps", "(L" + FUNCTION + ";I)L" + FRAME + ";", 2, FRAME);
+                code.astore(1);
+                emit(scope.body());
+            } else {
+                emit(expr);
+            }
+
+            code.areturn();
+            ClassFileWriter.Code eval = code;
+
+            for (int i = 0; i < constants.size(); i++)
+                writer.addField(ClassFileWriter.ACC_PRIVATE | ClassFileWriter.ACC_FINAL, "c" + i,
+                    "L" + constantTypes.get(i) + ";");
+
+            code = writer.new Code(2);
+            code.aload(0, CLASS_NAME);
+            code.invokespecial(OBJECT, "<init>", "()V", 0, null);
+            for (int i = 0; i < constants.size(); i++) {
+                code.aload(0, CLASS_NAME);
+                code.aload(1, "[L" + OBJECT + ";");
+                code.iconst(i);
+                code.aaload(OBJECT);
+                code.checkcast(constantTypes.get(i));
+                code.putfield(CLASS_NAME, "c" + i, "L" + constantTypes.get(i) + ";");
+            }
+            code.vreturn();
+
+            writer.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "([L" + OBJECT + ";)V", code);
+            writer.addMethod(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_FINAL, "eval", EVAL_DESC, eval);
+            return writer.toByteArray();
+        }
+
+        private void loadConstant(Object value, String type) {
+            Integer index = constantIndices.get(value);
+
+            if (index == null) {
+                index = constants.size();
+                constants.add(value);
+                constantTypes.add(type);
+                constantIndices.put(value, index);
+            }
+
+            code.aload(0, CLASS_NAME);
+            code.getfield(CLASS_NAME, "c" + index, "L" + constantTypes.get(index) + ";", constantTypes.get(index));
+        }
+
+        private void emit(Expr expr) {
+            switch (expr) {
+            case Expr.Const c:
+                loadConstant(c.value(), VALUE);
+                break;
+            case Expr.Variable v:
+                // Variable nodes are final classes, so this call is statically bound
+                loadConstant(v, EXPR + "$Variable");
+                code.aload(1, FUNCTION);
+                code.invokevirtual(EXPR + "$Variable", "eval", EVAL_DESC, 1, VALUE);
+                break;
+            case Expr.Slot s:
+                loadConstant(s, EXPR + "$Slot");
+                code.aload(1, FUNCTION);
+                code.invokevirtual(EXPR + "$Slot", "eval", EVAL_DESC, 1, VALUE);
+                break;
+            case Expr.Unary u:
+                emit(u.expr());
+                code.invokestatic(SUPPORT, switch (u.op()) {
+                case NEGATE -> "negate";
+                case INVERT -> "invert";
+                case NOT -> "not";
+                }, UNARY_DESC, 1, VALUE);
+                break;
+            case Expr.Binary b:
+                emit(b.a());
+                emit(b.b());
+                code.invokestatic(SUPPORT, switch (b.op()) {
+                case ADD -> "add";
+                case SUBTRACT -> "subtract";
+                case MULTIPLY -> "multiply";
+                case DIVIDE -> "divide";
+                case SHIFT_LEFT -> "shiftLeft";
+                case SHIFT_RIGHT -> "shiftRight";
+                case AND -> "and";
+                case OR -> "or";
+                case XOR -> "xor";
+                case EQUALS -> "equals";
+                case NOT_EQUALS -> "notEquals";
+                case LESS_THAN -> "lessThan";
+                case LESS_THAN_OR_EQUALS -> "lessThanOrEquals";
+                case GREATER_THAN -> "greaterThan";
+                case GREATER_THAN_OR_EQUALS -> "greaterThanOrEquals";
+                case LOGICAL_AND, LOGICAL_OR -> throw new IllegalArgumentException(
+                    "%s must be used with Expr.Logical".formatted(b.op()));
+                }, BINARY_DESC, 2, VALUE);
+                break;
+            case Expr.Logical l: {
+                // The right operand is only evaluated when the left operand does not decide the result
+                boolean and = l.op() == BinaryOp.LOGICAL_AND;
+                ClassFileWriter.Code.Label decided = code.newLabel();
+                ClassFileWriter.Code.Label end = code.newLabel();
+                emit(l.a());
+                code.invokestatic(SUPPORT, "test", "(L" + VALUE + ";)Z", 1, "I");
+                if (and) code.ifeq(decided);
+                else code.ifne(decided);
+                emit(l.b());
+                code.invokestatic(SUPPORT, "test", "(L" + VALUE + ";)Z", 1, "I");
+                if (and) code.ifeq(decided);
+                else code.ifne(decided);
+                loadConstant(LongValue.valueOf(and), VALUE);
+                code.goTo(end);
+                code.place(decided);
+                loadConstant(LongValue.valueOf(!and), VALUE);
+                code.place(end);
+                break;
+            }
+            case Expr.Index i:
+                loadConstant(i.cache(), INDEX_CACHE);
+                emit(i.expr());
+                emit(i.index());
+                code.invokestatic(SUPPORT, "index", "(L" + INDEX_CACHE + ";L" + VALUE + ";L" + VALUE + ";)L" + VALUE + ";",
+                    3, VALUE);
+                break;
+            case Expr.Property p:
+                loadConstant(p.cache(), PROPERTY_CACHE);
+                emit(p.expr());
+                code.invokevirtual(PROPERTY_CACHE, "get", UNARY_DESC, 1, VALUE);
+                break;
+            case Expr.Call c: {
+                // Parameters are evaluated before the callee, same as Expr.Call.eval()
+                code.iconst(c.params().length);
+                code.anewarray(VALUE);
+                for (int i = 0; i < c.params().length; i++) {
+                    code.dup();
+                    code.iconst(i);
+                    emit(c.params()[i]);
+                    code.aastore();
+                }
+                emit(c.expr());
+                code.swap();
+                code.invokeinterface(VALUE, "call", "(" + VALUE_ARRAY + ")L" + VALUE + ";", 1, VALUE);
+                break;
+            }
+            case Expr.Ternary t: {
+                ClassFileWriter.Code.Label ifFalse = code.newLabel();
+                ClassFileWriter.Code.Label end = code.newLabel();
+                emit(t.test());
+                code.invokestatic(SUPPORT, "test", "(L" + VALUE + ";)Z", 1, "I");
+                code.ifeq(ifFalse);
+                emit(t.ifTrue());
+                code.goTo(end);
+                code.place(ifFalse);
+                emit(t.ifFalse());
+                code.place(end);
+                break;
+            }
+            case Expr.Shared s: {
+                ClassFileWriter.Code.Label done = code.newLabel();
+                code.aload(1, FUNCTION);
+                code.iconst(s.temp());
+                code.invokestatic(SUPPORT, "sharedGet", "(L" + FUNCTION + ";I)L" + VALUE + ";", 2, VALUE);
+                code.dup();
+                code.ifnonnull(done);
+                code.pop();
+                code.aload(1, FUNCTION);
+                code.iconst(s.temp());
+                emit(s.expr());
+                code.invokestatic(SUPPORT, "sharedPut", "(L" + FUNCTION + ";IL" + VALUE + ";)L" + VALUE + ";", 3,
+                    VALUE);
+                code.place(done);
+                break;
+            }
+            case Expr.Scope s:
+                // Nested scopes are evaluated by the interpreter
+                loadConstant(s, EXPR + "$Scope");
+                code.aload(1, FUNCTION);
+                code.invokevirtual(EXPR + "$Scope", "eval", EVAL_DESC, 1, VALUE);
+                break;
+            }
+        }
+    }
+}
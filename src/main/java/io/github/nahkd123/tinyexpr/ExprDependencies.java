@@ -0,0 +1,140 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * <p>
+ * Find out which inputs an expression depends on.
+ * </p>
+ *
+ * @see #freeVariables(Expr)
+ * @see #propertyPaths(Expr)
+ * @see ReactiveEvaluator
+ */
+public final class ExprDependencies {
+    private ExprDependencies() {}
+
+    /**
+     * <p>
+     * Get the names of all variables (including bound {@link Expr.Slot}s) in the
+     * expression, in the order they first appear. Variables in branches that
+     * may not be evaluated, such as ternary branches or the right side of
+     * {@code &&}, are included.
+     * </p>
+     *
+     * @param expr The expression.
+     * @return The variable names.
+     */
+    public static Set<String> freeVariables(Expr expr) {
+        Set<String> names = new LinkedHashSet<>();
+        collectVariables(expr, names);
+        return Collections.unmodifiableSet(names);
+    }
+
+    private static void collectVariables(Expr expr, Set<String> names) {
+        switch (expr) {
+        case Expr.Const c -> {}
+        case Expr.Variable v -> names.add(v.name());
+        case Expr.Slot s -> names.add(s.name());
+        case Expr.Unary u -> collectVariables(u.expr(), names);
+        case Expr.Binary b -> {
+            collectVariables(b.a(), names);
+            collectVariables(b.b(), names);
+        }
+        case Expr.Logical l -> {
+            collectVariables(l.a(), names);
+            collectVariables(l.b(), names);
+        }
+        case Expr.Index i -> {
+            collectVariables(i.expr(), names);
+            collectVariables(i.index(), names);
+        }
+        case Expr.Property p -> collectVariables(p.expr(), names);
+        case Expr.Call c -> {
+            collectVariables(c.expr(), names);
+            for (Expr param : c.params()) collectVariables(param, names);
+        }
+        case Expr.Ternary t -> {
+            collectVariables(t.test(), names);
+            collectVariables(t.ifTrue(), names);
+            collectVariables(t.ifFalse(), names);
+        }
+        case Expr.Scope s -> collectVariables(s.body(), names);
+        case Expr.Shared s -> collectVariables(s.expr(), names);
+        }
+    }
+
+    /**
+     * <p>
+     * Get the property paths that the expression reads, in the order they first
+     * appear. A path is a variable name followed by the names of the properties
+     * read from it, separated by {@code .}, such as {@code order.customer.tier}.
+     * A variable that is used as a whole, such as {@code order} in
+     * {@code order[0]} or {@code order + 1}, has a path with only its name.
+     * </p>
+     *
+     * @param expr The expression.
+     * @return The property paths.
+     */
+    public static Set<String> propertyPaths(Expr expr) {
+        Set<String> paths = new LinkedHashSet<>();
+        collectPaths(expr, paths);
+        return Collections.unmodifiableSet(paths);
+    }
+
+    private static void collectPaths(Expr expr, Set<String> paths) {
+        switch (expr) {
+        case Expr.Const c -> {}
+        case Expr.Variable v -> paths.add(v.name());
+        case Expr.Slot s -> paths.add(s.name());
+        case Expr.Unary u -> collectPaths(u.expr(), paths);
+        case Expr.Binary b -> {
+            collectPaths(b.a(), paths);
+            collectPaths(b.b(), paths);
+        }
+        case Expr.Logical l -> {
+            collectPaths(l.a(), paths);
+            collectPaths(l.b(), paths);
+        }
+        case Expr.Index i -> {
+            collectPaths(i.expr(), paths);
+            collectPaths(i.index(), paths);
+        }
+        case Expr.Property p -> {
+            String path = pathOf(p);
+            if (path != null) paths.add(path);
+            else collectPaths(p.expr(), paths);
+        }
+        case Expr.Call c -> {
+            collectPaths(c.expr(), paths);
+            for (Expr param : c.params()) collectPaths(param, paths);
+        }
+        case Expr.Ternary t -> {
+            collectPaths(t.test(), paths);
+            collectPaths(t.ifTrue(), paths);
+            collectPaths(t.ifFalse(), paths);
+        }
+        case Expr.Scope s -> collectPaths(s.body(), paths);
+        case Expr.Shared s -> collectPaths(s.expr(), paths);
+        }
+    }
+
+    /**
+     * @return The path of a chain of properties on a variable, or {@code null}
+     *         if the chain starts with something else.
+     */
+    private static String pathOf(Expr expr) {
+        return switch (expr) {
+        case Expr.Variable v -> v.name();
+        case Expr.Slot s -> s.name();
+        case Expr.Shared s -> pathOf(s.expr());
+        case Expr.Property p -> {
+            String parent = pathOf(p.expr());
+            yield parent != null ? parent + "." + p.name() : null;
+        }
+        default -> null;
+        };
+    }
+}
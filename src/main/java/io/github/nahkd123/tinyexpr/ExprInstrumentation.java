@@ -0,0 +1,171 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.function.Function;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * <p>
+ * Optional instrumentation of parsing and evaluation. Each parse or evaluation
+ * that goes through this class is timed, reported to an {@link ExprMetrics}
+ * and emitted as a JDK Flight Recorder event ({@code tinyexpr.Parse} and
+ * {@code tinyexpr.Eval}), keyed by an expression id chosen by the caller.
+ * </p>
+ * <p>
+ * Nothing in {@link ExprParser} or {@link Expr} is instrumented. Only the
+ * expressions that are parsed with {@link #parse(String, CharSequence)} or
+ * wrapped with {@link #wrap(String, Expr)} are measured, so applications that
+ * don't create an instrumentation don't pay for it. To switch instrumentation
+ * on and off, wrap expressions only when it is on:
+ * </p>
+ *
+ * <pre>
+ * CompiledExpr compiled = instrumentation != null ? instrumentation.wrap(id, expr) : expr::eval;
+ * </pre>
+ *
+ * @see ExprMetrics.Recorder
+ */
+public final class ExprInstrumentation {
+    private final ExprMetrics metrics;
+    private final boolean events;
+
+    /**
+     * <p>
+     * Create a new instrumentation.
+     * </p>
+     *
+     * @param metrics The metrics receiver, or {@code null} to only emit events.
+     * @param events  Whether to emit JDK Flight Recorder events. Events are
+     *                only recorded while a recording has them enabled.
+     */
+    public ExprInstrumentation(ExprMetrics metrics, boolean events) {
+        this.metrics = metrics;
+        this.events = events;
+    }
+
+    public ExprInstrumentation(ExprMetrics metrics) {
+        this(metrics, true);
+    }
+
+    public ExprMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * <p>
+     * Parse and measure the expression.
+     * </p>
+     *
+     * @param id        The expression id.
+     * @param input     The input.
+     * @param optimizer The optimizer, or {@code null} to skip optimization.
+     * @return The parsed expression.
+     * @see ExprParser#parse(CharSequence, ExprOptimizer)
+     */
+    public Expr parse(String id, CharSequence input, ExprOptimizer optimizer) {
+        ParseEvent event = events ? new ParseEvent() : null;
+        if (event != null) event.begin();
+        long start = System.nanoTime();
+        boolean failed = true;
+
+        try {
+            Expr expr = ExprParser.parse(input, optimizer);
+            failed = false;
+            return expr;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            if (metrics != null) metrics.recordParse(id, nanos, failed);
+
+            if (event != null && event.shouldCommit()) {
+                event.id = id;
+                event.length = input.length();
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    public Expr parse(String id, CharSequence input) {
+        return parse(id, input, null);
+    }
+
+    /**
+     * <p>
+     * Wrap the expression so that each evaluation is measured.
+     * </p>
+     *
+     * @param id   The expression id.
+     * @param expr The expression.
+     * @return The wrapped expression.
+     */
+    public CompiledExpr wrap(String id, Expr expr) {
+        return wrap(id, (CompiledExpr) expr::eval);
+    }
+
+    /**
+     * <p>
+     * Wrap the compiled expression so that each evaluation is measured.
+     * </p>
+     *
+     * @param id       The expression id.
+     * @param compiled The compiled expression.
+     * @return The wrapped expression.
+     * @see ExprCompiler#compile(Expr)
+     */
+    public CompiledExpr wrap(String id, CompiledExpr compiled) {
+        return vars -> eval(id, compiled, vars);
+    }
+
+    private Value eval(String id, CompiledExpr compiled, Function<String, Value> vars) {
+        EvalEvent event = events ? new EvalEvent() : null;
+        if (event != null) event.begin();
+        long start = System.nanoTime();
+        boolean failed = true;
+
+        try {
+            Value value = compiled.eval(vars);
+            failed = false;
+            return value;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            if (metrics != null) metrics.recordEval(id, nanos, failed);
+
+            if (event != null && event.shouldCommit()) {
+                event.id = id;
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    @Name("tinyexpr.Parse")
+    @Label("Expression Parse")
+    @Category("TinyExpr")
+    @Description("Parsing of an expression")
+    static final class ParseEvent extends Event {
+        @Label("Expression Id")
+        String id;
+
+        @Label("Source Length")
+        int length;
+
+        @Label("Failed")
+        boolean failed;
+    }
+
+    @Name("tinyexpr.Eval")
+    @Label("Expression Evaluation")
+    @Category("TinyExpr")
+    @Description("Evaluation of an expression")
+    static final class EvalEvent extends Event {
+        @Label("Expression Id")
+        String id;
+
+        @Label("Failed")
+        boolean failed;
+    }
+}
@@ -0,0 +1,359 @@
+package io.github.nahkd123.tinyexpr;
+
+import static io.github.nahkd123.tinyexpr.ExprToken.NumberLiteral.TYPE_DECIMAL;
+import static io.github.nahkd123.tinyexpr.ExprToken.NumberLiteral.TYPE_HEXADECIMAL;
+import static io.github.nahkd123.tinyexpr.ExprToken.NumberLiteral.TYPE_OCTAL;
+
+import io.github.nahkd123.tinyexpr.ExprToken.Keyword;
+
+/**
+ * <p>
+ * Cursor over the tokens of an input. Each call to {@link #next()} moves to
+ * the next token, which is described by its {@link #type()} and offsets in the
+ * input, without creating {@link ExprToken} objects. Operators are picked by
+ * their first character, and number literals can be read directly as
+ * primitives with {@link #longValue()} and {@link #doubleValue()}.
+ * </p>
+ * <p>
+ * The tokens are the same as the ones produced by
+ * {@link ExprToken#tokenize(CharSequence, int, int, java.util.function.Consumer)},
+ * which is implemented with this class. Use {@link #token()} to get the
+ * current token as {@link ExprToken}.
+ * </p>
+ *
+ * @see #next()
+ */
+public final class ExprLexer {
+    public enum TokenType {
+        KEYWORD,
+        SYMBOL,
+        STRING,
+        NUMBER
+    }
+
+    private final CharSequence input;
+    private final int end;
+    private final CharCollector buf = new CharCollector(32);
+    private int position;
+    private TokenType type = null;
+    private int tokenStart, tokenEnd;
+    private Keyword keyword;
+    private int numberType, intgStart, intgEnd, fracStart, fracEnd;
+
+    public ExprLexer(CharSequence input, int start, int end) {
+        this.input = input;
+        this.position = start;
+        this.end = end;
+    }
+
+    public ExprLexer(CharSequence input) {
+        this(input, 0, input.length());
+    }
+
+    /**
+     * <p>
+     * Move to the next token.
+     * </p>
+     *
+     * @return {@code false} if there are no more tokens.
+     * @throws IllegalArgumentException if the input can't be tokenized.
+     */
+    public boolean next() {
+        while (position < end && Character.isWhitespace(input.charAt(position))) position++;
+
+        if (position >= end) {
+            type = null;
+            return false;
+        }
+
+        tokenStart = position;
+        char ch = input.charAt(position);
+
+        if (ch == '0') {
+            lexZero();
+        } else if ((ch >= '1' && ch <= '9')
+            || (ch == '.' && position + 1 < end && isDigit(input.charAt(position + 1), TYPE_DECIMAL))) {
+            lexDecimal(ch);
+        } else if (lexKeyword(ch)) {
+            type = TokenType.KEYWORD;
+        } else if (Character.isJavaIdentifierStart(ch)) {
+            position++;
+            while (position < end && Character.isJavaIdentifierPart(input.charAt(position))) position++;
+            type = TokenType.SYMBOL;
+        } else if (ch == '"' || ch == '\'') {
+            lexString(ch);
+        } else {
+            throw new IllegalArgumentException("Unable to parse '%s' at index %d in '%s'"
+                .formatted(ch, position, input));
+        }
+
+        tokenEnd = position;
+        return true;
+    }
+
+    private void lexZero() {
+        position++;
+        numberType = TYPE_DECIMAL;
+        intgStart = tokenStart;
+        intgEnd = tokenStart + 1;
+        fracStart = fracEnd = position;
+        type = TokenType.NUMBER;
+        if (position >= end) return;
+
+        char ch = input.charAt(position);
+
+        if (ch >= '0' && ch <= '7') {
+            numberType = TYPE_OCTAL;
+            lexDigits(position++, false);
+        } else if (ch == 'x') {
+            numberType = TYPE_HEXADECIMAL;
+            lexDigits(++position, false);
+        } else if (ch == '.') {
+            lexDigits(++position, true);
+        }
+    }
+
+    private void lexDecimal(char first) {
+        numberType = TYPE_DECIMAL;
+        type = TokenType.NUMBER;
+
+        if (first == '.') {
+            intgStart = intgEnd = position;
+            lexDigits(++position, true);
+        } else {
+            lexDigits(position++, false);
+        }
+    }
+
+    /**
+     * <p>
+     * Consume the digits of a number literal, and at most one {@code .} if
+     * {@code seenDot} is {@code false}. The digits before the {@code .} are the
+     * integer part, and the digits after are the fraction.
+     * </p>
+     */
+    private void lexDigits(int digitsStart, boolean seenDot) {
+        while (position < end) {
+            char ch = input.charAt(position);
+
+            if (isDigit(ch, numberType)) {
+                position++;
+            } else if (!seenDot && ch == '.') {
+                intgStart = digitsStart;
+                intgEnd = position;
+                seenDot = true;
+                digitsStart = ++position;
+            } else {
+                break;
+            }
+        }
+
+        if (seenDot) {
+            fracStart = digitsStart;
+            fracEnd = position;
+        } else {
+            intgStart = digitsStart;
+            intgEnd = position;
+            fracStart = fracEnd = position;
+        }
+    }
+
+    private static boolean isDigit(char ch, int numberType) {
+        return switch (numberType) {
+        case TYPE_OCTAL -> ch >= '0' && ch <= '7';
+        case TYPE_HEXADECIMAL -> (ch >= '0' && ch <= '9') || (ch >= 'a' && ch <= 'f') || (ch >= 'A' && ch <= 'F');
+        default -> ch >= '0' && ch <= '9';
+        };
+    }
+
+    private boolean lexKeyword(char ch) {
+        char next = position + 1 < end ? input.charAt(position + 1) : '\0';
+        keyword = switch (ch) {
+        case '+' -> Keyword.ADD;
+        case '-' -> Keyword.SUB;
+        case '*' -> Keyword.MUL;
+        case '/' -> Keyword.DIV;
+        case '<' -> next == '<' ? Keyword.SHL : next == '=' ? Keyword.LE : Keyword.LT;
+        case '>' -> next == '>' ? Keyword.SHR : next == '=' ? Keyword.GE : Keyword.GT;
+        case '=' -> next == '=' ? Keyword.EQ : null;
+        case '!' -> next == '=' ? Keyword.NE : Keyword.NOT;
+        case '&' -> next == '&' ? Keyword.LAND : Keyword.AND;
+        case '|' -> next == '|' ? Keyword.LOR : Keyword.OR;
+        case '^' -> Keyword.XOR;
+        case '~' -> Keyword.INVERT;
+        case '(' -> Keyword.GOPEN;
+        case ')' -> Keyword.GCLOSE;
+        case '[' -> Keyword.BOPEN;
+        case ']' -> Keyword.BCLOSE;
+        case '.' -> Keyword.PROPERTY;
+        case ',' -> Keyword.NEXT;
+        case '?' -> Keyword.TERNARY_TEST;
+        case ':' -> Keyword.TERNARY_OR;
+        default -> null;
+        };
+
+        if (keyword == null) return false;
+        position += keyword.content.length();
+        return true;
+    }
+
+    private void lexString(char terminator) {
+        boolean escaping = false;
+        buf.clear();
+        position++;
+
+        while (position < end && (escaping || input.charAt(position) != terminator)) {
+            char ch = input.charAt(position);
+
+            if (escaping) {
+                buf.push(switch (ch) {
+                case 't' -> '\t';
+                case 'n' -> '\n';
+                case 'r' -> '\r';
+                default -> ch;
+                });
+                escaping = false;
+            } else if (ch == '\\') {
+                escaping = true;
+            } else {
+                buf.push(ch);
+            }
+
+            position++;
+        }
+
+        if (position >= end) throw new IllegalArgumentException("Expecting '%s' but found end of input"
+            .formatted(terminator));
+
+        position++;
+        type = TokenType.STRING;
+    }
+
+    /**
+     * <p>
+     * Get the type of the current token.
+     * </p>
+     *
+     * @return The token type, or {@code null} if {@link #next()} was not called
+     *         or returned {@code false}.
+     */
+    public TokenType type() {
+        return type;
+    }
+
+    /**
+     * @return The index of the first character of the current token.
+     */
+    public int tokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * @return The index after the last character of the current token.
+     */
+    public int tokenEnd() {
+        return tokenEnd;
+    }
+
+    /**
+     * @return The keyword if the current token is {@link TokenType#KEYWORD}.
+     */
+    public Keyword keyword() {
+        return type == TokenType.KEYWORD ? keyword : null;
+    }
+
+    /**
+     * <p>
+     * Get the name of a {@link TokenType#SYMBOL} token, or the decoded value of
+     * a {@link TokenType#STRING} token.
+     * </p>
+     *
+     * @return The text of the current token.
+     */
+    public String text() {
+        return type == TokenType.STRING ? buf.toString() : input.subSequence(tokenStart, tokenEnd).toString();
+    }
+
+    /**
+     * @return One of the {@code TYPE_} constants in
+     *         {@link ExprToken.NumberLiteral} for {@link TokenType#NUMBER}
+     *         tokens.
+     */
+    public int numberType() {
+        return numberType;
+    }
+
+    /**
+     * @return {@code true} if the current number literal does not have any
+     *         digit after the {@code .}, such as {@code 12} or {@code 12.}.
+     */
+    public boolean isInteger() {
+        return fracStart == fracEnd;
+    }
+
+    /**
+     * <p>
+     * Parse the integer part of the current number literal.
+     * </p>
+     *
+     * @return The integer part.
+     * @throws NumberFormatException if the integer part does not fit in 64 bits.
+     */
+    public long longValue() {
+        return parseInteger(input, intgStart, intgEnd, radix(numberType));
+    }
+
+    /**
+     * <p>
+     * Parse the current number literal.
+     * </p>
+     *
+     * @return The value of the literal.
+     * @throws NumberFormatException if a part does not fit in 64 bits.
+     */
+    public double doubleValue() {
+        int radix = radix(numberType);
+        long intg = parseInteger(input, intgStart, intgEnd, radix);
+        if (isInteger()) return intg;
+        return addFraction(intg, input, fracStart, fracEnd, radix);
+    }
+
+    /**
+     * <p>
+     * Create the {@link ExprToken} for the current token.
+     * </p>
+     *
+     * @return The token.
+     */
+    public ExprToken token() {
+        return switch (type) {
+        case KEYWORD -> keyword;
+        case SYMBOL -> new ExprToken.Symbol(text());
+        case STRING -> new ExprToken.StringLiteral(buf.toString());
+        case NUMBER -> new ExprToken.NumberLiteral(
+            input.subSequence(intgStart, intgEnd).toString(),
+            input.subSequence(fracStart, fracEnd).toString(),
+            numberType);
+        };
+    }
+
+    static int radix(int numberType) {
+        return switch (numberType) {
+        case TYPE_OCTAL -> 8;
+        case TYPE_HEXADECIMAL -> 16;
+        default -> 10;
+        };
+    }
+
+    static long parseInteger(CharSequence digits, int start, int end, int radix) {
+        return start == end ? 0L : Long.parseUnsignedLong(digits, start, end, radix);
+    }
+
+    static double addFraction(long intg, CharSequence digits, int start, int end, int radix) {
+        long frac = Long.parseUnsignedLong(digits, start, end, radix);
+        double fracMax = radix == 10
+            ? Math.pow(10, end - start)
+            : 1 << ((end - start) * (radix == 16 ? 4 : 3));
+        return intg + frac / fracMax;
+    }
+}
@@ -0,0 +1,220 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ * Load many expressions, one per line, and pass each parsed expression to a
+ * consumer as soon as its line is read. Blank lines are skipped. Memory usage
+ * only depends on the longest line, not on the size of the input.
+ * </p>
+ * <p>
+ * Files are memory-mapped in windows and parsed straight from the mapped bytes
+ * without decoding them into {@link String}s first. Files must be UTF-8 (or
+ * plain ASCII). Lines with non-ASCII characters are decoded before parsing.
+ * </p>
+ *
+ * @see #load(Reader, Consumer)
+ * @see #load(Path, Consumer)
+ */
+public final class ExprLoader {
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+    private static final int CHUNK_SIZE = 8192;
+
+    private final ExprOptimizer optimizer;
+    private final int windowSize;
+
+    /**
+     * <p>
+     * Create a new loader.
+     * </p>
+     *
+     * @param optimizer The optimizer to apply to each expression, or
+     *                  {@code null} to skip optimization.
+     */
+    public ExprLoader(ExprOptimizer optimizer) {
+        this(optimizer, WINDOW_SIZE);
+    }
+
+    public ExprLoader() {
+        this(null);
+    }
+
+    ExprLoader(ExprOptimizer optimizer, int windowSize) {
+        this.optimizer = optimizer;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * <p>
+     * Load expressions from the reader until the end of input. The reader is
+     * not closed.
+     * </p>
+     *
+     * @param reader   The reader.
+     * @param consumer The consumer of parsed expressions.
+     * @return Number of loaded expressions.
+     * @throws IOException              if the reader throws.
+     * @throws IllegalArgumentException if a line can't be parsed. The message
+     *                                  includes the line number.
+     */
+    public long load(Reader reader, Consumer<Expr> consumer) throws IOException {
+        char[] chunk = new char[CHUNK_SIZE];
+        char[] line = new char[256];
+        int length = 0;
+        long lineNumber = 0, count = 0;
+        int read;
+
+        while ((read = reader.read(chunk)) != -1) {
+            for (int i = 0; i < read; i++) {
+                char ch = chunk[i];
+
+                if (ch == '\n') {
+                    count += emit(CharBuffer.wrap(line, 0, length), ++lineNumber, consumer);
+                    length = 0;
+                    continue;
+                }
+
+                if (length == line.length) {
+                    char[] grown = new char[line.length * 2];
+                    System.arraycopy(line, 0, grown, 0, length);
+                    line = grown;
+                }
+
+                line[length++] = ch;
+            }
+        }
+
+        if (length > 0) count += emit(CharBuffer.wrap(line, 0, length), ++lineNumber, consumer);
+        return count;
+    }
+
+    /**
+     * <p>
+     * Load expressions from a UTF-8 file by memory-mapping it.
+     * </p>
+     *
+     * @param path     The path to the file.
+     * @param consumer The consumer of parsed expressions.
+     * @return Number of loaded expressions.
+     * @throws IOException              if the file can't be read.
+     * @throws IllegalArgumentException if a line can't be parsed. The message
+     *                                  includes the line number.
+     */
+    public long load(Path path, Consumer<Expr> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size(), position = 0;
+            long lineNumber = 0, count = 0;
+            int windowSize = this.windowSize;
+
+            while (position < size) {
+                int length = (int) Math.min(size - position, windowSize);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean last = position + length >= size;
+                int lineStart = 0, high = 0;
+
+                for (int i = 0; i < length; i++) {
+                    byte b = window.get(i);
+                    high |= b;
+
+                    if (b == '\n') {
+                        count += emit(line(window, lineStart, i, high < 0), ++lineNumber, consumer);
+                        lineStart = i + 1;
+                        high = 0;
+                    }
+                }
+
+                if (last && lineStart < length) {
+                    count += emit(line(window, lineStart, length, high < 0), ++lineNumber, consumer);
+                    lineStart = length;
+                }
+
+                if (lineStart == 0 && !last) {
+                    // A single line longer than the window
+                    if (windowSize == MAX_WINDOW_SIZE)
+                        throw new IOException("Line %d is too long".formatted(lineNumber + 1));
+                    windowSize = (int) Math.min(MAX_WINDOW_SIZE, 2L * windowSize);
+                    continue;
+                }
+
+                // The partial line at the end is mapped again with the next window
+                position += lineStart;
+                windowSize = this.windowSize;
+            }
+
+            return count;
+        }
+    }
+
+    private static CharSequence line(ByteBuffer buffer, int start, int end, boolean decode) {
+        if (decode) return StandardCharsets.UTF_8.decode(buffer.slice(start, end - start));
+        return new ByteCharSequence(buffer, start, end);
+    }
+
+    private int emit(CharSequence line, long lineNumber, Consumer<Expr> consumer) {
+        int length = line.length();
+        boolean blank = true;
+
+        for (int i = 0; i < length && blank; i++) blank = Character.isWhitespace(line.charAt(i));
+        if (blank) return 0;
+
+        Expr expr;
+
+        try {
+            expr = ExprParser.parse(line, 0, length, optimizer);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Unable to parse line %d: %s".formatted(lineNumber, e.getMessage()), e);
+        }
+
+        consumer.accept(expr);
+        return 1;
+    }
+
+    /**
+     * <p>
+     * View of ASCII bytes as characters, without decoding them.
+     * </p>
+     */
+    private static final class ByteCharSequence implements CharSequence {
+        private final ByteBuffer buffer;
+        private final int start, end;
+
+        ByteCharSequence(ByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(start + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new ByteCharSequence(buffer, this.start + start, this.start + end);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
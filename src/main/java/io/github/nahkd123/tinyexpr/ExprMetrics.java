@@ -0,0 +1,170 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Receiver of parse and evaluation measurements from
+ * {@link ExprInstrumentation}, keyed by the expression id that was given when
+ * parsing or wrapping the expression. Implementations are called from every
+ * thread that parses or evaluates, so they must be thread-safe, and should be
+ * cheap because they are called on every evaluation.
+ * </p>
+ * <p>
+ * {@link Recorder} keeps counters and latency histograms in memory. Other
+ * implementations can forward the measurements to a metrics library.
+ * </p>
+ *
+ * @see ExprInstrumentation
+ */
+public interface ExprMetrics {
+    /**
+     * <p>
+     * Record a parse.
+     * </p>
+     *
+     * @param id     The expression id.
+     * @param nanos  Time spent parsing, in nanoseconds.
+     * @param failed Whether the parser threw an exception.
+     */
+    void recordParse(String id, long nanos, boolean failed);
+
+    /**
+     * <p>
+     * Record an evaluation.
+     * </p>
+     *
+     * @param id     The expression id.
+     * @param nanos  Time spent evaluating, in nanoseconds.
+     * @param failed Whether the evaluation threw an exception.
+     */
+    void recordEval(String id, long nanos, boolean failed);
+
+    /**
+     * <p>
+     * In-memory metrics. Each expression id has its own counters and latency
+     * histograms, where bucket {@code i} counts the latencies from
+     * {@code 2^(i-1)} (inclusive) to {@code 2^i} (exclusive) nanoseconds.
+     * </p>
+     *
+     * @see #stats(String)
+     */
+    final class Recorder implements ExprMetrics {
+        public static final int BUCKETS = 64;
+
+        private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+        private static final class Entry {
+            final LongAdder parseFailures = new LongAdder();
+            final LongAdder evalFailures = new LongAdder();
+            final AtomicLongArray parseLatencies = new AtomicLongArray(BUCKETS);
+            final AtomicLongArray evalLatencies = new AtomicLongArray(BUCKETS);
+        }
+
+        /**
+         * <p>
+         * Metrics of a single expression.
+         * </p>
+         *
+         * @param parseLatencies The histogram of parse latencies.
+         * @param parseFailures  Number of parses that failed.
+         * @param evalLatencies  The histogram of evaluation latencies.
+         * @param evalFailures   Number of evaluations that failed.
+         */
+        public record Stats(Histogram parseLatencies, long parseFailures, Histogram evalLatencies, long evalFailures) {
+        }
+
+        /**
+         * <p>
+         * Snapshot of a latency histogram.
+         * </p>
+         *
+         * @param buckets Number of latencies in each bucket.
+         */
+        public record Histogram(long[] buckets) {
+            public long count() {
+                long count = 0;
+                for (long bucket : buckets) count += bucket;
+                return count;
+            }
+
+            /**
+             * <p>
+             * Get an upper bound of the given percentile, which is the upper end
+             * of the bucket that contains it.
+             * </p>
+             *
+             * @param percentile The percentile, from {@code 0} to {@code 100}.
+             * @return The upper bound in nanoseconds, or {@code 0} if the
+             *         histogram is empty.
+             */
+            public long percentile(double percentile) {
+                long count = count();
+                if (count == 0) return 0;
+
+                long rank = Math.max(1, (long) Math.ceil(count * percentile / 100d));
+
+                for (int i = 0; i < buckets.length; i++) {
+                    rank -= buckets[i];
+                    if (rank <= 0) return i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << i;
+                }
+
+                return Long.MAX_VALUE;
+            }
+        }
+
+        @Override
+        public void recordParse(String id, long nanos, boolean failed) {
+            Entry entry = entry(id);
+            entry.parseLatencies.incrementAndGet(bucketOf(nanos));
+            if (failed) entry.parseFailures.increment();
+        }
+
+        @Override
+        public void recordEval(String id, long nanos, boolean failed) {
+            Entry entry = entry(id);
+            entry.evalLatencies.incrementAndGet(bucketOf(nanos));
+            if (failed) entry.evalFailures.increment();
+        }
+
+        private Entry entry(String id) {
+            Entry entry = entries.get(id);
+            return entry != null ? entry : entries.computeIfAbsent(id, key -> new Entry());
+        }
+
+        static int bucketOf(long nanos) {
+            return nanos <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+        }
+
+        /**
+         * <p>
+         * Get the metrics of an expression.
+         * </p>
+         *
+         * @param id The expression id.
+         * @return The metrics, or {@code null} if nothing was recorded for the
+         *         id.
+         */
+        public Stats stats(String id) {
+            Entry entry = entries.get(id);
+            if (entry == null) return null;
+            return new Stats(
+                snapshot(entry.parseLatencies), entry.parseFailures.sum(),
+                snapshot(entry.evalLatencies), entry.evalFailures.sum());
+        }
+
+        public Set<String> ids() {
+            return Collections.unmodifiableSet(entries.keySet());
+        }
+
+        private static Histogram snapshot(AtomicLongArray latencies) {
+            long[] buckets = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) buckets[i] = latencies.get(i);
+            return new Histogram(buckets);
+        }
+    }
+}
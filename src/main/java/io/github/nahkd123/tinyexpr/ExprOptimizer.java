@@ -0,0 +1,404 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.ListValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+import io.github.nahkd123.tinyexpr.impl.MethodValue;
+import io.github.nahkd123.tinyexpr.impl.NullValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+/**
+ * <p>
+ * Simplify expressions ahead of evaluation. The optimizer folds subtrees that
+ * only depend on constants (including calls to methods marked as pure with
+ * {@link MethodValue#markPure()}), removes identities such as {@code x * 1} or
+ * {@code !!x} when the type of {@code x} is known to make them no-ops, and
+ * drops ternary branches that can never be taken.
+ * </p>
+ * <p>
+ * Only the built-in values from the {@code impl} package are folded. Folding
+ * that throws (for example, division by zero) is left in the tree, so the
+ * error is reported when the expression is evaluated, same as without the
+ * optimizer.
+ * </p>
+ * <p>
+ * Optimizers are thread-safe and can be shared between parsers.
+ * </p>
+ *
+ * @see #optimize(Expr)
+ * @see ExprParser#parse(CharSequence, ExprOptimizer)
+ */
+public class ExprOptimizer {
+    private final Map<String, Value> constants;
+    private final LongAdder totalNodesBefore = new LongAdder();
+    private final LongAdder totalNodesAfter = new LongAdder();
+
+    /**
+     * <p>
+     * Create a new optimizer where variables with names in {@code constants} are
+     * replaced with the given values. For example, passing
+     * {@code Map.of("math", MapValue.MATH)} allows {@code math.pi / 2} to be
+     * folded.
+     * </p>
+     *
+     * @param constants Variables that never change between evaluations.
+     */
+    public ExprOptimizer(Map<String, Value> constants) {
+        this.constants = Map.copyOf(constants);
+    }
+
+    public ExprOptimizer() {
+        this(Map.of());
+    }
+
+    /**
+     * <p>
+     * Result of optimizing a single expression.
+     * </p>
+     *
+     * @param expr        The optimized expression.
+     * @param nodesBefore Number of nodes in the original expression.
+     * @param nodesAfter  Number of nodes in the optimized expression.
+     * @param folded      Number of subtrees replaced with constants.
+     * @param simplified  Number of identities and dead branches removed.
+     */
+    public record Report(Expr expr, int nodesBefore, int nodesAfter, int folded, int simplified) {
+        public int nodesRemoved() {
+            return nodesBefore - nodesAfter;
+        }
+    }
+
+    /**
+     * <p>
+     * Optimize the expression.
+     * </p>
+     *
+     * @param expr The expression to optimize.
+     * @return The optimized expression.
+     */
+    public Expr optimize(Expr expr) {
+        return optimizeWithReport(expr).expr();
+    }
+
+    /**
+     * <p>
+     * Optimize the expression and report what was removed. The node counts are
+     * also added to {@link #totalNodesBefore()} and {@link #totalNodesAfter()}.
+     * </p>
+     *
+     * @param expr The expression to optimize.
+     * @return The report, which includes the optimized expression.
+     */
+    public Report optimizeWithReport(Expr expr) {
+        Pass pass = new Pass();
+        Expr result = pass.optimize(expr);
+        int before = countNodes(expr);
+        int after = countNodes(result);
+        totalNodesBefore.add(before);
+        totalNodesAfter.add(after);
+        return new Report(result, before, after, pass.folded, pass.simplified);
+    }
+
+    /**
+     * @return Total number of nodes in all expressions given to this optimizer.
+     */
+    public long totalNodesBefore() {
+        return totalNodesBefore.sum();
+    }
+
+    /**
+     * @return Total number of nodes in all expressions produced by this
+     *         optimizer.
+     */
+    public long totalNodesAfter() {
+        return totalNodesAfter.sum();
+    }
+
+    static int countNodes(Expr expr) {
+        return switch (expr) {
+        case Expr.Const c -> 1;
+        case Expr.Variable v -> 1;
+        case Expr.Slot s -> 1;
+        case Expr.Unary u -> 1 + countNodes(u.expr());
+        case Expr.Binary b -> 1 + countNodes(b.a()) + countNodes(b.b());
+        case Expr.Logical l -> 1 + countNodes(l.a()) + countNodes(l.b());
+        case Expr.Index i -> 1 + countNodes(i.expr()) + countNodes(i.index());
+        case Expr.Property p -> 1 + countNodes(p.expr());
+        case Expr.Call c -> {
+            int count = 1 + countNodes(c.expr());
+            for (Expr param : c.params()) count += countNodes(param);
+            yield count;
+        }
+        case Expr.Ternary t -> 1 + countNodes(t.test()) + countNodes(t.ifTrue()) + countNodes(t.ifFalse());
+        case Expr.Scope s -> 1 + countNodes(s.body());
+        case Expr.Shared s -> 1 + countNodes(s.expr());
+        };
+    }
+
+    private enum Type {
+        UNKNOWN,
+        /** A {@link LongValue} that is either 0 or 1. */
+        BOOLEAN,
+        LONG,
+        DOUBLE,
+        STRING;
+
+        boolean isLong() { return this == BOOLEAN || this == LONG; }
+
+        boolean isNumber() { return isLong() || this == DOUBLE; }
+    }
+
+    private final class Pass {
+        int folded = 0;
+        int simplified = 0;
+
+        Expr optimize(Expr expr) {
+            return switch (expr) {
+            case Expr.Const c -> c;
+            case Expr.Variable v -> variable(v, v.name());
+            case Expr.Slot s -> variable(s, s.name());
+            case Expr.Unary u -> unary(u.op(), optimize(u.expr()));
+            case Expr.Binary b -> binary(b.op(), optimize(b.a()), optimize(b.b()));
+            case Expr.Logical l -> logical(l.op(), optimize(l.a()), l.b());
+            case Expr.Index i -> index(optimize(i.expr()), optimize(i.index()));
+            case Expr.Property p -> property(optimize(p.expr()), p.name());
+            case Expr.Call c -> call(c);
+            case Expr.Ternary t -> ternary(optimize(t.test()), t.ifTrue(), t.ifFalse());
+            case Expr.Scope s -> new Expr.Scope(s.temps(), optimize(s.body()));
+            case Expr.Shared s -> new Expr.Shared(s.temp(), optimize(s.expr()));
+            };
+        }
+
+        private Expr variable(Expr expr, String name) {
+            Value value = constants.get(name);
+            if (value == null) return expr;
+            folded++;
+            return new Expr.Const(value);
+        }
+
+        private Expr unary(UnaryOp op, Expr expr) {
+            if (expr instanceof Expr.Const c && isNumberOrString(c.value())) {
+                Value value = tryFold(() -> c.value().op(op));
+                if (value != null) return fold(value);
+            }
+
+            if (expr instanceof Expr.Unary inner && inner.op() == op) {
+                Type type = typeOf(inner.expr());
+                boolean identity = switch (op) {
+                case NOT -> type == Type.BOOLEAN;
+                case NEGATE -> type.isNumber();
+                case INVERT -> type.isLong();
+                };
+
+                if (identity) {
+                    simplified++;
+                    return inner.expr();
+                }
+            }
+
+            return new Expr.Unary(op, expr);
+        }
+
+        private Expr binary(BinaryOp op, Expr a, Expr b) {
+            if (a instanceof Expr.Const ca && b instanceof Expr.Const cb
+                && isNumberOrString(ca.value()) && isNumberOrString(cb.value())) {
+                Value value = tryFold(() -> ca.value().op(op, cb.value()));
+                if (value != null) return fold(value);
+            }
+
+            Type typeA = typeOf(a);
+            Type typeB = typeOf(b);
+
+            // x * 1, 1 * x, x / 1, x + 0, 0 + x, x - 0
+            // Adding 0 to double is not an identity because -0.0 + 0 is 0.0
+            Expr identity = switch (op) {
+            case MULTIPLY -> isLong(b, 1) && typeA.isNumber() ? a
+                : isLong(a, 1) && typeB.isNumber() ? b
+                : isDouble(b, 1) && typeA == Type.DOUBLE ? a
+                : isDouble(a, 1) && typeB == Type.DOUBLE ? b
+                : null;
+            case DIVIDE -> isLong(b, 1) && typeA.isNumber() ? a
+                : isDouble(b, 1) && typeA == Type.DOUBLE ? a
+                : null;
+            case ADD -> isLong(b, 0) && typeA.isLong() ? a
+                : isLong(a, 0) && typeB.isLong() ? b
+                : null;
+            case SUBTRACT -> isLong(b, 0) && typeA.isNumber() ? a
+                : isDouble(b, 0) && typeA == Type.DOUBLE ? a
+                : null;
+            default -> null;
+            };
+
+            if (identity != null) {
+                simplified++;
+                return identity;
+            }
+
+            return new Expr.Binary(op, a, b);
+        }
+
+        private Expr index(Expr expr, Expr index) {
+            if (expr instanceof Expr.Const ce && index instanceof Expr.Const ci
+                && (ce.value() instanceof StringValue || ce.value() instanceof ListValue)
+                && isNumberOrString(ci.value())) {
+                Value value = tryFold(() -> ce.value().get(ci.value().unwrapAs(int.class)));
+                if (value != null) return fold(value);
+            }
+
+            return new Expr.Index(expr, index);
+        }
+
+        private Expr property(Expr expr, String name) {
+            if (expr instanceof Expr.Const c && isBuiltin(c.value())) {
+                Value value = tryFold(() -> c.value().get(name));
+                if (value != null) return fold(value);
+            }
+
+            return new Expr.Property(expr, name);
+        }
+
+        private Expr call(Expr.Call call) {
+            Expr[] params = new Expr[call.params().length];
+            boolean constant = true;
+
+            for (int i = 0; i < params.length; i++) {
+                params[i] = optimize(call.params()[i]);
+                constant &= params[i] instanceof Expr.Const c && isBuiltin(c.value());
+            }
+
+            Expr callee = optimize(call.expr());
+
+            if (constant && callee instanceof Expr.Const c && c.value() instanceof MethodValue method
+                && method.pure()) {
+                Value[] inputs = new Value[params.length];
+                for (int i = 0; i < inputs.length; i++) inputs[i] = ((Expr.Const) params[i]).value();
+                Value value = tryFold(() -> method.call(inputs));
+                if (value != null && isBuiltin(value)) return fold(value);
+            }
+
+            return new Expr.Call(callee, params);
+        }
+
+        private Expr ternary(Expr test, Expr ifTrue, Expr ifFalse) {
+            if (test instanceof Expr.Const c
+                && (c.value() instanceof LongValue || c.value() instanceof DoubleValue)) {
+                simplified++;
+                return optimize(c.value().unwrapAs(boolean.class) ? ifTrue : ifFalse);
+            }
+
+            return new Expr.Ternary(test, optimize(ifTrue), optimize(ifFalse));
+        }
+
+        private Expr logical(BinaryOp op, Expr a, Expr b) {
+            if (a instanceof Expr.Const c
+                && (c.value() instanceof LongValue || c.value() instanceof DoubleValue)) {
+                boolean value = c.value().unwrapAs(boolean.class);
+
+                // false && x, true || x
+                if (value != (op == BinaryOp.LOGICAL_AND)) return fold(LongValue.valueOf(value));
+
+                // true && x, false || x
+                Expr result = optimize(b);
+
+                if (result instanceof Expr.Const cb
+                    && (cb.value() instanceof LongValue || cb.value() instanceof DoubleValue))
+                    return fold(LongValue.valueOf(cb.value().unwrapAs(boolean.class)));
+
+                if (typeOf(result) == Type.BOOLEAN) {
+                    simplified++;
+                    return result;
+                }
+
+                return new Expr.Logical(op, a, result);
+            }
+
+            return new Expr.Logical(op, a, optimize(b));
+        }
+
+        private Expr fold(Value value) {
+            folded++;
+            return new Expr.Const(value);
+        }
+    }
+
+    private static Value tryFold(Supplier<Value> supplier) {
+        try {
+            return supplier.get();
+        } catch (RuntimeException e) {
+            // Keep the subtree, the error will be thrown during evaluation
+            return null;
+        }
+    }
+
+    private static boolean isNumberOrString(Value value) {
+        return value instanceof LongValue || value instanceof DoubleValue || value instanceof StringValue;
+    }
+
+    private static boolean isBuiltin(Value value) {
+        return isNumberOrString(value)
+            || value instanceof ListValue
+            || value instanceof MapValue
+            || value instanceof MethodValue
+            || value instanceof NullValue;
+    }
+
+    private static boolean isLong(Expr expr, long value) {
+        return expr instanceof Expr.Const c && c.value() instanceof LongValue v && v.value() == value;
+    }
+
+    private static boolean isDouble(Expr expr, double value) {
+        return expr instanceof Expr.Const c && c.value() instanceof DoubleValue v && v.value() == value;
+    }
+
+    private static Type typeOf(Expr expr) {
+        return switch (expr) {
+        case Expr.Const c -> switch (c.value()) {
+        case LongValue v -> v.value() == 0 || v.value() == 1 ? Type.BOOLEAN : Type.LONG;
+        case DoubleValue v -> Type.DOUBLE;
+        case StringValue v -> Type.STRING;
+        default -> Type.UNKNOWN;
+        };
+        case Expr.Unary u -> {
+            Type type = typeOf(u.expr());
+            yield switch (u.op()) {
+            case NOT -> type.isNumber() ? Type.BOOLEAN : Type.UNKNOWN;
+            case NEGATE -> type.isLong() ? Type.LONG : type == Type.DOUBLE ? Type.DOUBLE : Type.UNKNOWN;
+            case INVERT -> type.isLong() ? Type.LONG : Type.UNKNOWN;
+            };
+        }
+        case Expr.Binary b -> binaryType(b.op(), typeOf(b.a()), typeOf(b.b()));
+        case Expr.Logical l -> Type.BOOLEAN;
+        case Expr.Ternary t -> {
+            Type a = typeOf(t.ifTrue());
+            Type b = typeOf(t.ifFalse());
+            if (a == b) yield a;
+            yield a.isLong() && b.isLong() ? Type.LONG : Type.UNKNOWN;
+        }
+        default -> Type.UNKNOWN;
+        };
+    }
+
+    private static Type binaryType(BinaryOp op, Type a, Type b) {
+        if (a == Type.STRING) return switch (op) {
+        case ADD -> Type.STRING;
+        case EQUALS -> Type.BOOLEAN;
+        default -> Type.UNKNOWN;
+        };
+
+        // LongValue and DoubleValue concatenate with any string, regardless of operator
+        if (a.isNumber() && b == Type.STRING) return Type.STRING;
+        if (!a.isNumber() || !b.isNumber()) return Type.UNKNOWN;
+
+        return switch (op) {
+        case EQUALS, NOT_EQUALS, LESS_THAN, LESS_THAN_OR_EQUALS, GREATER_THAN, GREATER_THAN_OR_EQUALS -> Type.BOOLEAN;
+        case ADD, SUBTRACT, MULTIPLY, DIVIDE -> a.isLong() && b.isLong() ? Type.LONG : Type.DOUBLE;
+        case AND, OR, XOR, SHIFT_LEFT, SHIFT_RIGHT -> a.isLong() && b.isLong() ? Type.LONG : Type.UNKNOWN;
+        case LOGICAL_AND, LOGICAL_OR -> Type.UNKNOWN;
+        };
+    }
+}
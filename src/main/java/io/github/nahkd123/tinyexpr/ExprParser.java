@@ -2,7 +2,6 @@ package io.github.nahkd123.tinyexpr;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 import io.github.nahkd123.tinyexpr.impl.DoubleValue;
 import io.github.nahkd123.tinyexpr.impl.LongValue;
@@ -23,11 +22,13 @@ import io.github.nahkd123.tinyexpr.impl.StringValue;
  * @see #endParse()
  * @see #valueOf(io.github.nahkd123.tinyexpr.ExprToken.NumberLiteral)
  * @see #valueOf(io.github.nahkd123.tinyexpr.ExprToken.StringLiteral)
+ * @see #setOptimizer(ExprOptimizer)
  */
 public class ExprParser {
     private int mode = 0;
     private UnaryOp unary = null;
     private List<ParseGroup> stack = new ArrayList<>();
+    private ExprOptimizer optimizer = null;
 
     private class ParseGroup {
         List<Expr> exprs = new ArrayList<>();
@@ -52,26 +53,31 @@ public class ExprParser {
 
         void push(BinaryOp operator) {
             if (exprs.size() - ops.size() == 0) throw new IllegalStateException("Must push expression next");
+            reduce(operator.getPriority());
             ops.add(operator);
         }
 
-        Expr build() {
-            if (exprs.size() == 0) throw new IllegalStateException("Group is empty");
-
-            while (exprs.size() != 1) {
-                for (Set<BinaryOp> set : BinaryOp.SORTED_COLLECTIONS) {
-                    for (int i = 0; i < exprs.size() - 1; i++) {
-                        BinaryOp op = ops.get(i);
-                        if (!set.contains(op)) continue;
-
-                        Expr left = exprs.remove(i);
-                        Expr right = exprs.remove(i);
-                        ops.remove(i);
-                        exprs.add(i, new Expr.Binary(op, left, right));
-                    }
-                }
+        /**
+         * <p>
+         * Combine pending operators with priority at least {@code priority},
+         * from right to left. Operators with the same priority are therefore
+         * left-associative. Every operator is combined exactly once, so
+         * building a group takes linear time.
+         * </p>
+         */
+        private void reduce(int priority) {
+            while (!ops.isEmpty() && ops.getLast().getPriority() >= priority) {
+                Expr right = exprs.removeLast();
+                Expr left = exprs.removeLast();
+                BinaryOp op = ops.removeLast();
+                exprs.add(op.isLogical() ? new Expr.Logical(op, left, right) : new Expr.Binary(op, left, right));
             }
+        }
 
+        Expr build() {
+            if (exprs.size() == 0) throw new IllegalStateException("Group is empty");
+            if (exprs.size() == ops.size()) throw new IllegalStateException("The last element is an operator");
+            reduce(Integer.MIN_VALUE);
             return exprs.getFirst();
         }
     }
@@ -137,6 +143,20 @@ public class ExprParser {
         }
     }
 
+    /**
+     * <p>
+     * Set the optimizer that will be applied to expressions returned from
+     * {@link #endParse()}.
+     * </p>
+     * 
+     * @param optimizer The optimizer, or {@code null} to disable optimization.
+     */
+    public void setOptimizer(ExprOptimizer optimizer) {
+        this.optimizer = optimizer;
+    }
+
+    public ExprOptimizer getOptimizer() { return optimizer; }
+
     /**
      * <p>
      * Begin parsing by setting up initial root group.
@@ -148,14 +168,17 @@ public class ExprParser {
 
     /**
      * <p>
-     * Finish parsing and build the root group into an expression.
+     * Finish parsing and build the root group into an expression. The
+     * expression is optimized if an optimizer was set with
+     * {@link #setOptimizer(ExprOptimizer)}.
      * </p>
      * 
      * @return A new expression built from root group.
      */
     public Expr endParse() {
         processTernary();
-        return stack.removeLast().build();
+        Expr expr = stack.removeLast().build();
+        return optimizer != null ? optimizer.optimize(expr) : expr;
     }
 
     /**
@@ -177,16 +200,13 @@ public class ExprParser {
         case 0: // Expecting value, symbol or any in '+-~!()'
             switch (token) {
             case ExprToken.StringLiteral literal:
-                stack.getLast().push(new Expr.Const(valueOf(literal)));
-                mode = 1;
+                pushValue(valueOf(literal));
                 break;
             case ExprToken.NumberLiteral literal:
-                stack.getLast().push(new Expr.Const(valueOf(literal)));
-                mode = 1;
+                pushValue(valueOf(literal));
                 break;
             case ExprToken.Symbol symbol:
-                stack.getLast().push(new Expr.Variable(symbol.name()));
-                mode = 1;
+                pushSymbol(symbol.name());
                 break;
             case ExprToken.Keyword.ADD:
                 mode = 2;
@@ -280,6 +300,8 @@ public class ExprParser {
             case ExprToken.Keyword.LE:
             case ExprToken.Keyword.GT:
             case ExprToken.Keyword.GE:
+            case ExprToken.Keyword.LAND:
+            case ExprToken.Keyword.LOR:
                 stack.getLast().push(switch ((ExprToken.Keyword) token) {
                 case ADD -> BinaryOp.ADD;
                 case SUB -> BinaryOp.SUBTRACT;
@@ -296,6 +318,8 @@ public class ExprParser {
                 case LE -> BinaryOp.LESS_THAN_OR_EQUALS;
                 case GT -> BinaryOp.GREATER_THAN;
                 case GE -> BinaryOp.GREATER_THAN_OR_EQUALS;
+                case LAND -> BinaryOp.LOGICAL_AND;
+                case LOR -> BinaryOp.LOGICAL_OR;
                 default -> throw new IllegalArgumentException("Unexpected value: " + token);
                 });
                 mode = 0;
@@ -305,33 +329,68 @@ public class ExprParser {
                     .formatted(token));
             }
             break;
-        case 2: { // Expecting just value
-            Expr expr = switch (token) {
-            case ExprToken.StringLiteral literal -> new Expr.Const(valueOf(literal));
-            case ExprToken.NumberLiteral literal -> new Expr.Const(valueOf(literal));
+        case 2: // Expecting just value
+            switch (token) {
+            case ExprToken.StringLiteral literal -> pushValue(valueOf(literal));
+            case ExprToken.NumberLiteral literal -> pushValue(valueOf(literal));
             default -> throw new IllegalArgumentException("Expecting value but found %s".formatted(token));
-            };
-
-            if (unary != null) {
-                expr = new Expr.Unary(unary, expr);
-                unary = null;
             }
-
-            stack.getLast().push(expr);
-            mode = 1;
             break;
-        }
         case 3: // Expecting just name
             if (!(token instanceof ExprToken.Symbol symbol))
                 throw new IllegalArgumentException("Expecting symbol but found %s".formatted(token));
-            stack.getLast().push(symbol.name());
-            mode = 1;
+            pushSymbol(symbol.name());
             break;
         default:
             throw new IllegalStateException("State not implemented: %s".formatted(mode));
         }
     }
 
+    /**
+     * <p>
+     * Push the current token of the lexer. Number literals and symbols are
+     * pushed without creating {@link ExprToken} objects, unless
+     * {@code valueOf} may be overridden by a subclass.
+     * </p>
+     */
+    void push(ExprLexer lexer) {
+        switch (lexer.type()) {
+        case KEYWORD -> push(lexer.keyword());
+        case NUMBER -> {
+            if (getClass() != ExprParser.class || (mode != 0 && mode != 2) || stack.size() == 0) {
+                push(lexer.token());
+            } else {
+                pushValue(lexer.isInteger()
+                    ? LongValue.valueOf(lexer.longValue())
+                    : DoubleValue.valueOf(lexer.doubleValue()));
+            }
+        }
+        case SYMBOL -> {
+            if ((mode != 0 && mode != 3) || stack.size() == 0) push(lexer.token());
+            else pushSymbol(lexer.text());
+        }
+        default -> push(lexer.token());
+        }
+    }
+
+    private void pushValue(Value value) {
+        Expr expr = new Expr.Const(value);
+
+        if (mode == 2 && unary != null) {
+            expr = new Expr.Unary(unary, expr);
+            unary = null;
+        }
+
+        stack.getLast().push(expr);
+        mode = 1;
+    }
+
+    private void pushSymbol(String name) {
+        if (mode == 3) stack.getLast().push(name);
+        else stack.getLast().push(new Expr.Variable(name));
+        mode = 1;
+    }
+
     private void processTernary() {
         if (!(stack.getLast() instanceof TernaryGroup ternary)) return;
         stack.removeLast();
@@ -361,21 +420,10 @@ public class ExprParser {
      * @return Runtime value.
      */
     protected Value valueOf(ExprToken.NumberLiteral literal) {
-        int base = switch (literal.type()) {
-        case ExprToken.NumberLiteral.TYPE_OCTAL -> 8;
-        case ExprToken.NumberLiteral.TYPE_HEXADECIMAL -> 16;
-        default -> 10;
-        };
-
-        long intg = literal.intg().length() == 0 ? 0L : Long.parseUnsignedLong(literal.intg(), base);
-        if (literal.frac().length() == 0) return new LongValue(intg);
-
-        long frac = Long.parseUnsignedLong(literal.frac(), base);
-        double fracMax = base == 10
-            ? Math.pow(10, literal.frac().length())
-            : 1 << (literal.frac().length() * (base == 16 ? 4 : 3));
-
-        return new DoubleValue(intg + frac / fracMax);
+        int radix = ExprLexer.radix(literal.type());
+        long intg = ExprLexer.parseInteger(literal.intg(), 0, literal.intg().length(), radix);
+        if (literal.frac().length() == 0) return LongValue.valueOf(intg);
+        return DoubleValue.valueOf(ExprLexer.addFraction(intg, literal.frac(), 0, literal.frac().length(), radix));
     }
 
     /**
@@ -389,9 +437,29 @@ public class ExprParser {
      * @return An expression parsed from given input and range.
      */
     public static Expr parse(CharSequence input, int start, int end) {
+        return parse(input, start, end, null);
+    }
+
+    /**
+     * <p>
+     * Parse input into expression with input limit, then optimize the
+     * expression.
+     * </p>
+     * 
+     * @param input     The input sequence of characters, typically
+     *                  {@link String}.
+     * @param start     The start index.
+     * @param end       The end index.
+     * @param optimizer The optimizer to apply, or {@code null} to skip
+     *                  optimization.
+     * @return An expression parsed from given input and range.
+     */
+    public static Expr parse(CharSequence input, int start, int end, ExprOptimizer optimizer) {
         ExprParser parser = new ExprParser();
+        parser.setOptimizer(optimizer);
         parser.beginParse();
-        ExprToken.tokenize(input, start, end, parser::push);
+        ExprLexer lexer = new ExprLexer(input, start, end);
+        while (lexer.next()) parser.push(lexer);
         return parser.endParse();
     }
 
@@ -406,4 +474,20 @@ public class ExprParser {
     public static Expr parse(CharSequence input) {
         return parse(input, 0, input.length());
     }
+
+    /**
+     * <p>
+     * Parse input into expression ({@link Expr}), then optimize the expression.
+     * </p>
+     * 
+     * @param input     The input sequence of characters, typically
+     *                  {@link String}.
+     * @param optimizer The optimizer to apply, or {@code null} to skip
+     *                  optimization.
+     * @return An expression parsed from given input.
+     * @see ExprOptimizer
+     */
+    public static Expr parse(CharSequence input, ExprOptimizer optimizer) {
+        return parse(input, 0, input.length(), optimizer);
+    }
 }
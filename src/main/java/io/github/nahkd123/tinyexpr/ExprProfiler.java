@@ -0,0 +1,268 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+
+/**
+ * <p>
+ * Profiling evaluator that records, for each node of an expression, the number
+ * of evaluations, the total and self time, and the bytes allocated by the node
+ * itself (not counting its children). Results give the same values as
+ * {@link Expr#eval(Function)}, only slower because every node is timed.
+ * </p>
+ * <p>
+ * Nodes are profiled by their position in the tree, so two equal subtrees are
+ * reported separately. Allocations are measured with
+ * {@link com.sun.management.ThreadMXBean} and are {@code 0} on JVMs that
+ * don't support it. A profiler is not thread-safe: each thread should use its
+ * own.
+ * </p>
+ *
+ * @see #eval(Function)
+ * @see #report()
+ * @see #foldedStacks(boolean)
+ */
+public final class ExprProfiler {
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private final Expr expr;
+    private final Node root;
+    private long childNanos, childBytes;
+
+    private static final class Node {
+        final Expr expr;
+        final Node[] children;
+        long calls, totalNanos, selfNanos, allocatedBytes;
+
+        Node(Expr expr) {
+            this.expr = expr;
+            this.children = switch (expr) {
+            case Expr.Const c -> new Node[0];
+            case Expr.Variable v -> new Node[0];
+            case Expr.Slot s -> new Node[0];
+            case Expr.Unary u -> nodes(u.expr());
+            case Expr.Binary b -> nodes(b.a(), b.b());
+            case Expr.Logical l -> nodes(l.a(), l.b());
+            case Expr.Index i -> nodes(i.expr(), i.index());
+            case Expr.Property p -> nodes(p.expr());
+            case Expr.Call c -> {
+                Node[] nodes = new Node[c.params().length + 1];
+                nodes[0] = new Node(c.expr());
+                for (int i = 0; i < c.params().length; i++) nodes[i + 1] = new Node(c.params()[i]);
+                yield nodes;
+            }
+            case Expr.Ternary t -> nodes(t.test(), t.ifTrue(), t.ifFalse());
+            case Expr.Scope s -> nodes(s.body());
+            case Expr.Shared s -> nodes(s.expr());
+            };
+        }
+
+        static Node[] nodes(Expr... exprs) {
+            Node[] nodes = new Node[exprs.length];
+            for (int i = 0; i < exprs.length; i++) nodes[i] = new Node(exprs[i]);
+            return nodes;
+        }
+    }
+
+    /**
+     * <p>
+     * Profile of a node.
+     * </p>
+     *
+     * @param expr           The node.
+     * @param calls          Number of times the node was evaluated.
+     * @param totalNanos     Time spent in the node and its children.
+     * @param selfNanos      Time spent in the node itself.
+     * @param allocatedBytes Bytes allocated by the node itself.
+     * @param children       Profiles of the children, in the order they appear
+     *                       in {@link Expr#toString()}.
+     */
+    public record NodeProfile(Expr expr, long calls, long totalNanos, long selfNanos, long allocatedBytes, List<NodeProfile> children) {
+    }
+
+    public ExprProfiler(Expr expr) {
+        this.expr = expr;
+        this.root = new Node(expr);
+    }
+
+    public Expr expr() {
+        return expr;
+    }
+
+    /**
+     * <p>
+     * Evaluate the expression and add the measurements to the profile.
+     * </p>
+     *
+     * @param vars A function that returns {@link Value} for variable with provided
+     *             name.
+     * @return The value from the evaluation.
+     * @see Expr#eval(Function)
+     */
+    public Value eval(Function<String, Value> vars) {
+        childNanos = childBytes = 0;
+        return eval(root, vars);
+    }
+
+    /**
+     * <p>
+     * Clear all measurements.
+     * </p>
+     */
+    public void reset() {
+        reset(root);
+    }
+
+    private static void reset(Node node) {
+        node.calls = node.totalNanos = node.selfNanos = node.allocatedBytes = 0;
+        for (Node child : node.children) reset(child);
+    }
+
+    private Value eval(Node node, Function<String, Value> vars) {
+        long parentNanos = childNanos, parentBytes = childBytes;
+        childNanos = childBytes = 0;
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+
+        try {
+            return evalNode(node, vars);
+        } finally {
+            long total = System.nanoTime() - start;
+            long allocated = allocatedBytes() - bytes;
+            node.calls++;
+            node.totalNanos += total;
+            node.selfNanos += total - childNanos;
+            node.allocatedBytes += allocated - childBytes;
+            childNanos = parentNanos + total;
+            childBytes = parentBytes + allocated;
+        }
+    }
+
+    private Value evalNode(Node node, Function<String, Value> vars) {
+        Node[] children = node.children;
+
+        return switch (node.expr) {
+        case Expr.Const c -> c.value();
+        case Expr.Variable v -> v.eval(vars);
+        case Expr.Slot s -> s.eval(vars);
+        case Expr.Unary u -> eval(children[0], vars).op(u.op());
+        case Expr.Binary b -> eval(children[0], vars).op(b.op(), eval(children[1], vars));
+        case Expr.Logical l -> {
+            boolean result = eval(children[0], vars).unwrapAs(boolean.class);
+            if (result == (l.op() == BinaryOp.LOGICAL_AND)) result = eval(children[1], vars).unwrapAs(boolean.class);
+            yield LongValue.valueOf(result);
+        }
+        case Expr.Index i -> i.cache().get(eval(children[0], vars), eval(children[1], vars).unwrapAs(int.class));
+        case Expr.Property p -> p.cache().get(eval(children[0], vars));
+        case Expr.Call c -> {
+            Value[] inputs = new Value[children.length - 1];
+            for (int i = 0; i < inputs.length; i++) inputs[i] = eval(children[i + 1], vars);
+            yield eval(children[0], vars).call(inputs);
+        }
+        case Expr.Ternary t -> eval(children[0], vars).unwrapAs(boolean.class)
+            ? eval(children[1], vars)
+            : eval(children[2], vars);
+        case Expr.Scope s -> eval(children[0], Frame.withTemps(vars, s.temps()));
+        case Expr.Shared s -> {
+            if (!(vars instanceof Frame frame)) yield eval(children[0], vars);
+            Value value = frame.getTemp(s.temp());
+            yield value != null ? value : frame.putTemp(s.temp(), eval(children[0], vars));
+        }
+        };
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        } catch (UnsupportedOperationException | LinkageError e) {
+            // Allocations are reported as 0
+        }
+
+        return null;
+    }
+
+    /**
+     * <p>
+     * Get the profile of the root node.
+     * </p>
+     *
+     * @return The profile.
+     */
+    public NodeProfile profile() {
+        return profile(root);
+    }
+
+    private static NodeProfile profile(Node node) {
+        List<NodeProfile> children = new ArrayList<>(node.children.length);
+        for (Node child : node.children) children.add(profile(child));
+        return new NodeProfile(node.expr, node.calls, node.totalNanos, node.selfNanos, node.allocatedBytes,
+            List.copyOf(children));
+    }
+
+    /**
+     * <p>
+     * Render the expression tree, one node per line, annotated with its
+     * measurements. Times are in milliseconds, and the percentage is the share
+     * of the self time in the total time of the root.
+     * </p>
+     *
+     * @return The report.
+     */
+    public String report() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("%7s %12s %12s %10s %12s  %s%n".formatted("self%", "self ms", "total ms", "calls",
+            "alloc B", "expression"));
+        report(root, Math.max(1, root.totalNanos), 0, builder);
+        return builder.toString();
+    }
+
+    private static void report(Node node, long rootNanos, int depth, StringBuilder builder) {
+        builder.append("%6.2f%% %12.3f %12.3f %10d %12d  %s%s%n".formatted(
+            100d * node.selfNanos / rootNanos,
+            node.selfNanos / 1e6,
+            node.totalNanos / 1e6,
+            node.calls,
+            node.allocatedBytes,
+            "  ".repeat(depth),
+            node.expr));
+        for (Node child : node.children) report(child, rootNanos, depth + 1, builder);
+    }
+
+    /**
+     * <p>
+     * Export the profile as folded stacks, the input format of flame graph
+     * tools. Each line is a path from the root to a node, with frames separated
+     * by {@code ;}, followed by the self time in nanoseconds or the self
+     * allocated bytes. Nodes with no samples are omitted.
+     * </p>
+     *
+     * @param allocations {@code true} to weight the stacks by allocated bytes
+     *                    instead of time.
+     * @return The folded stacks.
+     */
+    public String foldedStacks(boolean allocations) {
+        StringBuilder builder = new StringBuilder();
+        foldedStacks(root, "", allocations, builder);
+        return builder.toString();
+    }
+
+    private static void foldedStacks(Node node, String parent, boolean allocations, StringBuilder builder) {
+        String frame = node.expr.toString().replace(';', ',').replace('\n', ' ').replace('\r', ' ');
+        String stack = parent.isEmpty() ? frame : parent + ";" + frame;
+        long weight = allocations ? node.allocatedBytes : node.selfNanos;
+        if (weight > 0) builder.append(stack).append(' ').append(weight).append('\n');
+        for (Node child : node.children) foldedStacks(child, stack, allocations, builder);
+    }
+}
@@ -0,0 +1,558 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+import io.github.nahkd123.tinyexpr.impl.NullValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+/**
+ * <p>
+ * Binary encoding of parsed expressions, so that a corpus can be saved once
+ * and loaded without parsing it again. A corpus starts with a header and a
+ * constant pool of numbers, strings and symbols, followed by the expression
+ * trees. Nodes refer to constants, variable names and property names by their
+ * index in the pool, so each distinct value is stored only once.
+ * </p>
+ * <p>
+ * Constants that are not numbers, strings or {@code null}, such as
+ * {@link io.github.nahkd123.tinyexpr.impl.MethodValue} or {@code math} itself,
+ * are written by name and looked up in a symbol table when reading. The
+ * default symbol table has {@code math} and every function in it, like
+ * {@code math.sqrt}.
+ * </p>
+ *
+ * @see #write(List)
+ * @see #read(ByteBuffer)
+ */
+public final class ExprSerializer {
+    public static final int VERSION = 2;
+    /**
+     * <p>
+     * Maximum nesting depth of an expression tree. Deeper trees are rejected
+     * when writing, and corpora with deeper trees are rejected when reading.
+     * </p>
+     */
+    public static final int MAX_DEPTH = 1024;
+
+    // A constant, because formatting the message at the bottom of a deep stack
+    // may itself run out of stack
+    private static final String TOO_DEEP = "Expression is nested deeper than " + MAX_DEPTH;
+    public static final Map<String, Value> DEFAULT_SYMBOLS;
+
+    private static final int MAGIC = 0x54585052; // "TXPR"
+
+    private static final int POOL_LONG = 1;
+    private static final int POOL_DOUBLE = 2;
+    private static final int POOL_STRING = 3;
+    private static final int POOL_SYMBOL = 4;
+    private static final int POOL_NULL = 5;
+
+    private static final int NODE_CONST = 1;
+    private static final int NODE_VARIABLE = 2;
+    private static final int NODE_SLOT = 3;
+    private static final int NODE_UNARY = 4;
+    private static final int NODE_BINARY = 5;
+    private static final int NODE_INDEX = 6;
+    private static final int NODE_PROPERTY = 7;
+    private static final int NODE_CALL = 8;
+    private static final int NODE_TERNARY = 9;
+    private static final int NODE_SCOPE = 10;
+    private static final int NODE_SHARED = 11;
+    private static final int NODE_SHARED_REF = 12;
+    private static final int NODE_LOGICAL = 13;
+
+    private static final UnaryOp[] UNARY_OPS = UnaryOp.values();
+    private static final BinaryOp[] BINARY_OPS = BinaryOp.values();
+
+    static {
+        Map<String, Value> symbols = new LinkedHashMap<>();
+        symbols.put("math", MapValue.MATH);
+        MapValue.MATH.map().forEach((name, value) -> symbols.put("math." + name, value));
+        DEFAULT_SYMBOLS = Collections.unmodifiableMap(symbols);
+    }
+
+    private final Map<String, Value> symbols;
+    private final Map<Value, String> names = new HashMap<>();
+
+    /**
+     * <p>
+     * Create a new serializer.
+     * </p>
+     *
+     * @param symbols Values that are written by name, keyed by name.
+     */
+    public ExprSerializer(Map<String, Value> symbols) {
+        this.symbols = Map.copyOf(symbols);
+        symbols.forEach((name, value) -> names.putIfAbsent(value, name));
+    }
+
+    public ExprSerializer() {
+        this(DEFAULT_SYMBOLS);
+    }
+
+    /**
+     * <p>
+     * Encode the expressions.
+     * </p>
+     *
+     * @param exprs The expressions.
+     * @return The encoded corpus.
+     * @throws IllegalArgumentException if a constant can't be encoded and is not
+     *                                  in the symbol table, or an expression is
+     *                                  nested deeper than {@link #MAX_DEPTH}.
+     */
+    public byte[] write(List<Expr> exprs) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try {
+            write(exprs, out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * <p>
+     * Encode the expressions to the output stream. The stream is not closed.
+     * </p>
+     *
+     * @param exprs The expressions.
+     * @param out   The output stream.
+     * @throws IOException if the output stream throws.
+     */
+    public void write(List<Expr> exprs, OutputStream out) throws IOException {
+        Writer writer = new Writer();
+        Output body = new Output();
+        body.varint(exprs.size());
+        for (Expr expr : exprs) writer.write(expr, body);
+
+        Output header = new Output();
+        header.int32(MAGIC);
+        header.varint(VERSION);
+        header.varint(writer.pool.size());
+
+        for (Object entry : writer.pool) switch (entry) {
+        case Long v -> {
+            header.write(POOL_LONG);
+            header.int64(v);
+        }
+        case Double v -> {
+            header.write(POOL_DOUBLE);
+            header.int64(Double.doubleToRawLongBits(v));
+        }
+        case String v -> {
+            byte[] bytes = v.getBytes(StandardCharsets.UTF_8);
+            header.write(POOL_STRING);
+            header.varint(bytes.length);
+            header.write(bytes);
+        }
+        case Symbol v -> {
+            header.write(POOL_SYMBOL);
+            header.varint(v.name);
+        }
+        default -> header.write(POOL_NULL);
+        }
+
+        header.writeTo(out);
+        body.writeTo(out);
+    }
+
+    /**
+     * <p>
+     * Decode a corpus from the buffer, starting at its position.
+     * </p>
+     *
+     * @param buffer The buffer.
+     * @return The decoded expressions.
+     * @throws IllegalArgumentException if the buffer does not contain a corpus,
+     *                                  is corrupt or refers to an unknown
+     *                                  symbol.
+     */
+    public List<Expr> read(ByteBuffer buffer) {
+        try {
+            return new Reader(buffer.duplicate()).read();
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Unexpected end of corpus", e);
+        }
+    }
+
+    /**
+     * <p>
+     * Decode a corpus by memory-mapping the file.
+     * </p>
+     *
+     * @param path The path to the file.
+     * @return The decoded expressions.
+     * @throws IOException if the file can't be read.
+     */
+    public List<Expr> read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private record Symbol(int name) {
+    }
+
+    private record Key(Class<?> type, Object value) {
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+        void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+
+            write(value);
+        }
+
+        void int32(int value) {
+            for (int shift = 24; shift >= 0; shift -= 8) write(value >>> shift);
+        }
+
+        void int64(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) write((int) (value >>> shift));
+        }
+    }
+
+    private final class Writer {
+        final List<Object> pool = new ArrayList<>();
+        final Map<Key, Integer> indices = new HashMap<>();
+        /**
+         * <p>
+         * Shared nodes written in the current scope, {@code null} outside of
+         * scopes. Like {@link Reader}, references are only resolved within the
+         * scope, so the same scope can appear several times in a corpus.
+         * </p>
+         */
+        Map<Expr.Shared, Boolean> written = null;
+        int depth = 0;
+
+        int index(Object entry) {
+            Object value = entry instanceof Double d ? Double.doubleToRawLongBits(d) : entry;
+            return indices.computeIfAbsent(new Key(entry.getClass(), value), key -> {
+                pool.add(entry);
+                return pool.size() - 1;
+            });
+        }
+
+        int constant(Value value) {
+            return switch (value) {
+            case LongValue v -> index(v.value());
+            case DoubleValue v -> index(v.value());
+            case StringValue v -> index(v.value());
+            case NullValue v -> index(v);
+            default -> {
+                String name = names.get(value);
+                if (name == null) throw new IllegalArgumentException("Value %s is not in the symbol table"
+                    .formatted(value));
+                yield index(new Symbol(index(name)));
+            }
+            };
+        }
+
+        void write(Expr expr, Output out) {
+            if (++depth > MAX_DEPTH) throw new IllegalArgumentException(TOO_DEEP);
+            writeNode(expr, out);
+            depth--;
+        }
+
+        void writeNode(Expr expr, Output out) {
+            switch (expr) {
+            case Expr.Const c -> {
+                int index = constant(c.value());
+                out.write(NODE_CONST);
+                out.varint(index);
+            }
+            case Expr.Variable v -> {
+                out.write(NODE_VARIABLE);
+                out.varint(index(v.name()));
+            }
+            case Expr.Slot s -> {
+                out.write(NODE_SLOT);
+                out.varint(s.slot());
+                out.varint(index(s.name()));
+            }
+            case Expr.Unary u -> {
+                out.write(NODE_UNARY);
+                out.write(u.op().ordinal());
+                write(u.expr(), out);
+            }
+            case Expr.Binary b -> {
+                out.write(NODE_BINARY);
+                out.write(b.op().ordinal());
+                write(b.a(), out);
+                write(b.b(), out);
+            }
+            case Expr.Logical l -> {
+                out.write(NODE_LOGICAL);
+                out.write(l.op().ordinal());
+                write(l.a(), out);
+                write(l.b(), out);
+            }
+            case Expr.Index i -> {
+                out.write(NODE_INDEX);
+                write(i.expr(), out);
+                write(i.index(), out);
+            }
+            case Expr.Property p -> {
+                out.write(NODE_PROPERTY);
+                out.varint(index(p.name()));
+                write(p.expr(), out);
+            }
+            case Expr.Call c -> {
+                out.write(NODE_CALL);
+                out.varint(c.params().length);
+                for (Expr param : c.params()) write(param, out);
+                write(c.expr(), out);
+            }
+            case Expr.Ternary t -> {
+                out.write(NODE_TERNARY);
+                write(t.test(), out);
+                write(t.ifTrue(), out);
+                write(t.ifFalse(), out);
+            }
+            case Expr.Scope s -> {
+                out.write(NODE_SCOPE);
+                out.varint(s.temps());
+                Map<Expr.Shared, Boolean> outer = written;
+                written = new IdentityHashMap<>();
+                write(s.body(), out);
+                written = outer;
+            }
+            case Expr.Shared s -> {
+                // The same shared node appears several times, but only needs to be written once
+                if (written != null && written.put(s, true) != null) {
+                    out.write(NODE_SHARED_REF);
+                    out.varint(s.temp());
+                } else {
+                    out.write(NODE_SHARED);
+                    out.varint(s.temp());
+                    write(s.expr(), out);
+                }
+            }
+            }
+        }
+    }
+
+    private final class Reader {
+        final ByteBuffer buffer;
+        Object[] pool;
+        Value[] constants;
+        List<Expr.Shared[]> scopes = new ArrayList<>();
+        int depth = 0;
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        int varint() {
+            int value = 0;
+
+            for (int shift = 0;; shift += 7) {
+                byte b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) return value;
+                if (shift >= 28) throw new IllegalArgumentException("Malformed number at %d"
+                    .formatted(buffer.position() - 1));
+            }
+        }
+
+        /**
+         * <p>
+         * Read the number of items that follow. Each item takes at least 1 byte,
+         * so a corrupt count is found before allocating anything for it.
+         * </p>
+         */
+        int count() {
+            int count = varint();
+            if (count < 0 || count > buffer.remaining()) throw new IllegalArgumentException("Invalid count %d at %d"
+                .formatted(count, buffer.position()));
+            return count;
+        }
+
+        int index() {
+            int index = varint();
+            if (index < 0 || index >= pool.length) throw new IllegalArgumentException("Invalid constant index %d"
+                .formatted(index));
+            return index;
+        }
+
+        UnaryOp unaryOp() {
+            int ordinal = buffer.get();
+            if (ordinal < 0 || ordinal >= UNARY_OPS.length) throw new IllegalArgumentException("Unknown unary operator %d"
+                .formatted(ordinal));
+            return UNARY_OPS[ordinal];
+        }
+
+        BinaryOp binaryOp() {
+            int ordinal = buffer.get();
+            if (ordinal < 0 || ordinal >= BINARY_OPS.length) throw new IllegalArgumentException("Unknown binary operator %d"
+                .formatted(ordinal));
+            return BINARY_OPS[ordinal];
+        }
+
+        List<Expr> read() {
+            if (buffer.remaining() < 4 || buffer.getInt() != MAGIC)
+                throw new IllegalArgumentException("Not a TinyExpr corpus");
+
+            int version = varint();
+            if (version > VERSION) throw new IllegalArgumentException("Unsupported corpus version %d (expecting %d)"
+                .formatted(version, VERSION));
+
+            pool = new Object[count()];
+            constants = new Value[pool.length];
+
+            for (int i = 0; i < pool.length; i++) pool[i] = switch (buffer.get()) {
+            case POOL_LONG -> buffer.getLong();
+            case POOL_DOUBLE -> Double.longBitsToDouble(buffer.getLong());
+            case POOL_STRING -> {
+                byte[] bytes = new byte[count()];
+                buffer.get(bytes);
+                yield new String(bytes, StandardCharsets.UTF_8);
+            }
+            case POOL_SYMBOL -> new Symbol(varint());
+            case POOL_NULL -> NullValue.NULL;
+            default -> throw new IllegalArgumentException("Unknown constant tag at %d".formatted(buffer.position() - 1));
+            };
+
+            int count = count();
+            List<Expr> exprs = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) exprs.add(expr());
+            return exprs;
+        }
+
+        String string(int index) {
+            if (!(pool[index] instanceof String string)) throw new IllegalArgumentException("Constant %d is not a string"
+                .formatted(index));
+            return string;
+        }
+
+        Value constant(int index) {
+            Value value = constants[index];
+            if (value != null) return value;
+
+            value = switch (pool[index]) {
+            case Long v -> LongValue.valueOf(v);
+            case Double v -> DoubleValue.valueOf(v);
+            case String v -> new StringValue(v);
+            case Symbol v -> {
+                if (v.name < 0 || v.name >= pool.length) throw new IllegalArgumentException("Invalid constant index %d"
+                    .formatted(v.name));
+                Value symbol = symbols.get(string(v.name));
+                if (symbol == null) throw new IllegalArgumentException("Unknown symbol '%s'".formatted(string(v.name)));
+                yield symbol;
+            }
+            default -> NullValue.NULL;
+            };
+
+            constants[index] = value;
+            return value;
+        }
+
+        int temp() {
+            int temp = varint();
+            int temps = scopes.isEmpty() ? Integer.MAX_VALUE : scopes.getLast().length;
+            if (temp < 0 || temp >= temps) throw new IllegalArgumentException("Invalid shared value %d".formatted(temp));
+            return temp;
+        }
+
+        Expr expr() {
+            if (++depth > MAX_DEPTH) throw new IllegalArgumentException(TOO_DEEP);
+            Expr expr = node();
+            depth--;
+            return expr;
+        }
+
+        Expr node() {
+            int tag = buffer.get();
+
+            return switch (tag) {
+            case NODE_CONST -> new Expr.Const(constant(index()));
+            case NODE_VARIABLE -> new Expr.Variable(string(index()));
+            case NODE_SLOT -> {
+                int slot = varint();
+                if (slot < 0) throw new IllegalArgumentException("Invalid slot %d".formatted(slot));
+                yield new Expr.Slot(slot, string(index()));
+            }
+            case NODE_UNARY -> {
+                UnaryOp op = unaryOp();
+                yield new Expr.Unary(op, expr());
+            }
+            case NODE_BINARY -> {
+                BinaryOp op = binaryOp();
+                Expr a = expr();
+                yield new Expr.Binary(op, a, expr());
+            }
+            case NODE_LOGICAL -> {
+                BinaryOp op = binaryOp();
+                if (op != BinaryOp.LOGICAL_AND && op != BinaryOp.LOGICAL_OR)
+                    throw new IllegalArgumentException("Operator %s is not logical".formatted(op));
+                Expr a = expr();
+                yield new Expr.Logical(op, a, expr());
+            }
+            case NODE_INDEX -> {
+                Expr target = expr();
+                yield new Expr.Index(target, expr());
+            }
+            case NODE_PROPERTY -> {
+                String name = string(index());
+                yield new Expr.Property(expr(), name);
+            }
+            case NODE_CALL -> {
+                Expr[] params = new Expr[count()];
+                for (int i = 0; i < params.length; i++) params[i] = expr();
+                yield new Expr.Call(expr(), params);
+            }
+            case NODE_TERNARY -> {
+                Expr test = expr();
+                Expr ifTrue = expr();
+                yield new Expr.Ternary(test, ifTrue, expr());
+            }
+            case NODE_SCOPE -> {
+                int temps = count();
+                scopes.add(new Expr.Shared[temps]);
+                Expr body = expr();
+                scopes.removeLast();
+                yield new Expr.Scope(temps, body);
+            }
+            case NODE_SHARED -> {
+                int temp = temp();
+                Expr.Shared shared = new Expr.Shared(temp, expr());
+                if (!scopes.isEmpty()) scopes.getLast()[temp] = shared;
+                yield shared;
+            }
+            case NODE_SHARED_REF -> {
+                int temp = temp();
+                Expr.Shared shared = scopes.isEmpty() ? null : scopes.getLast()[temp];
+                if (shared == null) throw new IllegalArgumentException("Shared value %d is used before it is defined"
+                    .formatted(temp));
+                yield shared;
+            }
+            default -> throw new IllegalArgumentException("Unknown node tag %d at %d"
+                .formatted(tag, buffer.position() - 1));
+            };
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * Variables frame for evaluating expressions bound with
+ * {@link Expr#bind(List)}. Bound variables ({@link Expr.Slot}) are loaded
+ * directly from the slots array of this frame, without looking up the
+ * variable by its name. The frame must be created with the same schema that
+ * was used to bind the expression.
+ * </p>
+ * <p>
+ * Frames are mutable and should not be shared between threads. A frame can be
+ * reused for many evaluations by updating its slots between each evaluation.
+ * </p>
+ * 
+ * @see Expr#bind(List)
+ */
+public final class Frame implements Function<String, Value> {
+    private final List<String> schema;
+    private final Value[] slots;
+    private final Function<String, Value> fallback;
+    private Value[] temps = null;
+
+    /**
+     * <p>
+     * Create a new frame.
+     * </p>
+     * 
+     * @param schema   The schema that was used to bind expressions.
+     * @param slots    The slots array, which must be as long as the schema.
+     * @param fallback A function that returns {@link Value} for variables that
+     *                 are not in the schema. Can be {@code null}.
+     */
+    public Frame(List<String> schema, Value[] slots, Function<String, Value> fallback) {
+        if (slots.length != schema.size())
+            throw new IllegalArgumentException("Expecting %d slots, but found %d"
+                .formatted(schema.size(), slots.length));
+        this.schema = schema;
+        this.slots = slots;
+        this.fallback = fallback;
+    }
+
+    public Frame(List<String> schema, Function<String, Value> fallback) {
+        this(schema, new Value[schema.size()], fallback);
+    }
+
+    public Frame(List<String> schema) {
+        this(schema, null);
+    }
+
+    public List<String> schema() {
+        return schema;
+    }
+
+    /**
+     * <p>
+     * Get the slots array. Writes to the array are visible to the next
+     * evaluation that uses this frame.
+     * </p>
+     * 
+     * @return The slots array.
+     */
+    public Value[] slots() {
+        return slots;
+    }
+
+    public Value get(int slot) {
+        return slots[slot];
+    }
+
+    public Frame set(int slot, Value value) {
+        slots[slot] = value;
+        return this;
+    }
+
+    public Frame set(String name, Value value) {
+        int slot = schema.indexOf(name);
+        if (slot == -1) throw new IllegalArgumentException("Variable '%s' is not in schema %s".formatted(name, schema));
+        slots[slot] = value;
+        return this;
+    }
+
+    Value slot(int slot, String name) {
+        // Frames created by Expr.Scope for non-frame variables do not have slots
+        return slot < slots.length ? slots[slot] : apply(name);
+    }
+
+    /**
+     * <p>
+     * Create a frame with storage for temporary values, which is used by
+     * {@link Expr.Scope} to evaluate each {@link Expr.Shared} subtree once.
+     * </p>
+     */
+    static Frame withTemps(Function<String, Value> vars, int temps) {
+        Frame frame = vars instanceof Frame parent
+            ? new Frame(parent.schema, parent.slots, parent.fallback)
+            : new Frame(List.of(), new Value[0], vars);
+        frame.temps = new Value[temps];
+        return frame;
+    }
+
+    Value getTemp(int temp) {
+        return temps != null ? temps[temp] : null;
+    }
+
+    Value putTemp(int temp, Value value) {
+        if (temps != null) temps[temp] = value;
+        return value;
+    }
+
+    @Override
+    public Value apply(String name) {
+        int slot = schema.indexOf(name);
+        if (slot != -1) return slots[slot];
+        if (fallback == null) throw new IllegalArgumentException("Variable '%s' is not in schema %s"
+            .formatted(name, schema));
+        return fallback.apply(name);
+    }
+}
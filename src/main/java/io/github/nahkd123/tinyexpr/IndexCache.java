@@ -0,0 +1,70 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.List;
+
+import io.github.nahkd123.tinyexpr.impl.ListValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+/**
+ * <p>
+ * Inline cache of an {@link Expr.Index} node. The cache remembers up to
+ * {@link #MAX_ENTRIES} receiver classes. Indexing a {@link ListValue} or a
+ * {@link StringValue} that is in the cache only costs a class check and a
+ * direct call, instead of a call to {@link Value#get(int)} that is shared by
+ * every index node of every expression. Other values are indexed with
+ * {@link Value#get(int)}.
+ * </p>
+ * <p>
+ * Caches are thread-safe.
+ * </p>
+ *
+ * @see PropertyCache
+ */
+public final class IndexCache {
+    public static final int MAX_ENTRIES = 4;
+
+    private volatile Class<?>[] types = new Class<?>[0];
+
+    /**
+     * <p>
+     * Get the element at the index. The result is the same as
+     * {@code receiver.get(index)}.
+     * </p>
+     *
+     * @param receiver The value to index.
+     * @param index    The index.
+     * @return The element.
+     */
+    public Value get(Value receiver, int index) {
+        Class<?> type = receiver.getClass();
+
+        for (Class<?> cached : types) {
+            if (cached != type) continue;
+            if (type == ListValue.class) return element(((ListValue) receiver).list(), index);
+            if (type == StringValue.class) return ((StringValue) receiver).get(index);
+            return receiver.get(index);
+        }
+
+        return miss(receiver, index);
+    }
+
+    private Value miss(Value receiver, int index) {
+        Class<?>[] types = this.types;
+
+        if (types.length < MAX_ENTRIES) {
+            Class<?>[] updated = new Class<?>[types.length + 1];
+            System.arraycopy(types, 0, updated, 0, types.length);
+            updated[types.length] = receiver.getClass();
+            // Classes added by other threads at the same time may be lost, which
+            // only means they are added again on the next miss
+            this.types = updated;
+        }
+
+        return receiver.get(index);
+    }
+
+    private static Value element(List<Value> list, int index) {
+        if (index < 0 || index >= list.size()) throw new IndexOutOfBoundsException(index);
+        return list.get(index);
+    }
+}
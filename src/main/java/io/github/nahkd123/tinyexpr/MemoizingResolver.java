@@ -0,0 +1,189 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * Variable resolver that calls the underlying resolver at most once per
+ * variable name and evaluation, no matter how many times the name appears in
+ * the expression. Resolved values are kept in a small open-addressing table
+ * that is reused by the following evaluations. Starting a new evaluation only
+ * bumps a generation counter instead of clearing the table.
+ * </p>
+ * <p>
+ * Resolvers that can look up several variables at once more cheaply (for
+ * example, a single database query) can be given all free variables of the
+ * expression up front with {@link #eval(Expr, Function)}.
+ * </p>
+ * <p>
+ * A resolver is not thread-safe. Each thread should use its own.
+ * </p>
+ *
+ * @see #eval(Expr)
+ * @see ExprDependencies#freeVariables(Expr)
+ */
+public final class MemoizingResolver implements Function<String, Value> {
+    private final Function<String, Value> resolver;
+    private String[] keys;
+    private Value[] values;
+    private int[] stamps;
+    private int generation = 1;
+    private int size = 0;
+    private Expr lastExpr;
+    private Set<String> lastVariables;
+
+    /**
+     * <p>
+     * Create a new memoizing resolver.
+     * </p>
+     *
+     * @param resolver          The underlying resolver.
+     * @param expectedVariables Expected number of distinct variables per
+     *                          evaluation. The table grows when needed.
+     */
+    public MemoizingResolver(Function<String, Value> resolver, int expectedVariables) {
+        this.resolver = resolver;
+        int capacity = Integer.highestOneBit(Math.max(4, expectedVariables) * 2 - 1) << 1;
+        keys = new String[capacity];
+        values = new Value[capacity];
+        stamps = new int[capacity];
+    }
+
+    public MemoizingResolver(Function<String, Value> resolver) {
+        this(resolver, 8);
+    }
+
+    /**
+     * <p>
+     * Forget all resolved values, so that the next lookup of each variable
+     * calls the underlying resolver again.
+     * </p>
+     */
+    public void reset() {
+        size = 0;
+
+        if (++generation == 0) {
+            // Stamps from 2^32 evaluations ago would look current again
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * <p>
+     * Start a new evaluation and evaluate the expression.
+     * </p>
+     *
+     * @param expr The expression.
+     * @return The value from the evaluation.
+     */
+    public Value eval(Expr expr) {
+        reset();
+        return expr.eval(this);
+    }
+
+    /**
+     * <p>
+     * Start a new evaluation, resolve all free variables of the expression with
+     * a single call to {@code batchResolver}, then evaluate the expression.
+     * Variables that are missing from the returned map are resolved with the
+     * underlying resolver when they are used.
+     * </p>
+     *
+     * @param expr          The expression.
+     * @param batchResolver The batch resolver, which receives the names of the
+     *                      free variables.
+     * @return The value from the evaluation.
+     * @see ExprDependencies#freeVariables(Expr)
+     */
+    public Value eval(Expr expr, Function<Set<String>, Map<String, Value>> batchResolver) {
+        reset();
+
+        if (expr != lastExpr) {
+            lastVariables = ExprDependencies.freeVariables(expr);
+            lastExpr = expr;
+        }
+
+        if (!lastVariables.isEmpty()) {
+            Map<String, Value> resolved = batchResolver.apply(lastVariables);
+            resolved.forEach(this::put);
+        }
+
+        return expr.eval(this);
+    }
+
+    /**
+     * <p>
+     * Set the value of a variable for the current evaluation, without calling
+     * the underlying resolver.
+     * </p>
+     *
+     * @param name  The variable name.
+     * @param value The value.
+     */
+    public void put(String name, Value value) {
+        int slot = find(name);
+
+        if (stamps[slot] != generation) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                slot = find(name);
+            }
+
+            keys[slot] = name;
+            stamps[slot] = generation;
+            size++;
+        }
+
+        values[slot] = value;
+    }
+
+    @Override
+    public Value apply(String name) {
+        int slot = find(name);
+        if (stamps[slot] == generation) return values[slot];
+        Value value = resolver.apply(name);
+        put(name, value);
+        return value;
+    }
+
+    /**
+     * <p>
+     * Find the slot of the name, or the empty slot where it would be inserted.
+     * Slots with an old stamp are empty.
+     * </p>
+     */
+    private int find(String name) {
+        int mask = keys.length - 1;
+        int h = name.hashCode();
+        int slot = (h ^ (h >>> 16)) & mask;
+
+        while (stamps[slot] == generation) {
+            String key = keys[slot];
+            if (key == name || key.equals(name)) return slot;
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private void grow() {
+        String[] oldKeys = keys;
+        Value[] oldValues = values;
+        int[] oldStamps = stamps;
+        keys = new String[oldKeys.length * 2];
+        values = new Value[oldKeys.length * 2];
+        stamps = new int[oldKeys.length * 2];
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStamps[i] != generation) continue;
+            int slot = find(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+            stamps[slot] = generation;
+        }
+    }
+}
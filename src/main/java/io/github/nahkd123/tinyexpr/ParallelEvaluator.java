@@ -0,0 +1,123 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>
+ * Evaluate an expression over many rows on a {@link ForkJoinPool}. The rows are
+ * split in halves until a range has at most {@code grain} rows, and each range
+ * is evaluated with {@link BatchEvaluator}. {@link Expr} trees are immutable,
+ * so all tasks share the same expression, while each range is evaluated with
+ * its own buffers.
+ * </p>
+ *
+ * @see #evalBatch(Expr, Map, int, double[])
+ */
+public final class ParallelEvaluator {
+    public static final int DEFAULT_GRAIN = 8192;
+
+    private final ForkJoinPool pool;
+    private final int grain;
+
+    /**
+     * <p>
+     * Create a new parallel evaluator.
+     * </p>
+     *
+     * @param pool  The pool to run tasks on.
+     * @param grain Maximum number of rows evaluated by a single task.
+     */
+    public ParallelEvaluator(ForkJoinPool pool, int grain) {
+        if (grain <= 0) throw new IllegalArgumentException("Grain size must be positive");
+        this.pool = pool;
+        this.grain = grain;
+    }
+
+    public ParallelEvaluator(int grain) {
+        this(ForkJoinPool.commonPool(), grain);
+    }
+
+    public ParallelEvaluator() {
+        this(DEFAULT_GRAIN);
+    }
+
+    public ForkJoinPool pool() {
+        return pool;
+    }
+
+    public int grain() {
+        return grain;
+    }
+
+    /**
+     * <p>
+     * Evaluate the expression for rows {@code 0} to {@code rows - 1} in parallel
+     * and store the results as {@code double}. See
+     * {@link BatchEvaluator#evalBatch(Expr, Map, int, double[])} for the
+     * supported columns.
+     * </p>
+     *
+     * @param expr    The expression.
+     * @param columns The columns, keyed by variable name.
+     * @param rows    Number of rows.
+     * @param out     The output array.
+     */
+    public void evalBatch(Expr expr, Map<String, ?> columns, int rows, double[] out) {
+        pool.invoke(new Task(expr, columns, 0, rows, out, null));
+    }
+
+    /**
+     * <p>
+     * Evaluate the expression for rows {@code 0} to {@code rows - 1} in parallel
+     * and store the results as {@code long}. See
+     * {@link BatchEvaluator#evalBatch(Expr, Map, int, long[])} for the supported
+     * columns.
+     * </p>
+     *
+     * @param expr    The expression.
+     * @param columns The columns, keyed by variable name.
+     * @param rows    Number of rows.
+     * @param out     The output array.
+     */
+    public void evalBatch(Expr expr, Map<String, ?> columns, int rows, long[] out) {
+        pool.invoke(new Task(expr, columns, 0, rows, null, out));
+    }
+
+    @SuppressWarnings("serial")
+    private final class Task extends RecursiveAction {
+        private final Expr expr;
+        private final Map<String, ?> columns;
+        private final int from, to;
+        private final double[] doubles;
+        private final long[] longs;
+
+        Task(Expr expr, Map<String, ?> columns, int from, int to, double[] doubles, long[] longs) {
+            this.expr = expr;
+            this.columns = columns;
+            this.from = from;
+            this.to = to;
+            this.doubles = doubles;
+            this.longs = longs;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                // Not shared with other tasks: a worker that waits on a join
+                // inside this range (for example, in a method called by the
+                // expression) may run another task in the meantime
+                BatchEvaluator evaluator = new BatchEvaluator();
+                if (doubles != null) evaluator.run(expr, columns, from, to, doubles);
+                else evaluator.run(expr, columns, from, to, longs);
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(
+                new Task(expr, columns, from, mid, doubles, longs),
+                new Task(expr, columns, mid, to, doubles, longs));
+        }
+    }
+}
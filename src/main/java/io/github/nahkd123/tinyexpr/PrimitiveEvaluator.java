@@ -0,0 +1,214 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.function.Function;
+
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+
+/**
+ * <p>
+ * Evaluate expressions with {@code long} and {@code double} primitives instead
+ * of {@link LongValue} and {@link DoubleValue}. The result of each node is kept
+ * in the fields of this evaluator, so numeric subtrees are evaluated without
+ * allocating any {@link Value}. Whenever a node produces something other than a
+ * number (strings, methods, etc), the evaluator falls back to
+ * {@link Value#op(BinaryOp, Value)} for that node, which gives the same results
+ * as {@link Expr#eval(Function)}.
+ * </p>
+ *
+ * @see Expr#evalDouble(Function)
+ * @see Expr#evalLong(Function)
+ * @see Expr#evalBoolean(Function)
+ */
+final class PrimitiveEvaluator {
+    private static final int LONG = 0;
+    private static final int DOUBLE = 1;
+    private static final int VALUE = 2;
+
+    private final Function<String, Value> vars;
+    private int kind;
+    private long l;
+    private double d;
+    private Value value;
+
+    PrimitiveEvaluator(Function<String, Value> vars) {
+        this.vars = vars;
+    }
+
+    double evalDouble(Expr expr) {
+        eval(expr);
+        return switch (kind) {
+        case LONG -> (double) l;
+        case DOUBLE -> d;
+        default -> value.unwrapAs(double.class);
+        };
+    }
+
+    long evalLong(Expr expr) {
+        eval(expr);
+        return switch (kind) {
+        case LONG -> l;
+        case DOUBLE -> (long) d;
+        default -> value.unwrapAs(long.class);
+        };
+    }
+
+    boolean evalBoolean(Expr expr) {
+        eval(expr);
+        return test();
+    }
+
+    private void eval(Expr expr) {
+        switch (expr) {
+        case Expr.Const c -> load(c.value());
+        case Expr.Unary u -> {
+            eval(u.expr());
+            unary(u.op());
+        }
+        case Expr.Binary b -> {
+            eval(b.a());
+            int aKind = kind;
+            long aL = l;
+            double aD = d;
+            Value aValue = value;
+            eval(b.b());
+            binary(b.op(), aKind, aL, aD, aValue);
+        }
+        case Expr.Logical lg -> {
+            eval(lg.a());
+            boolean result = test();
+
+            if (result == (lg.op() == BinaryOp.LOGICAL_AND)) {
+                eval(lg.b());
+                result = test();
+            }
+
+            setLong(result ? 1 : 0);
+        }
+        case Expr.Index i -> {
+            Value target = i.expr().eval(vars);
+            eval(i.index());
+            load(i.cache().get(target, switch (kind) {
+            case LONG -> (int) l;
+            case DOUBLE -> (int) d;
+            default -> value.unwrapAs(int.class);
+            }));
+        }
+        case Expr.Ternary t -> {
+            eval(t.test());
+            eval(test() ? t.ifTrue() : t.ifFalse());
+        }
+        default -> load(expr.eval(vars));
+        }
+    }
+
+    private void load(Value v) {
+        if (v instanceof LongValue x) {
+            kind = LONG;
+            l = x.value();
+        } else if (v instanceof DoubleValue x) {
+            kind = DOUBLE;
+            d = x.value();
+        } else {
+            kind = VALUE;
+            value = v;
+        }
+    }
+
+    private boolean test() {
+        return switch (kind) {
+        case LONG -> l != 0;
+        case DOUBLE -> d != 0;
+        default -> value.unwrapAs(boolean.class);
+        };
+    }
+
+    private static Value box(int kind, long l, double d, Value value) {
+        return switch (kind) {
+        case LONG -> LongValue.valueOf(l);
+        case DOUBLE -> DoubleValue.valueOf(d);
+        default -> value;
+        };
+    }
+
+    private void unary(UnaryOp op) {
+        if (kind == LONG) {
+            switch (op) {
+            case INVERT -> l = ~l;
+            case NEGATE -> l = -l;
+            case NOT -> l = l != 0 ? 0 : 1;
+            }
+            return;
+        }
+
+        if (kind == DOUBLE && op == UnaryOp.NEGATE) {
+            d = -d;
+            return;
+        }
+
+        if (kind == DOUBLE && op == UnaryOp.NOT) {
+            kind = LONG;
+            l = d != 0 ? 0 : 1;
+            return;
+        }
+
+        load(box(kind, l, d, value).op(op));
+    }
+
+    private void binary(BinaryOp op, int aKind, long aL, double aD, Value aValue) {
+        if (aKind == LONG && kind == LONG) {
+            long b = l;
+            switch (op) {
+            case ADD -> l = aL + b;
+            case SUBTRACT -> l = aL - b;
+            case MULTIPLY -> l = aL * b;
+            case DIVIDE -> l = aL / b;
+            case AND -> l = aL & b;
+            case OR -> l = aL | b;
+            case XOR -> l = aL ^ b;
+            case SHIFT_LEFT -> l = aL << b;
+            case SHIFT_RIGHT -> l = aL >> b;
+            case EQUALS -> l = aL == b ? 1 : 0;
+            case NOT_EQUALS -> l = aL != b ? 1 : 0;
+            case LESS_THAN -> l = aL < b ? 1 : 0;
+            case LESS_THAN_OR_EQUALS -> l = aL <= b ? 1 : 0;
+            case GREATER_THAN -> l = aL > b ? 1 : 0;
+            case GREATER_THAN_OR_EQUALS -> l = aL >= b ? 1 : 0;
+            }
+            return;
+        }
+
+        if (aKind != VALUE && kind != VALUE) {
+            // Mixed long and double operands are promoted to double, same as LongValue and DoubleValue
+            double a = aKind == LONG ? (double) aL : aD;
+            double b = kind == LONG ? (double) l : d;
+
+            switch (op) {
+            case ADD -> setDouble(a + b);
+            case SUBTRACT -> setDouble(a - b);
+            case MULTIPLY -> setDouble(a * b);
+            case DIVIDE -> setDouble(a / b);
+            case EQUALS -> setLong(a == b ? 1 : 0);
+            case NOT_EQUALS -> setLong(a != b ? 1 : 0);
+            case LESS_THAN -> setLong(a < b ? 1 : 0);
+            case LESS_THAN_OR_EQUALS -> setLong(a <= b ? 1 : 0);
+            case GREATER_THAN -> setLong(a > b ? 1 : 0);
+            case GREATER_THAN_OR_EQUALS -> setLong(a >= b ? 1 : 0);
+            default -> load(box(aKind, aL, aD, aValue).op(op, box(kind, l, d, value)));
+            }
+            return;
+        }
+
+        load(box(aKind, aL, aD, aValue).op(op, box(kind, l, d, value)));
+    }
+
+    private void setLong(long v) {
+        kind = LONG;
+        l = v;
+    }
+
+    private void setDouble(double v) {
+        kind = DOUBLE;
+        d = v;
+    }
+}
@@ -0,0 +1,194 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.Set;
+
+import io.github.nahkd123.tinyexpr.impl.ListValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+/**
+ * <p>
+ * Inline cache of an {@link Expr.Property} node. The cache remembers, for up
+ * to {@link #MAX_ENTRIES} receiver classes, how the property is read from
+ * values of that class, so that reading it again only costs a class check
+ * instead of going through {@link Value#get(String)}:
+ * </p>
+ * <ul>
+ * <li>{@link StringValue} and {@link ListValue} properties are resolved once,
+ * instead of matching the name on every access;</li>
+ * <li>{@link MapValue} remembers the last value it read from an immutable map
+ * (such as {@link Map#of()}) once the same map is read twice in a row, and
+ * returns it again as long as the map is the same instance. The map and the
+ * value are only weakly referenced, so the cache doesn't keep them reachable.
+ * Other maps, and immutable maps that change on every access, are looked up on
+ * every access without allocating;</li>
+ * <li>Other values are read with {@link Value#get(String)}.</li>
+ * </ul>
+ * <p>
+ * Receivers of more classes than the cache can hold are read with
+ * {@link Value#get(String)}. Caches are thread-safe.
+ * </p>
+ *
+ * @see IndexCache
+ */
+public final class PropertyCache {
+    public static final int MAX_ENTRIES = 4;
+
+    private static final Set<Class<?>> IMMUTABLE_MAPS = Set.of(
+        Map.of().getClass(),
+        Map.of("", "").getClass());
+
+    private final String name;
+    private volatile Entry[] entries = new Entry[0];
+
+    private static abstract class Entry {
+        final Class<?> type;
+
+        Entry(Class<?> type) {
+            this.type = type;
+        }
+
+        abstract Value get(Value receiver);
+    }
+
+    public PropertyCache(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * <p>
+     * Get the property from the receiver. The result is the same as
+     * {@code receiver.get(name())}.
+     * </p>
+     *
+     * @param receiver The value to get the property from.
+     * @return The property value.
+     */
+    public Value get(Value receiver) {
+        Class<?> type = receiver.getClass();
+        for (Entry entry : entries) if (entry.type == type) return entry.get(receiver);
+        return miss(receiver);
+    }
+
+    private Value miss(Value receiver) {
+        Entry[] entries = this.entries;
+        if (entries.length >= MAX_ENTRIES) return receiver.get(name);
+        Entry entry = entryFor(receiver.getClass());
+        Entry[] updated = new Entry[entries.length + 1];
+        System.arraycopy(entries, 0, updated, 0, entries.length);
+        updated[entries.length] = entry;
+        // Entries added by other threads at the same time may be lost, which
+        // only means they are created again on the next miss
+        this.entries = updated;
+        return entry.get(receiver);
+    }
+
+    private Entry entryFor(Class<?> type) {
+        if (type == StringValue.class) return switch (name) {
+        case "len", "length" -> new Entry(type) {
+            @Override
+            Value get(Value receiver) {
+                return LongValue.valueOf(((StringValue) receiver).length());
+            }
+        };
+        case "upper", "uppercase" -> new Entry(type) {
+            @Override
+            Value get(Value receiver) {
+                return ((StringValue) receiver).upper();
+            }
+        };
+        case "lower", "lowercase" -> new Entry(type) {
+            @Override
+            Value get(Value receiver) {
+                return ((StringValue) receiver).lower();
+            }
+        };
+        default -> new Generic(type, name);
+        };
+
+        if (type == ListValue.class) return switch (name) {
+        case "len", "length" -> new Entry(type) {
+            @Override
+            Value get(Value receiver) {
+                return LongValue.valueOf(((ListValue) receiver).list().size());
+            }
+        };
+        default -> new Generic(type, name);
+        };
+
+        if (type == MapValue.class) return new MapEntry(name);
+        return new Generic(type, name);
+    }
+
+    private static final class Generic extends Entry {
+        private final String name;
+
+        Generic(Class<?> type, String name) {
+            super(type);
+            this.name = name;
+        }
+
+        @Override
+        Value get(Value receiver) {
+            return receiver.get(name);
+        }
+    }
+
+    private static final class MapEntry extends Entry {
+        private final String name;
+        private volatile Resolved last;
+        /**
+         * <p>
+         * Identity hash code of the last immutable map that missed. The value is
+         * only remembered when the same map misses again, so that reading a
+         * different map every time doesn't allocate. Maps with the same hash
+         * code only cost a wasted {@link Resolved}.
+         * </p>
+         */
+        private volatile int candidate;
+
+        private static final class Resolved extends WeakReference<Map<String, Value>> {
+            // The map holds on to the value, so it is only cleared after the
+            // map is unreachable
+            final WeakReference<Value> value;
+
+            Resolved(Map<String, Value> map, Value value) {
+                super(map);
+                this.value = new WeakReference<>(value);
+            }
+        }
+
+        MapEntry(String name) {
+            super(MapValue.class);
+            this.name = name;
+        }
+
+        @Override
+        Value get(Value receiver) {
+            Map<String, Value> map = ((MapValue) receiver).map();
+            Resolved last = this.last;
+
+            if (last != null && last.get() == map) {
+                Value value = last.value.get();
+                if (value != null) return value;
+            }
+
+            Value value = receiver.get(name);
+
+            if (IMMUTABLE_MAPS.contains(map.getClass())) {
+                int hash = System.identityHashCode(map);
+                if (candidate == hash) this.last = new Resolved(map, value);
+                else candidate = hash;
+            }
+
+            return value;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+
+/**
+ * <p>
+ * Evaluator that keeps the last value of every node of an expression and only
+ * recomputes the nodes that depend on changed inputs. After a change is
+ * reported with {@link #invalidate(String)}, the nodes on the paths from the
+ * changed variables (or properties) to the root are marked as dirty, and the
+ * next {@link #value()} recomputes only those nodes, reusing the values of all
+ * other subtrees. The cost of an update grows with the number of nodes that
+ * depend on the change, not with the size of the expression.
+ * </p>
+ * <p>
+ * Variables are only looked up again when they are invalidated, so every
+ * change must be reported. Method calls are assumed to return the same value
+ * for the same inputs. Like {@link Expr#eval(Function)}, branches of ternaries
+ * and the right side of {@code &&} and {@code ||} are only computed when they
+ * are taken.
+ * </p>
+ * <p>
+ * An evaluator is not thread-safe.
+ * </p>
+ *
+ * @see #invalidate(String)
+ * @see ExprDependencies#propertyPaths(Expr)
+ */
+public final class ReactiveEvaluator {
+    private final Expr expr;
+    private final Function<String, Value> vars;
+    private final Node root;
+    private final Map<String, List<Node>> dependents = new HashMap<>();
+    private long recomputations = 0;
+
+    private static final class Node {
+        final Expr expr;
+        final Node parent;
+        final Node[] children;
+        /**
+         * <p>
+         * The property path of this node if it is a variable or a chain of
+         * properties on a variable, {@code null} otherwise.
+         * </p>
+         */
+        String path;
+        /**
+         * <p>
+         * Whether the value is used as a whole, rather than only to get a
+         * property from it.
+         * </p>
+         */
+        boolean whole = true;
+        boolean dirty = true;
+        Value value;
+
+        Node(Expr expr, Node parent) {
+            this.expr = expr;
+            this.parent = parent;
+            this.children = switch (expr) {
+            case Expr.Const c -> new Node[0];
+            case Expr.Variable v -> new Node[0];
+            case Expr.Slot s -> new Node[0];
+            case Expr.Unary u -> nodes(u.expr());
+            case Expr.Binary b -> nodes(b.a(), b.b());
+            case Expr.Logical l -> nodes(l.a(), l.b());
+            case Expr.Index i -> nodes(i.expr(), i.index());
+            case Expr.Property p -> nodes(p.expr());
+            case Expr.Call c -> {
+                Expr[] exprs = new Expr[c.params().length + 1];
+                exprs[0] = c.expr();
+                System.arraycopy(c.params(), 0, exprs, 1, c.params().length);
+                yield nodes(exprs);
+            }
+            case Expr.Ternary t -> nodes(t.test(), t.ifTrue(), t.ifFalse());
+            case Expr.Scope s -> nodes(s.body());
+            case Expr.Shared s -> nodes(s.expr());
+            };
+        }
+
+        Node[] nodes(Expr... exprs) {
+            Node[] nodes = new Node[exprs.length];
+            for (int i = 0; i < exprs.length; i++) nodes[i] = new Node(exprs[i], this);
+            return nodes;
+        }
+    }
+
+    /**
+     * <p>
+     * Create a new reactive evaluator. Nothing is evaluated until
+     * {@link #value()} is called.
+     * </p>
+     *
+     * @param expr The expression.
+     * @param vars A function that returns {@link Value} for variable with provided
+     *             name.
+     */
+    public ReactiveEvaluator(Expr expr, Function<String, Value> vars) {
+        this.expr = expr;
+        this.vars = vars;
+        this.root = new Node(expr, null);
+        index(root);
+    }
+
+    private void index(Node node) {
+        for (Node child : node.children) index(child);
+
+        switch (node.expr) {
+        case Expr.Variable v -> node.path = v.name();
+        case Expr.Slot s -> node.path = s.name();
+        case Expr.Property p when node.children[0].path != null -> {
+            node.path = node.children[0].path + "." + p.name();
+            node.children[0].whole = false;
+        }
+        default -> {}
+        }
+
+        if (node.path != null) {
+            int dot = node.path.indexOf('.');
+            String variable = dot == -1 ? node.path : node.path.substring(0, dot);
+            dependents.computeIfAbsent(variable, k -> new ArrayList<>()).add(node);
+        }
+    }
+
+    public Expr expr() {
+        return expr;
+    }
+
+    /**
+     * <p>
+     * Get the number of nodes that were computed since this evaluator was
+     * created.
+     * </p>
+     *
+     * @return The number of computed nodes.
+     */
+    public long recomputations() {
+        return recomputations;
+    }
+
+    /**
+     * <p>
+     * Report that a variable or a property has changed. The path is either a
+     * variable name, such as {@code order}, after the variable was given a new
+     * value, or a property path, such as {@code order.customer.tier}, after the
+     * property of a mutable value was changed in place. Nodes that read the
+     * path, a property below it, or the whole value that contains it are
+     * recomputed by the next {@link #value()}.
+     * </p>
+     *
+     * @param path The variable name or property path.
+     * @see ExprDependencies#propertyPaths(Expr)
+     */
+    public void invalidate(String path) {
+        int dot = path.indexOf('.');
+        List<Node> nodes = dependents.get(dot == -1 ? path : path.substring(0, dot));
+        if (nodes == null) return;
+
+        for (Node node : nodes) {
+            if (affects(node, path)) markDirty(node);
+        }
+    }
+
+    private static boolean affects(Node node, String path) {
+        String nodePath = node.path;
+        if (isWithin(nodePath, path)) return true;
+        // The node holds a value that contains the changed property
+        return node.whole && isWithin(path, nodePath);
+    }
+
+    private static boolean isWithin(String path, String parent) {
+        return path.startsWith(parent)
+            && (path.length() == parent.length() || path.charAt(parent.length()) == '.');
+    }
+
+    /**
+     * <p>
+     * Mark all nodes as dirty, so that the next {@link #value()} computes the
+     * whole expression again.
+     * </p>
+     */
+    public void invalidateAll() {
+        invalidateAll(root);
+    }
+
+    private static void invalidateAll(Node node) {
+        node.dirty = true;
+        for (Node child : node.children) invalidateAll(child);
+    }
+
+    private static void markDirty(Node node) {
+        // A dirty node either has dirty ancestors already or isn't used by them
+        // (for example, a ternary branch that isn't taken)
+        while (node != null && !node.dirty) {
+            node.dirty = true;
+            node = node.parent;
+        }
+    }
+
+    /**
+     * <p>
+     * Get the value of the expression, recomputing the nodes that depend on the
+     * changes reported since the last call.
+     * </p>
+     *
+     * @return The value of the expression.
+     */
+    public Value value() {
+        return value(root);
+    }
+
+    private Value value(Node node) {
+        if (!node.dirty) return node.value;
+        Node[] children = node.children;
+
+        Value value = switch (node.expr) {
+        case Expr.Const c -> c.value();
+        case Expr.Variable v -> v.eval(vars);
+        case Expr.Slot s -> s.eval(vars);
+        case Expr.Unary u -> value(children[0]).op(u.op());
+        case Expr.Binary b -> value(children[0]).op(b.op(), value(children[1]));
+        case Expr.Logical l -> {
+            boolean result = value(children[0]).unwrapAs(boolean.class);
+            if (result == (l.op() == BinaryOp.LOGICAL_AND)) result = value(children[1]).unwrapAs(boolean.class);
+            yield LongValue.valueOf(result);
+        }
+        case Expr.Index i -> i.cache().get(value(children[0]), value(children[1]).unwrapAs(int.class));
+        case Expr.Property p -> p.cache().get(value(children[0]));
+        case Expr.Call c -> {
+            Value[] inputs = new Value[children.length - 1];
+            for (int i = 0; i < inputs.length; i++) inputs[i] = value(children[i + 1]);
+            yield value(children[0]).call(inputs);
+        }
+        case Expr.Ternary t -> value(children[0]).unwrapAs(boolean.class)
+            ? value(children[1])
+            : value(children[2]);
+        // Each position is computed once until it changes, which is all that
+        // scopes and shared subtrees are for
+        case Expr.Scope s -> value(children[0]);
+        case Expr.Shared s -> value(children[0]);
+        };
+
+        node.value = value;
+        node.dirty = false;
+        recomputations++;
+        return value;
+    }
+}
@@ -0,0 +1,464 @@
+package io.github.nahkd123.tinyexpr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+/**
+ * <p>
+ * Evaluator that specializes binary operator nodes to the operand types they
+ * see. Each {@link Expr.Binary} node starts uninitialized, and on its first
+ * evaluation switches to a specialization for the operand types it got:
+ * </p>
+ * <ul>
+ * <li>{@code long} and {@code long}, which computes the result directly from
+ * the two {@link LongValue}s;</li>
+ * <li>{@code double} and {@code double}, the same for {@link DoubleValue}s.
+ * A {@link LongValue} operand is widened to {@code double}, same as
+ * {@link Value#op(BinaryOp, Value)};</li>
+ * <li>String concatenation, for {@code +} with a {@link StringValue} on the
+ * left;</li>
+ * <li>Generic, which calls {@link Value#op(BinaryOp, Value)} like
+ * {@link Expr#eval(Function)}.</li>
+ * </ul>
+ * <p>
+ * A node that later sees other operand types adds the matching specialization,
+ * so a node can handle both {@code long} and {@code double} operands without
+ * going through {@link Value#op(BinaryOp, Value)}. Operand types that no
+ * specialization handles, such as a {@code double} and a {@code long} with
+ * {@code &}, replace all specializations of the node with the generic one. The
+ * results are always the same as {@link Expr#eval(Function)}.
+ * </p>
+ * <p>
+ * An evaluator can be shared between threads. Every specialization checks the
+ * operand types before using them, so a thread that does not see the latest
+ * state of a node yet only takes a slower path.
+ * </p>
+ *
+ * @see #eval(Function)
+ * @see #specializations()
+ */
+public final class SpecializingEvaluator implements CompiledExpr {
+    private final Expr expr;
+    private final Node root;
+
+    public SpecializingEvaluator(Expr expr) {
+        this.expr = expr;
+        this.root = node(expr);
+    }
+
+    public Expr expr() {
+        return expr;
+    }
+
+    @Override
+    public Value eval(Function<String, Value> vars) {
+        return root.execute(vars);
+    }
+
+    /**
+     * <p>
+     * Get the current specializations of the binary operator nodes, one line per
+     * node, in the order the nodes are evaluated. Uninitialized nodes have not
+     * been evaluated yet.
+     * </p>
+     *
+     * @return The specializations.
+     */
+    public String specializations() {
+        List<Binary> nodes = new ArrayList<>();
+        root.collect(nodes);
+        StringBuilder builder = new StringBuilder();
+        for (Binary node : nodes) builder.append(node.expr).append(": ").append(node.describe()).append('\n');
+        return builder.toString();
+    }
+
+    private static Node node(Expr expr) {
+        return switch (expr) {
+        case Expr.Const c -> new Const(c.value());
+        case Expr.Variable v -> new Variable(v);
+        case Expr.Slot s -> new Variable(s);
+        case Expr.Unary u -> new Unary(u.op(), node(u.expr()));
+        case Expr.Binary b -> new Binary(b, node(b.a()), node(b.b()));
+        case Expr.Logical l -> new Logical(l.op() == BinaryOp.LOGICAL_AND, node(l.a()), node(l.b()));
+        case Expr.Index i -> new Index(i.cache(), node(i.expr()), node(i.index()));
+        case Expr.Property p -> new Property(p.cache(), node(p.expr()));
+        case Expr.Call c -> {
+            Node[] params = new Node[c.params().length];
+            for (int i = 0; i < params.length; i++) params[i] = node(c.params()[i]);
+            yield new Call(node(c.expr()), params);
+        }
+        case Expr.Ternary t -> new Ternary(node(t.test()), node(t.ifTrue()), node(t.ifFalse()));
+        case Expr.Scope s -> new Scope(s.temps(), node(s.body()));
+        case Expr.Shared s -> new Shared(s.temp(), node(s.expr()));
+        };
+    }
+
+    private static boolean test(Value value) {
+        if (value instanceof LongValue x) return x.value() != 0;
+        if (value instanceof DoubleValue x) return x.value() != 0;
+        return value.unwrapAs(boolean.class);
+    }
+
+    private static abstract class Node {
+        abstract Value execute(Function<String, Value> vars);
+
+        abstract void collect(List<Binary> nodes);
+    }
+
+    private static final class Binary extends Node {
+        private static final int LONG_LONG = 1;
+        private static final int DOUBLE_DOUBLE = 2;
+        private static final int STRING_CONCAT = 4;
+        private static final int GENERIC = 8;
+
+        final Expr.Binary expr;
+        final BinaryOp op;
+        final Node a, b;
+        /**
+         * <p>
+         * Bit set of the active specializations, {@code 0} if the node has not
+         * been evaluated yet. Bits are only added, except that {@link #GENERIC}
+         * replaces all others.
+         * </p>
+         */
+        volatile int state = 0;
+
+        Binary(Expr.Binary expr, Node a, Node b) {
+            this.expr = expr;
+            this.op = expr.op();
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        Value execute(Function<String, Value> vars) {
+            Value x = a.execute(vars);
+            Value y = b.execute(vars);
+            int state = this.state;
+
+            if ((state & LONG_LONG) != 0 && x instanceof LongValue l && y instanceof LongValue r)
+                return longLong(l.value(), r.value());
+            if ((state & DOUBLE_DOUBLE) != 0 && isDoubles(x, y)) return doubleDouble(toDouble(x), toDouble(y));
+            if ((state & STRING_CONCAT) != 0 && x instanceof StringValue l)
+                return l.concat(y);
+            if ((state & GENERIC) != 0) return x.op(op, y);
+            return specialize(x, y);
+        }
+
+        private Value specialize(Value x, Value y) {
+            int specialization;
+            if (x instanceof LongValue && y instanceof LongValue && isLongOp(op)) specialization = LONG_LONG;
+            else if (isDoubles(x, y) && isDoubleOp(op)) specialization = DOUBLE_DOUBLE;
+            else if (x instanceof StringValue && op == BinaryOp.ADD) specialization = STRING_CONCAT;
+            else specialization = GENERIC;
+
+            synchronized (this) {
+                state = specialization == GENERIC ? GENERIC : state | specialization;
+            }
+
+            return compute(specialization, x, y);
+        }
+
+        private Value compute(int specialization, Value x, Value y) {
+            return switch (specialization) {
+            case LONG_LONG -> longLong(((LongValue) x).value(), ((LongValue) y).value());
+            case DOUBLE_DOUBLE -> doubleDouble(toDouble(x), toDouble(y));
+            case STRING_CONCAT -> ((StringValue) x).concat(y);
+            default -> x.op(op, y);
+            };
+        }
+
+        /**
+         * @return {@code true} if both values are numbers and at least one of
+         *         them is a {@code double}. The other one is widened to
+         *         {@code double}, same as {@link Value#op(BinaryOp, Value)}.
+         */
+        private static boolean isDoubles(Value x, Value y) {
+            return (x instanceof DoubleValue && (y instanceof DoubleValue || y instanceof LongValue))
+                || (x instanceof LongValue && y instanceof DoubleValue);
+        }
+
+        private static double toDouble(Value value) {
+            return value instanceof DoubleValue d ? d.value() : ((LongValue) value).value();
+        }
+
+        private static boolean isLongOp(BinaryOp op) {
+            return !op.isLogical();
+        }
+
+        private static boolean isDoubleOp(BinaryOp op) {
+            return switch (op) {
+            case ADD, SUBTRACT, MULTIPLY, DIVIDE -> true;
+            case EQUALS, NOT_EQUALS, LESS_THAN, LESS_THAN_OR_EQUALS, GREATER_THAN, GREATER_THAN_OR_EQUALS -> true;
+            default -> false;
+            };
+        }
+
+        private Value longLong(long x, long y) {
+            return switch (op) {
+            case ADD -> LongValue.valueOf(x + y);
+            case SUBTRACT -> LongValue.valueOf(x - y);
+            case MULTIPLY -> LongValue.valueOf(x * y);
+            case DIVIDE -> LongValue.valueOf(x / y);
+            case AND -> LongValue.valueOf(x & y);
+            case OR -> LongValue.valueOf(x | y);
+            case XOR -> LongValue.valueOf(x ^ y);
+            case SHIFT_LEFT -> LongValue.valueOf(x << y);
+            case SHIFT_RIGHT -> LongValue.valueOf(x >> y);
+            case EQUALS -> LongValue.valueOf(x == y);
+            case NOT_EQUALS -> LongValue.valueOf(x != y);
+            case LESS_THAN -> LongValue.valueOf(x < y);
+            case LESS_THAN_OR_EQUALS -> LongValue.valueOf(x <= y);
+            case GREATER_THAN -> LongValue.valueOf(x > y);
+            case GREATER_THAN_OR_EQUALS -> LongValue.valueOf(x >= y);
+            default -> LongValue.valueOf(x).op(op, LongValue.valueOf(y));
+            };
+        }
+
+        private Value doubleDouble(double x, double y) {
+            return switch (op) {
+            case ADD -> DoubleValue.valueOf(x + y);
+            case SUBTRACT -> DoubleValue.valueOf(x - y);
+            case MULTIPLY -> DoubleValue.valueOf(x * y);
+            case DIVIDE -> DoubleValue.valueOf(x / y);
+            case EQUALS -> LongValue.valueOf(x == y);
+            case NOT_EQUALS -> LongValue.valueOf(x != y);
+            case LESS_THAN -> LongValue.valueOf(x < y);
+            case LESS_THAN_OR_EQUALS -> LongValue.valueOf(x <= y);
+            case GREATER_THAN -> LongValue.valueOf(x > y);
+            case GREATER_THAN_OR_EQUALS -> LongValue.valueOf(x >= y);
+            default -> DoubleValue.valueOf(x).op(op, DoubleValue.valueOf(y));
+            };
+        }
+
+        String describe() {
+            int state = this.state;
+            if (state == 0) return "uninitialized";
+            List<String> names = new ArrayList<>();
+            if ((state & LONG_LONG) != 0) names.add("long-long");
+            if ((state & DOUBLE_DOUBLE) != 0) names.add("double-double");
+            if ((state & STRING_CONCAT) != 0) names.add("string-concat");
+            if ((state & GENERIC) != 0) names.add("generic");
+            return String.join(", ", names);
+        }
+
+        @Override
+        void collect(List<Binary> nodes) {
+            a.collect(nodes);
+            b.collect(nodes);
+            nodes.add(this);
+        }
+    }
+
+    private static final class Const extends Node {
+        final Value value;
+
+        Const(Value value) {
+            this.value = value;
+        }
+
+        @Override
+        Value execute(Function<String, Value> vars) {
+            return value;
+        }
+
+        @Override
+        void collect(List<Binary> nodes) {}
+    }
+
+    private static final class Variable extends Node {
+        final Expr expr;
+
+        Variable(Expr expr) {
+            this.expr = expr;
+        }
+
+        @Override
+        Value execute(Function<String, Value> vars) {
+            return expr.eval(vars);
+        }
+
+        @Override
+        void collect(List<Binary> nodes) {}
+    }
+
+    private static final class Unary extends Node {
+        final UnaryOp op;
+        final Node child;
+
+        Unary(UnaryOp op, Node child) {
+            this.op = op;
+            this.child = child;
+        }
+
+        @Override
+        Value execute(Function<String, Value> vars) {
+            return child.execute(vars).op(op);
+        }
+
+        @Override
+        void collect(List<Binary> nodes) {
+            child.collect(nodes);
+        }
+    }
+
+    private static final class Logical extends Node {
+        final boolean and;
+        final Node a, b;
+
+        Logical(boolean and, Node a, Node b) {
+            this.and = and;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        Value execute(Function<String, Value> vars) {
+            boolean result = test(a.execute(vars));
+            if (result == and) result = test(b.execute(vars));
+            return LongValue.valueOf(result);
+        }
+
+        @Override
+        void collect(List<Binary> nodes) {
+            a.collect(nodes);
+            b.collect(nodes);
+        }
+    }
+
+    private static final class Index extends Node {
+        final IndexCache cache;
+        final Node target, index;
+
+        Index(IndexCache cache, Node target, Node index) {
+            this.cache = cache;
+            this.target = target;
+            this.index = index;
+        }
+
+        @Override
+        Value execute(Function<String, Value> vars) {
+            Value target = this.target.execute(vars);
+            Value index = this.index.execute(vars);
+            return cache.get(target, index instanceof LongValue i ? (int) i.value() : index.unwrapAs(int.class));
+        }
+
+        @Override
+        void collect(List<Binary> nodes) {
+            target.collect(nodes);
+            index.collect(nodes);
+        }
+    }
+
+    private static final class Property extends Node {
+        final PropertyCache cache;
+        final Node target;
+
+        Property(PropertyCache cache, Node target) {
+            this.cache = cache;
+            this.target = target;
+        }
+
+        @Override
+        Value execute(Function<String, Value> vars) {
+            return cache.get(target.execute(vars));
+        }
+
+        @Override
+        void collect(List<Binary> nodes) {
+            target.collect(nodes);
+        }
+    }
+
+    private static final class Call extends Node {
+        final Node callee;
+        final Node[] params;
+
+        Call(Node callee, Node[] params) {
+            this.callee = callee;
+            this.params = params;
+        }
+
+        @Override
+        Value execute(Function<String, Value> vars) {
+            Value[] inputs = new Value[params.length];
+            for (int i = 0; i < inputs.length; i++) inputs[i] = params[i].execute(vars);
+            return callee.execute(vars).call(inputs);
+        }
+
+        @Override
+        void collect(List<Binary> nodes) {
+            for (Node param : params) param.collect(nodes);
+            callee.collect(nodes);
+        }
+    }
+
+    private static final class Ternary extends Node {
+        final Node test, ifTrue, ifFalse;
+
+        Ternary(Node test, Node ifTrue, Node ifFalse) {
+            this.test = test;
+            this.ifTrue = ifTrue;
+            this.ifFalse = ifFalse;
+        }
+
+        @Override
+        Value execute(Function<String, Value> vars) {
+            return test(test.execute(vars)) ? ifTrue.execute(vars) : ifFalse.execute(vars);
+        }
+
+        @Override
+        void collect(List<Binary> nodes) {
+            test.collect(nodes);
+            ifTrue.collect(nodes);
+            ifFalse.collect(nodes);
+        }
+    }
+
+    private static final class Scope extends Node {
+        final int temps;
+        final Node body;
+
+        Scope(int temps, Node body) {
+            this.temps = temps;
+            this.body = body;
+        }
+
+        @Override
+        Value execute(Function<String, Value> vars) {
+            return body.execute(Frame.withTemps(vars, temps));
+        }
+
+        @Override
+        void collect(List<Binary> nodes) {
+            body.collect(nodes);
+        }
+    }
+
+    private static final class Shared extends Node {
+        final int temp;
+        final Node child;
+
+        Shared(int temp, Node child) {
+            this.temp = temp;
+            this.child = child;
+        }
+
+        @Override
+        Value execute(Function<String, Value> vars) {
+            if (!(vars instanceof Frame frame)) return child.execute(vars);
+            Value value = frame.getTemp(temp);
+            return value != null ? value : frame.putTemp(temp, child.execute(vars));
+        }
+
+        @Override
+        void collect(List<Binary> nodes) {
+            child.collect(nodes);
+        }
+    }
+}
@@ -67,14 +67,14 @@ public interface Value {
      */
     static Value wrap(Object value) {
         return switch (value) {
-        case Boolean v -> new LongValue(v ? 1 : 0);
-        case Byte v -> new LongValue(v);
-        case Short v -> new LongValue(v);
-        case Integer v -> new LongValue(v);
-        case Long v -> new LongValue(v);
-        case Float v -> new DoubleValue(v);
-        case Double v -> new DoubleValue(v);
-        case Number v -> new DoubleValue(v.doubleValue());
+        case Boolean v -> LongValue.valueOf(v);
+        case Byte v -> LongValue.valueOf(v);
+        case Short v -> LongValue.valueOf(v);
+        case Integer v -> LongValue.valueOf(v);
+        case Long v -> LongValue.valueOf(v);
+        case Float v -> DoubleValue.valueOf(v);
+        case Double v -> DoubleValue.valueOf(v);
+        case Number v -> DoubleValue.valueOf(v.doubleValue());
         case String v -> new StringValue(v);
         case null -> NullValue.NULL;
         default -> throw new IllegalArgumentException("Unable to wrap %s as ExprValue".formatted(value));
@@ -5,32 +5,57 @@ import io.github.nahkd123.tinyexpr.UnaryOp;
 import io.github.nahkd123.tinyexpr.Value;
 
 public record DoubleValue(double value) implements Value {
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1023;
+    private static final DoubleValue[] CACHE = new DoubleValue[CACHE_HIGH - CACHE_LOW + 1];
+    private static final long NEGATIVE_ZERO = Double.doubleToRawLongBits(-0d);
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) CACHE[i] = new DoubleValue(CACHE_LOW + i);
+    }
+
+    /**
+     * <p>
+     * Get a {@link DoubleValue}, reusing cached instances for small whole
+     * numbers (but not {@code -0.0}).
+     * </p>
+     * 
+     * @param value The value.
+     * @return The wrapped value.
+     */
+    public static DoubleValue valueOf(double value) {
+        int i = (int) value;
+        if (i == value && i >= CACHE_LOW && i <= CACHE_HIGH && Double.doubleToRawLongBits(value) != NEGATIVE_ZERO)
+            return CACHE[i - CACHE_LOW];
+        return new DoubleValue(value);
+    }
+
     @Override
     public Value op(BinaryOp op, Value another) {
         if (another instanceof DoubleValue o) return switch (op) {
-        case ADD -> new DoubleValue(value + o.value);
-        case SUBTRACT -> new DoubleValue(value - o.value);
-        case MULTIPLY -> new DoubleValue(value * o.value);
-        case DIVIDE -> new DoubleValue(value / o.value);
-        case EQUALS -> new LongValue(value == o.value ? 1 : 0);
-        case NOT_EQUALS -> new LongValue(value != o.value ? 1 : 0);
-        case LESS_THAN -> new LongValue(value < o.value ? 1 : 0);
-        case LESS_THAN_OR_EQUALS -> new LongValue(value <= o.value ? 1 : 0);
-        case GREATER_THAN -> new LongValue(value > o.value ? 1 : 0);
-        case GREATER_THAN_OR_EQUALS -> new LongValue(value >= o.value ? 1 : 0);
+        case ADD -> valueOf(value + o.value);
+        case SUBTRACT -> valueOf(value - o.value);
+        case MULTIPLY -> valueOf(value * o.value);
+        case DIVIDE -> valueOf(value / o.value);
+        case EQUALS -> LongValue.valueOf(value == o.value);
+        case NOT_EQUALS -> LongValue.valueOf(value != o.value);
+        case LESS_THAN -> LongValue.valueOf(value < o.value);
+        case LESS_THAN_OR_EQUALS -> LongValue.valueOf(value <= o.value);
+        case GREATER_THAN -> LongValue.valueOf(value > o.value);
+        case GREATER_THAN_OR_EQUALS -> LongValue.valueOf(value >= o.value);
         default -> Value.super.op(op, another);
         };
 
-        if (another instanceof LongValue o) return op(op, new DoubleValue(o.value()));
-        if (another instanceof StringValue o) return new StringValue(Double.toString(value) + o.value());
+        if (another instanceof LongValue o) return op(op, valueOf(o.value()));
+        if (another instanceof StringValue o) return new StringValue(Double.toString(value)).concat(o);
         return Value.super.op(op, another);
     }
 
     @Override
     public Value op(UnaryOp op) {
         return switch (op) {
-        case NEGATE -> new DoubleValue(-value);
-        case NOT -> new LongValue(value != 0 ? 0 : 1);
+        case NEGATE -> valueOf(-value);
+        case NOT -> LongValue.valueOf(value == 0);
         default -> Value.super.op(op);
         };
     }
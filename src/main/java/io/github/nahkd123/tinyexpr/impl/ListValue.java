@@ -14,7 +14,7 @@ public record ListValue(List<Value> list) implements Value {
     @Override
     public Value get(String name) {
         return switch (name) {
-        case "len", "length" -> new LongValue(list.size());
+        case "len", "length" -> LongValue.valueOf(list.size());
         default -> Value.super.get(name);
         };
     }
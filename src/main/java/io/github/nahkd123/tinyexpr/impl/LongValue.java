@@ -5,38 +5,78 @@ import io.github.nahkd123.tinyexpr.UnaryOp;
 import io.github.nahkd123.tinyexpr.Value;
 
 public record LongValue(long value) implements Value {
+    public static final LongValue FALSE = new LongValue(0);
+    public static final LongValue TRUE = new LongValue(1);
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1023;
+    private static final LongValue[] CACHE = new LongValue[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) CACHE[i] = new LongValue(CACHE_LOW + i);
+        CACHE[-CACHE_LOW] = FALSE;
+        CACHE[1 - CACHE_LOW] = TRUE;
+    }
+
+    /**
+     * <p>
+     * Get a {@link LongValue}, reusing cached instances for small integers.
+     * Prefer this over the constructor to avoid allocating a new value for
+     * common results such as loop counters or comparison results.
+     * </p>
+     * 
+     * @param value The value.
+     * @return The wrapped value.
+     */
+    public static LongValue valueOf(long value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) return CACHE[(int) value - CACHE_LOW];
+        return new LongValue(value);
+    }
+
+    /**
+     * <p>
+     * Get {@link #TRUE} or {@link #FALSE}.
+     * </p>
+     * 
+     * @param value The boolean value.
+     * @return {@link #TRUE} if {@code value} is {@code true}, otherwise
+     *         {@link #FALSE}.
+     */
+    public static LongValue valueOf(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
     @Override
     public Value op(BinaryOp op, Value another) {
         if (another instanceof LongValue o) return switch (op) {
-        case ADD -> new LongValue(value + o.value);
-        case SUBTRACT -> new LongValue(value - o.value);
-        case MULTIPLY -> new LongValue(value * o.value);
-        case DIVIDE -> new LongValue(value / o.value);
-        case AND -> new LongValue(value & o.value);
-        case OR -> new LongValue(value | o.value);
-        case XOR -> new LongValue(value ^ o.value);
-        case SHIFT_LEFT -> new LongValue(value << o.value);
-        case SHIFT_RIGHT -> new LongValue(value >> o.value);
-        case EQUALS -> new LongValue(value == o.value ? 1 : 0);
-        case NOT_EQUALS -> new LongValue(value != o.value ? 1 : 0);
-        case LESS_THAN -> new LongValue(value < o.value ? 1 : 0);
-        case LESS_THAN_OR_EQUALS -> new LongValue(value <= o.value ? 1 : 0);
-        case GREATER_THAN -> new LongValue(value > o.value ? 1 : 0);
-        case GREATER_THAN_OR_EQUALS -> new LongValue(value >= o.value ? 1 : 0);
+        case ADD -> valueOf(value + o.value);
+        case SUBTRACT -> valueOf(value - o.value);
+        case MULTIPLY -> valueOf(value * o.value);
+        case DIVIDE -> valueOf(value / o.value);
+        case AND -> valueOf(value & o.value);
+        case OR -> valueOf(value | o.value);
+        case XOR -> valueOf(value ^ o.value);
+        case SHIFT_LEFT -> valueOf(value << o.value);
+        case SHIFT_RIGHT -> valueOf(value >> o.value);
+        case EQUALS -> valueOf(value == o.value);
+        case NOT_EQUALS -> valueOf(value != o.value);
+        case LESS_THAN -> valueOf(value < o.value);
+        case LESS_THAN_OR_EQUALS -> valueOf(value <= o.value);
+        case GREATER_THAN -> valueOf(value > o.value);
+        case GREATER_THAN_OR_EQUALS -> valueOf(value >= o.value);
         default -> Value.super.op(op, another);
         };
 
-        if (another instanceof DoubleValue o) return new DoubleValue(value).op(op, o);
-        if (another instanceof StringValue o) return new StringValue(Long.toString(value) + o.value());
+        if (another instanceof DoubleValue o) return DoubleValue.valueOf(value).op(op, o);
+        if (another instanceof StringValue o) return new StringValue(Long.toString(value)).concat(o);
         return Value.super.op(op, another);
     }
 
     @Override
     public Value op(UnaryOp op) {
         return switch (op) {
-        case INVERT -> new LongValue(~value);
-        case NEGATE -> new LongValue(-value);
-        case NOT -> new LongValue(value != 0 ? 0 : 1);
+        case INVERT -> valueOf(~value);
+        case NEGATE -> valueOf(-value);
+        case NOT -> valueOf(value == 0);
         default -> Value.super.op(op);
         };
     }
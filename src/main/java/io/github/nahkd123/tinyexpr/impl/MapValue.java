@@ -8,21 +8,21 @@ import io.github.nahkd123.tinyexpr.Value;
 public record MapValue(Map<String, Value> map) implements Value, Function<String, Value> {
     // Namespaces
     public static final MapValue MATH = new MapValue(Map.ofEntries(
-        Map.entry("pi", new DoubleValue(Math.PI)),
-        Map.entry("pow", MethodValue.of(Math::pow)),
-        Map.entry("sqrt", MethodValue.of(Math::sqrt)),
-        Map.entry("log2", MethodValue.of(Math::log)),
-        Map.entry("log10", MethodValue.of(Math::log10)),
-        Map.entry("min", MethodValue.of(Math::min)),
-        Map.entry("max", MethodValue.of(Math::max)),
-        Map.entry("sin", MethodValue.of(Math::sin)),
-        Map.entry("cos", MethodValue.of(Math::cos)),
-        Map.entry("tan", MethodValue.of(Math::tan)),
-        Map.entry("asin", MethodValue.of(Math::asin)),
-        Map.entry("acos", MethodValue.of(Math::acos)),
-        Map.entry("atan", MethodValue.of(Math::atan)),
-        Map.entry("atan2", MethodValue.of(Math::atan2)),
-        Map.entry("clamp", MethodValue.of(Math::clamp))));
+        Map.entry("pi", DoubleValue.valueOf(Math.PI)),
+        Map.entry("pow", MethodValue.of(Math::pow).markPure()),
+        Map.entry("sqrt", MethodValue.of(Math::sqrt).markPure()),
+        Map.entry("log2", MethodValue.of(Math::log).markPure()),
+        Map.entry("log10", MethodValue.of(Math::log10).markPure()),
+        Map.entry("min", MethodValue.of(Math::min).markPure()),
+        Map.entry("max", MethodValue.of(Math::max).markPure()),
+        Map.entry("sin", MethodValue.of(Math::sin).markPure()),
+        Map.entry("cos", MethodValue.of(Math::cos).markPure()),
+        Map.entry("tan", MethodValue.of(Math::tan).markPure()),
+        Map.entry("asin", MethodValue.of(Math::asin).markPure()),
+        Map.entry("acos", MethodValue.of(Math::acos).markPure()),
+        Map.entry("atan", MethodValue.of(Math::atan).markPure()),
+        Map.entry("atan2", MethodValue.of(Math::atan2).markPure()),
+        Map.entry("clamp", MethodValue.of(Math::clamp).markPure())));
 
     @Override
     public Value get(String name) {
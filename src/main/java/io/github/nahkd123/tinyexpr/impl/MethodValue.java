@@ -3,31 +3,138 @@ package io.github.nahkd123.tinyexpr.impl;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.util.Objects;
 
 import io.github.nahkd123.tinyexpr.Value;
 
-public record MethodValue(MethodHandle handle, MethodType signature) implements Value {
+/**
+ * <p>
+ * A callable value backed by a {@link MethodHandle}. Methods can be marked as
+ * pure with {@link #markPure()}, meaning that calling the method with the same
+ * parameters always gives the same result and has no side effects. Pure
+ * methods called with constant parameters may be evaluated ahead of time by
+ * {@link io.github.nahkd123.tinyexpr.ExprOptimizer}.
+ * </p>
+ * <p>
+ * The handle is adapted once when the value is created. Methods with 1 to 3
+ * {@code double} parameters that return {@code double}, like the ones in
+ * {@link MapValue#MATH}, are called without boxing or parameter arrays. Other
+ * methods are called through a spreader with {@code invokeExact}.
+ * </p>
+ */
+public final class MethodValue implements Value {
+    private static final MethodType SPREAD_TYPE = MethodType.methodType(Object.class, Object[].class);
+    private static final MethodType D_D = MethodType.methodType(double.class, double.class);
+    private static final MethodType DD_D = MethodType.methodType(double.class, double.class, double.class);
+    private static final MethodType DDD_D = MethodType.methodType(double.class, double.class, double.class,
+        double.class);
+
+    private final MethodHandle handle;
+    private final MethodType signature;
+    private final boolean pure;
+    private final MethodHandle spreader;
+    private final MethodHandle exact;
+    private final Object function;
+
+    private MethodValue(MethodHandle handle, MethodType signature, boolean pure, Object function) {
+        this.handle = handle;
+        this.signature = signature;
+        this.pure = pure;
+        this.function = function;
+        this.spreader = handle.asSpreader(Object[].class, handle.type().parameterCount()).asType(SPREAD_TYPE);
+        this.exact = handle.type().equals(signature)
+            && (signature.equals(D_D) || signature.equals(DD_D) || signature.equals(DDD_D))
+            ? handle
+            : null;
+    }
+
+    public MethodValue(MethodHandle handle, MethodType signature, boolean pure) {
+        this(handle, signature, pure, null);
+    }
+
+    public MethodValue(MethodHandle handle, MethodType signature) {
+        this(handle, signature, false);
+    }
+
+    public MethodHandle handle() {
+        return handle;
+    }
+
+    public MethodType signature() {
+        return signature;
+    }
+
+    public boolean pure() {
+        return pure;
+    }
+
+    /**
+     * <p>
+     * Mark this method as pure.
+     * </p>
+     * 
+     * @return A copy of this method value that is marked as pure.
+     */
+    public MethodValue markPure() {
+        return pure ? this : new MethodValue(handle, signature, true, function);
+    }
+
     @Override
     public Value call(Value[] params) {
         if (params.length != signature.parameterCount())
             throw new IllegalArgumentException("Expecting %d parameters, but found %d"
                 .formatted(signature.parameterCount(), params.length));
 
+        if (exact != null) {
+            double a = toDouble(params[0]);
+            double b = params.length > 1 ? toDouble(params[1]) : 0d;
+            double c = params.length > 2 ? toDouble(params[2]) : 0d;
+
+            try {
+                return DoubleValue.valueOf(switch (params.length) {
+                case 1 -> function instanceof D2DFunction f ? f.apply(a) : (double) exact.invokeExact(a);
+                case 2 -> function instanceof DD2DFunction f ? f.apply(a, b) : (double) exact.invokeExact(a, b);
+                default -> function instanceof DDD2DFunction f ? f.apply(a, b, c) : (double) exact.invokeExact(a, b, c);
+                });
+            } catch (Throwable e) {
+                throw new RuntimeException("Invocation failed", e);
+            }
+        }
+
         Object[] values = new Object[params.length];
         for (int i = 0; i < values.length; i++) values[i] = params[i].unwrapAs(signature.parameterType(i));
 
         try {
-            return Value.wrap(handle.invokeWithArguments(values));
+            return Value.wrap((Object) spreader.invokeExact(values));
         } catch (Throwable e) {
             throw new RuntimeException("Invocation failed", e);
         }
     }
 
+    private static double toDouble(Value value) {
+        if (value instanceof DoubleValue d) return d.value();
+        if (value instanceof LongValue l) return l.value();
+        return value.unwrapAs(double.class);
+    }
+
     @Override
     public Object unwrap() {
         return handle;
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof MethodValue other
+            && handle.equals(other.handle)
+            && signature.equals(other.signature)
+            && pure == other.pure;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(handle, signature, pure);
+    }
+
     @Override
     public final String toString() {
         return "[Method(%s)]".formatted(signature);
@@ -52,7 +159,7 @@ public record MethodValue(MethodHandle handle, MethodType signature) implements
         try {
             MethodType signature = MethodType.methodType(double.class, double.class);
             MethodHandle handle = MethodHandles.publicLookup().findVirtual(D2DFunction.class, "apply", signature);
-            return new MethodValue(handle.bindTo(f), signature);
+            return new MethodValue(handle.bindTo(f), signature, false, f);
         } catch (Throwable t) {
             throw new RuntimeException(t);
         }
@@ -62,7 +169,7 @@ public record MethodValue(MethodHandle handle, MethodType signature) implements
         try {
             MethodType signature = MethodType.methodType(double.class, double.class, double.class);
             MethodHandle handle = MethodHandles.publicLookup().findVirtual(DD2DFunction.class, "apply", signature);
-            return new MethodValue(handle.bindTo(f), signature);
+            return new MethodValue(handle.bindTo(f), signature, false, f);
         } catch (Throwable t) {
             throw new RuntimeException(t);
         }
@@ -72,7 +179,7 @@ public record MethodValue(MethodHandle handle, MethodType signature) implements
         try {
             MethodType signature = MethodType.methodType(double.class, double.class, double.class, double.class);
             MethodHandle handle = MethodHandles.publicLookup().findVirtual(DDD2DFunction.class, "apply", signature);
-            return new MethodValue(handle.bindTo(f), signature);
+            return new MethodValue(handle.bindTo(f), signature, false, f);
         } catch (Throwable t) {
             throw new RuntimeException(t);
         }
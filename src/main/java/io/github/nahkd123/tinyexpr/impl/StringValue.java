@@ -1,16 +1,169 @@
 package io.github.nahkd123.tinyexpr.impl;
 
+import java.util.ArrayDeque;
+
 import io.github.nahkd123.tinyexpr.BinaryOp;
 import io.github.nahkd123.tinyexpr.Value;
 
-public record StringValue(String value) implements Value {
+/**
+ * <p>
+ * String value. Concatenating string values doesn't copy the characters right
+ * away: the result is a rope that remembers both parts, and the characters
+ * are copied into a single {@link String} once, when {@link #value()} is first
+ * called. This keeps long chains of {@code +} linear instead of quadratic.
+ * </p>
+ * <p>
+ * Single characters in the Latin-1 range are canonical instances (see
+ * {@link #valueOf(char)}), and the results of the {@code upper} and
+ * {@code lower} properties are cached in the value. String values are
+ * immutable and can be shared between threads.
+ * </p>
+ */
+public final class StringValue implements Value {
+    /**
+     * <p>
+     * Concatenations with a result up to this length are copied right away,
+     * because copying a few characters is cheaper than a rope node.
+     * </p>
+     */
+    private static final int COPY_THRESHOLD = 32;
+    private static final StringValue[] LATIN1 = new StringValue[256];
+
+    static {
+        for (int i = 0; i < LATIN1.length; i++) LATIN1[i] = new StringValue(String.valueOf((char) i));
+    }
+
+    private final int length;
+    // A value is either flat, or a rope of left and right. Flattening a rope
+    // writes flat before clearing left and right, so a thread that sees the
+    // cleared children also sees the flat string.
+    private volatile String flat;
+    private volatile StringValue left, right;
+    private volatile StringValue upper, lower;
+
+    public StringValue(String value) {
+        this.length = value.length();
+        this.flat = value;
+    }
+
+    private StringValue(StringValue left, StringValue right) {
+        this.length = left.length + right.length;
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * <p>
+     * Get the string value of a single character, reusing the same instance for
+     * characters in the Latin-1 range.
+     * </p>
+     *
+     * @param c The character.
+     * @return The string value.
+     */
+    public static StringValue valueOf(char c) {
+        return c < LATIN1.length ? LATIN1[c] : new StringValue(String.valueOf(c));
+    }
+
+    /**
+     * <p>
+     * Concatenate two string values. Long results are ropes that are flattened
+     * on first use of {@link #value()}.
+     * </p>
+     *
+     * @param a The first part.
+     * @param b The second part.
+     * @return The concatenated value.
+     */
+    public static StringValue concat(StringValue a, StringValue b) {
+        if (b.length == 0) return a;
+        if (a.length == 0) return b;
+        if (Math.addExact(a.length, b.length) <= COPY_THRESHOLD) return new StringValue(a.value() + b.value());
+        return new StringValue(a, b);
+    }
+
+    /**
+     * <p>
+     * Concatenate this string with another value, the same as {@code this + another}
+     * in an expression. Values that are not strings are converted with
+     * {@link Object#toString()}.
+     * </p>
+     *
+     * @param another The value to append.
+     * @return The concatenated value.
+     */
+    public StringValue concat(Value another) {
+        return concat(this, another instanceof StringValue s ? s : new StringValue(another.toString()));
+    }
+
+    /**
+     * <p>
+     * Get the characters of this string, flattening it if it is a rope.
+     * </p>
+     *
+     * @return The string.
+     */
+    public String value() {
+        String flat = this.flat;
+        return flat != null ? flat : flatten();
+    }
+
+    public int length() {
+        return length;
+    }
+
+    private String flatten() {
+        StringBuilder builder = new StringBuilder(length);
+        ArrayDeque<StringValue> stack = new ArrayDeque<>();
+        stack.push(this);
+
+        while (!stack.isEmpty()) {
+            StringValue node = stack.pop();
+            String flat = node.flat;
+
+            if (flat == null) {
+                StringValue left = node.left, right = node.right;
+
+                if (left != null && right != null) {
+                    stack.push(right);
+                    stack.push(left);
+                    continue;
+                }
+
+                // Flattened by another thread in the meantime
+                flat = node.flat;
+            }
+
+            builder.append(flat);
+        }
+
+        String value = builder.toString();
+        flat = value;
+        left = right = null;
+        return value;
+    }
+
+    public StringValue upper() {
+        StringValue upper = this.upper;
+        if (upper != null) return upper;
+        String value = value(), converted = value.toUpperCase();
+        return this.upper = converted.equals(value) ? this : new StringValue(converted);
+    }
+
+    public StringValue lower() {
+        StringValue lower = this.lower;
+        if (lower != null) return lower;
+        String value = value(), converted = value.toLowerCase();
+        return this.lower = converted.equals(value) ? this : new StringValue(converted);
+    }
+
     @Override
     public Value op(BinaryOp op, Value another) {
-        String a = another instanceof StringValue s ? s.value : another.toString();
-
         return switch (op) {
-        case ADD -> new StringValue(value + a);
-        case EQUALS -> new LongValue(value.equals(a) ? 1 : 0);
+        case ADD -> concat(another);
+        case EQUALS -> LongValue.valueOf(another instanceof StringValue s
+            ? equals(s)
+            : value().equals(another.toString()));
         default -> Value.super.op(op, another);
         };
     }
@@ -18,26 +171,36 @@ public record StringValue(String value) implements Value {
     @Override
     public Value get(String name) {
         return switch (name) {
-        case "len", "length" -> new LongValue(value.length());
-        case "upper", "uppercase" -> new StringValue(value.toUpperCase());
-        case "lower", "lowercase" -> new StringValue(value.toLowerCase());
+        case "len", "length" -> LongValue.valueOf(length);
+        case "upper", "uppercase" -> upper();
+        case "lower", "lowercase" -> lower();
         default -> Value.super.get(name);
         };
     }
 
     @Override
     public Value get(int index) {
-        if (index < 0 || index >= value.length()) throw new IndexOutOfBoundsException(index);
-        return new StringValue(String.valueOf(value.charAt(index)));
+        if (index < 0 || index >= length) throw new IndexOutOfBoundsException(index);
+        return valueOf(value().charAt(index));
     }
 
     @Override
     public Object unwrap() {
-        return value;
+        return value();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj == this || obj instanceof StringValue s && length == s.length && value().equals(s.value());
+    }
+
+    @Override
+    public int hashCode() {
+        return value().hashCode();
     }
 
     @Override
     public final String toString() {
-        return value;
+        return value();
     }
-}
\ No newline at end of file
+}
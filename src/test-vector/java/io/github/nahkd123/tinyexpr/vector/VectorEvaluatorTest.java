@@ -0,0 +1,150 @@
+package io.github.nahkd123.tinyexpr.vector;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.Expr;
+import io.github.nahkd123.tinyexpr.ExprParser;
+import io.github.nahkd123.tinyexpr.Value;
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+// Only compiled and run with the simd profile: mvn -P simd test
+class VectorEvaluatorTest {
+	static Map<String, Object> columns(int rows) {
+		long[] x = new long[rows];
+		double[] y = new double[rows];
+		double[] n = new double[rows];
+
+		for (int i = 0; i < rows; i++) {
+			x[i] = i % 7 - 3;
+			y[i] = i * 0.25 - 10;
+			n[i] = switch (i % 4) {
+			case 0 -> Double.NaN;
+			case 1 -> 1;
+			case 2 -> -1;
+			default -> Double.POSITIVE_INFINITY;
+			};
+		}
+
+		return Map.of("x", x, "y", y, "n", n, "k", new LongValue(4), "h", new DoubleValue(0.5));
+	}
+
+	static Function<String, Value> row(Map<String, Object> columns, int i) {
+		return name -> switch (columns.get(name)) {
+		case long[] column -> new LongValue(column[i]);
+		case double[] column -> new DoubleValue(column[i]);
+		case Value value -> value;
+		default -> null;
+		};
+	}
+
+	static void assertSameResult(String input, int rows) {
+		Map<String, Object> columns = columns(rows);
+		Expr expr = ExprParser.parse(input);
+		assertTrue(VectorEvaluator.isVectorizable(expr, columns), input);
+		double[] doubles = new double[rows];
+		long[] longs = new long[rows];
+		double[] expectedDoubles = new double[rows];
+		long[] expectedLongs = new long[rows];
+
+		for (int i = 0; i < rows; i++) {
+			Value value = expr.eval(row(columns, i));
+			expectedDoubles[i] = value.unwrapAs(double.class);
+			expectedLongs[i] = value.unwrapAs(long.class);
+		}
+
+		VectorEvaluator.evalBatch(expr, columns, rows, doubles);
+		VectorEvaluator.evalBatch(expr, columns, rows, longs);
+		assertArrayEquals(expectedDoubles, doubles, input);
+		assertArrayEquals(expectedLongs, longs, input);
+	}
+
+	static void assertSameResult(String input) {
+		assertSameResult(input, VectorEvaluator.CHUNK_SIZE * 2 + 13);
+	}
+
+	@Test
+	void arithmetic() {
+		assertSameResult("x * 5 + y * 3");
+		assertSameResult("x / 2 - y / h");
+		assertSameResult("(x << 2) ^ k | (x >> 1) & 3");
+		assertSameResult("~5 + x * -2.5");
+	}
+
+	@Test
+	void laneMasking() {
+		assertSameResult("(x != 0) ? 10 / x : 0");
+		assertSameResult("(x > 0) ? ((x > 2) ? x * 100 : 7 / x) : 3");
+		assertSameResult("x != 0 && 10 / x > 1");
+		assertSameResult("x == 0 || 10 / x > 1");
+		assertSameResult("(x != 0 && 10 / x > 1) ? 1 : 2");
+
+		Map<String, Object> columns = columns(64);
+		Expr taken = ExprParser.parse("(x == 0) ? 10 / x : 0");
+		assertThrows(ArithmeticException.class, () -> VectorEvaluator.evalBatch(taken, columns, 64, new long[64]));
+	}
+
+	@Test
+	void nanComparisons() {
+		assertSameResult("n == n");
+		assertSameResult("n != n");
+		assertSameResult("(n < 1) + (n <= 1) * 2 + (n > 1) * 4 + (n >= 1) * 8");
+		assertSameResult("(n < y) ? n : y");
+		assertSameResult("n > 0 && n < 2");
+		assertSameResult("n * 0");
+	}
+
+	@Test
+	void tails() {
+		// Row counts that are not multiples of the vector length, including
+		// fewer rows than fit in one vector
+		for (int rows = 0; rows <= 33; rows++) {
+			assertSameResult("(x != 0) ? 10 / x + y : n", rows);
+			assertSameResult("x > 0 && y < 0", rows);
+		}
+
+		assertSameResult("x * y", VectorEvaluator.CHUNK_SIZE - 1);
+		assertSameResult("x * y", VectorEvaluator.CHUNK_SIZE + 1);
+	}
+
+	@Test
+	void offsets() {
+		Map<String, Object> columns = columns(100);
+		long[] out = new long[100];
+		out[2] = -1;
+		out[97] = -1;
+		VectorEvaluator.evalBatch(ExprParser.parse("x + 100"), columns, 3, 97, out);
+		assertTrue(out[2] == -1 && out[97] == -1);
+		for (int i = 3; i < 97; i++) assertTrue(out[i] == 100 + i % 7 - 3);
+	}
+
+	@Test
+	void unsupported() {
+		Map<String, Object> columns = Map.of(
+			"x", new long[8],
+			"y", new double[8],
+			"v", new Value[8],
+			"s", new StringValue("a"),
+			"math", MapValue.MATH);
+		assertTrue(VectorEvaluator.isVectorizable(ExprParser.parse("x * y"), columns));
+		assertFalse(VectorEvaluator.isVectorizable(ExprParser.parse("y & 1"), columns));
+		assertFalse(VectorEvaluator.isVectorizable(ExprParser.parse("x << y"), columns));
+		assertFalse(VectorEvaluator.isVectorizable(ExprParser.parse("math.max(x, y)"), columns));
+		assertFalse(VectorEvaluator.isVectorizable(ExprParser.parse("x + v"), columns));
+		assertFalse(VectorEvaluator.isVectorizable(ExprParser.parse("x + s"), columns));
+		assertFalse(VectorEvaluator.isVectorizable(ExprParser.parse("x + 'a'"), columns));
+		assertFalse(VectorEvaluator.isVectorizable(ExprParser.parse("s.len"), columns));
+		assertFalse(VectorEvaluator.isVectorizable(ExprParser.parse("(x > 0) ? x : y"), columns));
+		assertFalse(VectorEvaluator.isVectorizable(ExprParser.parse("x + missing"), columns));
+	}
+}
@@ -0,0 +1,143 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+class BatchEvaluatorTest {
+	// More than 2 chunks, with a partial last chunk
+	static final int ROWS = BatchEvaluator.CHUNK_SIZE * 2 + 37;
+	static final Map<String, Object> COLUMNS = columns(ROWS);
+
+	static Map<String, Object> columns(int rows) {
+		long[] x = new long[rows];
+		double[] y = new double[rows];
+		Value[] s = new Value[rows];
+
+		for (int i = 0; i < rows; i++) {
+			x[i] = i % 7 - 3;
+			y[i] = i * 0.25 - 100;
+			s[i] = new StringValue("row" + (i % 5));
+		}
+
+		return Map.of("x", x, "y", y, "s", s, "k", new LongValue(4), "math", MapValue.MATH);
+	}
+
+	static Function<String, Value> row(Map<String, Object> columns, int i) {
+		return name -> switch (columns.get(name)) {
+		case long[] column -> new LongValue(column[i]);
+		case double[] column -> new DoubleValue(column[i]);
+		case Value[] column -> column[i];
+		case Value value -> value;
+		default -> null;
+		};
+	}
+
+	void assertSameResult(String input, int from, int to) {
+		Expr expr = ExprParser.parse(input);
+		double[] doubles = new double[to];
+		long[] longs = new long[to];
+		double[] expectedDoubles = new double[to];
+		long[] expectedLongs = new long[to];
+
+		for (int i = from; i < to; i++) {
+			Value value = expr.eval(row(COLUMNS, i));
+			expectedDoubles[i] = value.unwrapAs(double.class);
+			expectedLongs[i] = value.unwrapAs(long.class);
+		}
+
+		BatchEvaluator.evalBatch(expr, COLUMNS, from, to, doubles);
+		BatchEvaluator.evalBatch(expr, COLUMNS, from, to, longs);
+		assertArrayEquals(expectedDoubles, doubles);
+		assertArrayEquals(expectedLongs, longs);
+	}
+
+	void assertSameResult(String input) {
+		assertSameResult(input, 0, ROWS);
+	}
+
+	@Test
+	void arithmetic() {
+		assertSameResult("x * 5 + y * 3");
+		assertSameResult("x / 2 + y / 2");
+		assertSameResult("(x << 2) ^ k");
+		assertSameResult("(x > 0) + (y <= -50.5) * 2");
+		assertSameResult("math.max(x, y / 10) + s.len");
+	}
+
+	@Test
+	void ternarySelection() {
+		assertSameResult("(x > 0) ? x * 10 : y");
+		assertSameResult("(x > 0) ? ((y > 0) ? 1 : 2) : ((x < -1) ? 3.5 : 4)");
+		assertSameResult("(s == 'row1') ? x : -1");
+	}
+
+	@Test
+	void logicalSelection() {
+		assertSameResult("x > 0 && y > 0");
+		assertSameResult("x > 0 || y > 0 && x < -2");
+		assertSameResult("(x > 0 && y > 0) ? y : x");
+	}
+
+	@Test
+	void divisionByZeroInUntakenBranch() {
+		assertSameResult("(x != 0) ? 10 / x : 0");
+		assertSameResult("x != 0 && 10 / x > 1");
+		assertSameResult("x == 0 || 10 / x > 1");
+	}
+
+	@Test
+	void divisionByZeroInTakenBranch() {
+		Expr expr = ExprParser.parse("(x == 0) ? 10 / x : 0");
+		assertThrows(ArithmeticException.class, () -> expr.eval(row(COLUMNS, 3)));
+		assertThrows(ArithmeticException.class, () -> BatchEvaluator.evalBatch(expr, COLUMNS, ROWS, new long[ROWS]));
+		// Rows 0 to 2 have x != 0
+		long[] out = new long[3];
+		BatchEvaluator.evalBatch(expr, COLUMNS, 3, out);
+		assertArrayEquals(new long[3], out);
+	}
+
+	@Test
+	void offsets() {
+		assertSameResult("(x > 0) ? x * 10 : y", 5, 17);
+		assertSameResult("x != 0 && 10 / x > 1", BatchEvaluator.CHUNK_SIZE - 3, BatchEvaluator.CHUNK_SIZE + 3);
+		assertSameResult("x * y", 1000, ROWS);
+
+		double[] out = new double[ROWS];
+		out[4] = -1;
+		out[17] = -1;
+		BatchEvaluator.evalBatch(ExprParser.parse("x + 100"), COLUMNS, 5, 17, out);
+		assertEquals(-1.0, out[4]);
+		assertEquals(-1.0, out[17]);
+		assertEquals(100.0 + 5 % 7 - 3, out[5]);
+	}
+
+	@Test
+	void longAndDoubleOutput() {
+		Expr expr = ExprParser.parse("y / 3");
+		double[] doubles = new double[ROWS];
+		long[] longs = new long[ROWS];
+		BatchEvaluator.evalBatch(expr, COLUMNS, ROWS, doubles);
+		BatchEvaluator.evalBatch(expr, COLUMNS, ROWS, longs);
+
+		for (int i = 0; i < ROWS; i++) {
+			double expected = expr.eval(row(COLUMNS, i)).unwrapAs(double.class);
+			assertEquals(expected, doubles[i]);
+			assertEquals((long) doubles[i], longs[i]);
+		}
+
+		long[] big = new long[1];
+		BatchEvaluator.evalBatch(ExprParser.parse("x * 0 + 9007199254740993"), COLUMNS, 1, big);
+		assertEquals(9007199254740993L, big[0]);
+	}
+}
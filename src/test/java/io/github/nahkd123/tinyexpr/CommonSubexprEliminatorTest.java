@@ -0,0 +1,54 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+
+class CommonSubexprEliminatorTest {
+	static final Map<String, Value> VARS = Map.of(
+		"x", new LongValue(2),
+		"y", new LongValue(3),
+		"z", new DoubleValue(0.5));
+
+	void assertSameResult(String input) {
+		Expr expr = ExprParser.parse(input);
+		Value expected = expr.eval(VARS::get);
+		Expr shared = CommonSubexprEliminator.eliminate(expr);
+		assertEquals(expected, shared.eval(VARS::get), input);
+		assertEquals(expected, ExprCompiler.compile(shared).eval(VARS::get), input);
+		assertEquals(expected, new SpecializingEvaluator(shared).eval(VARS::get), input);
+		assertEquals(expected, EvalBudget.UNLIMITED.withMaxSteps(1000).eval(shared, VARS::get), input);
+		ExprSerializer serializer = new ExprSerializer();
+		Expr read = serializer.read(ByteBuffer.wrap(serializer.write(List.of(shared)))).get(0);
+		assertEquals(expected, read.eval(VARS::get), input);
+	}
+
+	@Test
+	void nestedSharing() {
+		Expr shared = CommonSubexprEliminator.eliminate(ExprParser.parse("(x * y + 1) + (x * y + 1) + x * y"));
+		Expr.Scope scope = (Expr.Scope) shared;
+		assertEquals(2, scope.temps());
+		Expr.Binary root = (Expr.Binary) scope.body();
+		Expr.Shared parent = (Expr.Shared) ((Expr.Binary) root.a()).a();
+		Expr.Shared child = (Expr.Shared) ((Expr.Binary) parent.expr()).a();
+		assertNotEquals(parent.temp(), child.temp());
+
+		assertEquals(new LongValue(20), shared.eval(VARS::get));
+		assertSameResult("(x * y + 1) + (x * y + 1) + x * y");
+	}
+
+	@Test
+	void nestedSharingWithDifferentTypes() {
+		assertSameResult("(x / 4.0 - z) * (x / 4.0 - z) + x / 4.0");
+		assertSameResult("((x + y) * z + 1) / ((x + y) * z + 1) + (x + y) + (x + y) * z");
+		assertSameResult("(x > 1) ? (x * y + 1) + (x * y + 1) : x * y");
+	}
+}
@@ -0,0 +1,124 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.BudgetExceededException.Limit;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+class EvalBudgetTest {
+	static final Value SLOW = new Value() {
+		@Override
+		public Value call(Value[] params) {
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			return new LongValue(1);
+		}
+	};
+
+	static final Map<String, Value> VARS = Map.of(
+		"x", new LongValue(2),
+		"s", new StringValue("abcdef"),
+		"slow", SLOW,
+		"math", MapValue.MATH);
+
+	static Limit exceeded(EvalBudget budget, String input) {
+		Expr expr = ExprParser.parse(input);
+		return assertThrows(BudgetExceededException.class, () -> budget.eval(expr, VARS::get)).limit();
+	}
+
+	static Value eval(EvalBudget budget, String input) {
+		Expr expr = ExprParser.parse(input);
+		Value value = budget.eval(expr, VARS::get);
+		assertEquals(expr.eval(VARS::get), value);
+		return value;
+	}
+
+	@Test
+	void unlimited() {
+		assertTrue(EvalBudget.UNLIMITED.isUnlimited());
+		assertTrue(EvalBudget.UNLIMITED.withMaxSteps(10).withMaxSteps(Long.MAX_VALUE).isUnlimited());
+		assertFalse(EvalBudget.UNLIMITED.withMaxSteps(10).isUnlimited());
+		assertFalse(EvalBudget.UNLIMITED.withTimeout(Duration.ofSeconds(1)).isUnlimited());
+		assertFalse(EvalBudget.UNLIMITED.withMaxStringLength(10).isUnlimited());
+
+		eval(EvalBudget.UNLIMITED, "x * 5 + s.len + math.max(x, 3)");
+		eval(EvalBudget.UNLIMITED, "s + s + s + s + 12345");
+		eval(EvalBudget.UNLIMITED, "(x > 1) ? slow() : 0");
+	}
+
+	@Test
+	void invalidLimits() {
+		assertThrows(IllegalArgumentException.class, () -> EvalBudget.UNLIMITED.withMaxSteps(0));
+		assertThrows(IllegalArgumentException.class, () -> EvalBudget.UNLIMITED.withTimeout(Duration.ZERO));
+		assertThrows(IllegalArgumentException.class, () -> EvalBudget.UNLIMITED.withMaxStringLength(-1));
+	}
+
+	@Test
+	void steps() {
+		// 5 nodes: 3 constants and 2 additions
+		eval(EvalBudget.UNLIMITED.withMaxSteps(5), "1 + 2 + 3");
+		assertEquals(Limit.STEPS, exceeded(EvalBudget.UNLIMITED.withMaxSteps(4), "1 + 2 + 3"));
+
+		// Untaken branches don't count
+		eval(EvalBudget.UNLIMITED.withMaxSteps(5), "(x > 1) ? x : x + x + x");
+		assertEquals(Limit.STEPS, exceeded(EvalBudget.UNLIMITED.withMaxSteps(5), "(x < 1) ? x : x + x + x"));
+		eval(EvalBudget.UNLIMITED.withMaxSteps(4), "x < 1 && x + x + x");
+	}
+
+	@Test
+	void deadline() {
+		EvalBudget budget = EvalBudget.UNLIMITED.withTimeout(Duration.ofMillis(5));
+		eval(budget, "x * 5 + 1");
+
+		// Checked after every call
+		assertEquals(Limit.DEADLINE, exceeded(budget, "slow() + 1"));
+
+		// Checked every DEADLINE_CHECK_INTERVAL steps
+		StringBuilder input = new StringBuilder("x");
+		for (int i = 0; i < EvalBudget.DEADLINE_CHECK_INTERVAL; i++) input.append(" + x");
+		assertEquals(Limit.DEADLINE, exceeded(EvalBudget.UNLIMITED.withTimeout(Duration.ofNanos(1)), input.toString()));
+	}
+
+	@Test
+	void stringLength() {
+		EvalBudget budget = EvalBudget.UNLIMITED.withMaxStringLength(8);
+		eval(budget, "s + 'ab'");
+		assertEquals(Limit.STRING_LENGTH, exceeded(budget, "s + 'abc'"));
+		assertEquals(Limit.STRING_LENGTH, exceeded(budget, "'abc' + s"));
+
+		// A string on either side of a number
+		eval(budget, "s + 12");
+		eval(budget, "12 + s");
+		assertEquals(Limit.STRING_LENGTH, exceeded(budget, "s + 123"));
+		assertEquals(Limit.STRING_LENGTH, exceeded(budget, "123 + s"));
+		assertEquals(Limit.STRING_LENGTH, exceeded(budget, "1.5 + s"));
+
+		// Only strings produced by the evaluation are limited
+		eval(EvalBudget.UNLIMITED.withMaxStringLength(3), "s");
+		assertEquals(Limit.STRING_LENGTH, exceeded(EvalBudget.UNLIMITED.withMaxStringLength(3), "s.upper"));
+		eval(EvalBudget.UNLIMITED.withMaxStringLength(3), "s.len + s[0]");
+	}
+
+	@Test
+	void sharedSubtrees() {
+		Function<String, Value> vars = VARS::get;
+		Expr expr = CommonSubexprEliminator.eliminate(ExprParser.parse("(x * x + 1) * (x * x + 1)"));
+		assertEquals(ExprParser.parse("(x * x + 1) * (x * x + 1)").eval(vars),
+			EvalBudget.UNLIMITED.withMaxSteps(100).eval(expr, vars));
+	}
+}
@@ -0,0 +1,114 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ExprCacheTest {
+	@Test
+	void statsCounters() {
+		ExprCache cache = new ExprCache(10);
+		Expr first = cache.get("x * 2");
+		assertSame(first, cache.get("x * 2"));
+		assertSame(first, cache.get(new StringBuilder("x * 2")));
+		cache.get("x * 3");
+		assertEquals(new ExprCache.Stats(2, 2, 0, 2), cache.stats());
+	}
+
+	@Test
+	void eviction() {
+		ExprCache cache = new ExprCache(2);
+		for (int i = 0; i < 10; i++) cache.get("x + " + i);
+		ExprCache.Stats stats = cache.stats();
+		assertEquals(2, stats.size());
+		assertEquals(8, stats.evictions());
+		assertEquals(10, stats.misses());
+	}
+
+	@Test
+	void evictionKeepsRecentlyUsed() {
+		ExprCache cache = new ExprCache(2);
+		Expr hot = cache.get("hot");
+		cache.get("a");
+		cache.get("hot");
+		cache.get("b");
+		assertSame(hot, cache.get("hot"));
+	}
+
+	@Test
+	void singleFlightLoading() throws Exception {
+		AtomicInteger parses = new AtomicInteger();
+		CountDownLatch parsing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExprCache cache = new ExprCache(10, source -> {
+			parses.incrementAndGet();
+			parsing.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return ExprParser.parse(source);
+		});
+
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Expr>> results = new ArrayList<>();
+			results.add(pool.submit(() -> cache.get("x + 1")));
+			assertTrue(parsing.await(10, TimeUnit.SECONDS));
+			for (int i = 0; i < 3; i++) results.add(pool.submit(() -> cache.get("x + 1")));
+			release.countDown();
+
+			Expr expr = results.get(0).get(10, TimeUnit.SECONDS);
+			for (Future<Expr> result : results) assertSame(expr, result.get(10, TimeUnit.SECONDS));
+			assertEquals(1, parses.get());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void failuresAreNotCached() {
+		AtomicInteger parses = new AtomicInteger();
+		ExprCache cache = new ExprCache(10, source -> {
+			parses.incrementAndGet();
+			return ExprParser.parse(source);
+		});
+		assertThrows(IllegalStateException.class, () -> cache.get("1 +"));
+		assertThrows(IllegalStateException.class, () -> cache.get("1 +"));
+		assertEquals(2, parses.get());
+		assertEquals(0, cache.stats().size());
+	}
+
+	@Test
+	void errorsDoNotBlockLaterLookups() throws Exception {
+		AtomicInteger parses = new AtomicInteger();
+		ExprCache cache = new ExprCache(10, source -> {
+			if (parses.incrementAndGet() == 1) throw new StackOverflowError();
+			return ExprParser.parse(source);
+		});
+		assertThrows(StackOverflowError.class, () -> cache.get("x"));
+
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			// Would block forever if the failed entry stayed in the cache
+			Expr expr = pool.submit(() -> cache.get("x")).get(10, TimeUnit.SECONDS);
+			assertEquals("x", expr.toString());
+			assertEquals(2, parses.get());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
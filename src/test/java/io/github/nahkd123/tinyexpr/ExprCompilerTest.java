@@ -0,0 +1,78 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+class ExprCompilerTest {
+	static final Map<String, Value> VARS = Map.of(
+		"x", new LongValue(3),
+		"y", new DoubleValue(1.5),
+		"s", new StringValue("hello"),
+		"math", MapValue.MATH);
+
+	void assertSameResult(String input) {
+		Expr expr = ExprParser.parse(input);
+		assertEquals(expr.eval(VARS::get), ExprCompiler.compile(expr).eval(VARS::get), input);
+	}
+
+	@Test
+	void arithmetic() {
+		assertSameResult("1 + 2 * 3");
+		assertSameResult("x * 5 + y * 3");
+		assertSameResult("7 / 2 + 7 / 2.0");
+		assertSameResult("x << 4 | 1 ^ 2");
+		assertSameResult("x >= 3.0");
+	}
+
+	@Test
+	void strings() {
+		assertSameResult("'hello ' + 42");
+		assertSameResult("s[1] + s.upper + s.len");
+		assertSameResult("s == 'hello'");
+	}
+
+	@Test
+	void callsAndTernaries() {
+		assertSameResult("math.sqrt(x * 3) + math.pow(2, 10)");
+		assertSameResult("math.max((x > 1) ? 1 : 2, (y > 2) ? y : x)");
+		assertSameResult("(x > 2) ? ((y > 1) ? 'a' : 'b') : 'c'");
+	}
+
+	@Test
+	void boundSlots() {
+		List<String> schema = List.of("y", "x");
+		Expr bound = ExprParser.parse("x * 5 + y * 3 + math.pi").bind(schema);
+		Frame frame = new Frame(schema, VARS::get)
+			.set("x", VARS.get("x"))
+			.set("y", VARS.get("y"));
+		Value expected = ExprParser.parse("x * 5 + y * 3 + math.pi").eval(VARS::get);
+		assertEquals(expected, bound.eval(frame));
+		assertEquals(expected, ExprCompiler.compile(bound).eval(frame));
+		assertEquals(expected, bound.eval(VARS::get));
+	}
+
+	@Test
+	void errors() {
+		CompiledExpr compiled = ExprCompiler.compile(ExprParser.parse("x / 0"));
+		assertThrows(ArithmeticException.class, () -> compiled.eval(VARS::get));
+		assertThrows(IllegalArgumentException.class, () -> compiled.eval(null));
+	}
+
+	@Test
+	void logicalOperators() {
+		assertSameResult("x > 2 && y < 2 || s.len == 0");
+		assertSameResult("x == 0 || 10 / x > 1");
+		CompiledExpr compiled = ExprCompiler.compile(ExprParser.parse("x != 3 && 10 / 0"));
+		assertEquals(new LongValue(0), compiled.eval(VARS::get));
+	}
+}
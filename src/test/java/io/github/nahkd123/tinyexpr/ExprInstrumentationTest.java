@@ -0,0 +1,116 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class ExprInstrumentationTest {
+	static final Function<String, Value> VARS = Map.<String, Value>of("x", new LongValue(6))::get;
+
+	@Test
+	void metrics() {
+		ExprMetrics.Recorder recorder = new ExprMetrics.Recorder();
+		ExprInstrumentation instrumentation = new ExprInstrumentation(recorder, false);
+
+		CompiledExpr rule = instrumentation.wrap("rule", instrumentation.parse("rule", "x * 7"));
+		assertEquals(new LongValue(42), rule.eval(VARS));
+		assertEquals(new LongValue(42), rule.eval(VARS));
+
+		ExprMetrics.Recorder.Stats stats = recorder.stats("rule");
+		assertEquals(1, stats.parseLatencies().count());
+		assertEquals(0, stats.parseFailures());
+		assertEquals(2, stats.evalLatencies().count());
+		assertEquals(0, stats.evalFailures());
+	}
+
+	@Test
+	void failures() {
+		ExprMetrics.Recorder recorder = new ExprMetrics.Recorder();
+		ExprInstrumentation instrumentation = new ExprInstrumentation(recorder, false);
+
+		assertThrows(RuntimeException.class, () -> instrumentation.parse("bad", "x * ("));
+		CompiledExpr divide = instrumentation.wrap("divide", ExprParser.parse("x / 0"));
+		assertThrows(ArithmeticException.class, () -> divide.eval(VARS));
+		assertThrows(ArithmeticException.class, () -> divide.eval(VARS));
+
+		ExprMetrics.Recorder.Stats bad = recorder.stats("bad");
+		assertEquals(1, bad.parseLatencies().count());
+		assertEquals(1, bad.parseFailures());
+		assertEquals(0, bad.evalLatencies().count());
+
+		ExprMetrics.Recorder.Stats stats = recorder.stats("divide");
+		assertEquals(0, stats.parseLatencies().count());
+		assertEquals(2, stats.evalLatencies().count());
+		assertEquals(2, stats.evalFailures());
+	}
+
+	@Test
+	void compiled() {
+		ExprMetrics.Recorder recorder = new ExprMetrics.Recorder();
+		ExprInstrumentation instrumentation = new ExprInstrumentation(recorder, false);
+		CompiledExpr rule = instrumentation.wrap("rule", ExprCompiler.compile(ExprParser.parse("x + 1")));
+		assertEquals(new LongValue(7), rule.eval(VARS));
+		assertEquals(1, recorder.stats("rule").evalLatencies().count());
+	}
+
+	static List<RecordedEvent> record(ExprInstrumentation instrumentation) throws IOException {
+		Path path = Files.createTempFile("tinyexpr", ".jfr");
+
+		try (Recording recording = new Recording()) {
+			recording.enable("tinyexpr.Parse").withoutThreshold();
+			recording.enable("tinyexpr.Eval").withoutThreshold();
+			recording.start();
+
+			CompiledExpr rule = instrumentation.wrap("rule", instrumentation.parse("rule", "x * 7"));
+			rule.eval(VARS);
+			assertThrows(RuntimeException.class, () -> instrumentation.parse("bad", "x * ("));
+			CompiledExpr divide = instrumentation.wrap("divide", ExprParser.parse("x / 0"));
+			assertThrows(ArithmeticException.class, () -> divide.eval(VARS));
+
+			recording.stop();
+			recording.dump(path);
+			List<RecordedEvent> events = new ArrayList<>();
+			for (RecordedEvent event : RecordingFile.readAllEvents(path)) {
+				if (event.getEventType().getName().startsWith("tinyexpr.")) events.add(event);
+			}
+			return events;
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	static String describe(RecordedEvent event) {
+		return event.getEventType().getName() + " " + event.getString("id") + " " + event.getBoolean("failed");
+	}
+
+	@Test
+	void events() throws IOException {
+		List<RecordedEvent> events = record(new ExprInstrumentation(null));
+		events.sort(Comparator.comparing(RecordedEvent::getStartTime));
+		assertEquals(
+			List.of("tinyexpr.Parse rule false", "tinyexpr.Eval rule false", "tinyexpr.Parse bad true", "tinyexpr.Eval divide true"),
+			events.stream().map(ExprInstrumentationTest::describe).toList());
+		assertEquals(5, events.get(0).getInt("length"));
+	}
+
+	@Test
+	void eventsDisabled() throws IOException {
+		assertTrue(record(new ExprInstrumentation(new ExprMetrics.Recorder(), false)).isEmpty());
+	}
+}
@@ -0,0 +1,106 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ExprLoaderTest {
+	static final int[] WINDOW_SIZES = { 1, 2, 3, 5, 7, 64, 1 << 20 };
+
+	static List<Expr> loadFile(String content, int windowSize) throws IOException {
+		Path path = Files.createTempFile("exprs", ".txt");
+
+		try {
+			Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+			List<Expr> exprs = new ArrayList<>();
+			long count = new ExprLoader(null, windowSize).load(path, exprs::add);
+			assertEquals(exprs.size(), count);
+			return exprs;
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	static List<Expr> loadReader(String content) throws IOException {
+		List<Expr> exprs = new ArrayList<>();
+		long count = new ExprLoader().load(new StringReader(content), exprs::add);
+		assertEquals(exprs.size(), count);
+		return exprs;
+	}
+
+	static void assertLoads(String content, String... lines) throws IOException {
+		List<Expr> expected = new ArrayList<>();
+		for (String line : lines) expected.add(ExprParser.parse(line));
+		assertEquals(expected, loadReader(content));
+		for (int windowSize : WINDOW_SIZES) assertEquals(expected, loadFile(content, windowSize));
+	}
+
+	@Test
+	void lineEndings() throws IOException {
+		assertLoads("x * 5 + y\n1 + 2\n", "x * 5 + y", "1 + 2");
+		assertLoads("x * 5 + y\r\n1 + 2\r\n", "x * 5 + y", "1 + 2");
+		assertLoads("x * 5 + y\r\n1 + 2\n'a' + x\r\n", "x * 5 + y", "1 + 2", "'a' + x");
+	}
+
+	@Test
+	void noTrailingNewline() throws IOException {
+		assertLoads("x * 5 + y\n1 + 2", "x * 5 + y", "1 + 2");
+		assertLoads("42", "42");
+		assertLoads("");
+	}
+
+	@Test
+	void blankLines() throws IOException {
+		assertLoads("\n\nx\n   \n\t\r\n\r\ny\n\n", "x", "y");
+		assertLoads("\n \n\r\n");
+	}
+
+	@Test
+	void multiByteCharacters() throws IOException {
+		// Characters of 2, 3 and 4 bytes, which are split between windows with
+		// the smallest window sizes
+		assertLoads(
+			"'héllo wörld' + x\n'日本語'.len\r\nx + 1\n'😀' + '€'",
+			"'héllo wörld' + x",
+			"'日本語'.len",
+			"x + 1",
+			"'😀' + '€'");
+		assertEquals("日本語", loadFile("'日本語'\n", 1).get(0).eval(null).unwrap());
+	}
+
+	@Test
+	void longLines() throws IOException {
+		StringBuilder line = new StringBuilder("0");
+		for (int i = 1; i < 100; i++) line.append(" + ").append(i);
+		assertLoads("1\n" + line + "\n2", "1", line.toString(), "2");
+	}
+
+	@Test
+	void errorsIncludeLineNumber() throws IOException {
+		String content = "1 + 2\n\n'é' + x\r\nx +\n3";
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> loadReader(content));
+		assertTrue(e.getMessage().contains("line 4"), e.getMessage());
+
+		for (int windowSize : WINDOW_SIZES) {
+			e = assertThrows(IllegalArgumentException.class, () -> loadFile(content, windowSize));
+			assertTrue(e.getMessage().contains("line 4"), e.getMessage());
+		}
+	}
+
+	@Test
+	void optimizer() throws IOException {
+		List<Expr> exprs = new ArrayList<>();
+		new ExprLoader(new ExprOptimizer()).load(new StringReader("2 * 3 + x\n"), exprs::add);
+		assertEquals(ExprParser.parse("6 + x"), exprs.get(0));
+	}
+}
@@ -0,0 +1,93 @@
+package io.github.nahkd123.tinyexpr;
+
+import static io.github.nahkd123.tinyexpr.ExprMetrics.Recorder.bucketOf;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.ExprMetrics.Recorder;
+import io.github.nahkd123.tinyexpr.ExprMetrics.Recorder.Histogram;
+
+class ExprMetricsTest {
+	static Histogram histogram(long... nanos) {
+		long[] buckets = new long[Recorder.BUCKETS];
+		for (long n : nanos) buckets[bucketOf(n)]++;
+		return new Histogram(buckets);
+	}
+
+	@Test
+	void buckets() {
+		assertEquals(0, bucketOf(-5));
+		assertEquals(0, bucketOf(0));
+		assertEquals(1, bucketOf(1));
+		assertEquals(2, bucketOf(2));
+		assertEquals(2, bucketOf(3));
+		assertEquals(3, bucketOf(4));
+		assertEquals(10, bucketOf(1023));
+		assertEquals(11, bucketOf(1024));
+		assertEquals(62, bucketOf(1L << 61));
+		assertEquals(Recorder.BUCKETS - 1, bucketOf(1L << 62));
+		assertEquals(Recorder.BUCKETS - 1, bucketOf(Long.MAX_VALUE));
+	}
+
+	@Test
+	void percentiles() {
+		// Upper ends of the buckets: 2, 4, 128 and 2048
+		Histogram histogram = histogram(1, 3, 100, 100, 1500);
+		assertEquals(5, histogram.count());
+		assertEquals(2, histogram.percentile(0));
+		assertEquals(2, histogram.percentile(20));
+		assertEquals(4, histogram.percentile(21));
+		assertEquals(4, histogram.percentile(40));
+		assertEquals(128, histogram.percentile(50));
+		assertEquals(128, histogram.percentile(80));
+		assertEquals(2048, histogram.percentile(81));
+		assertEquals(2048, histogram.percentile(100));
+	}
+
+	@Test
+	void topBucket() {
+		Histogram histogram = histogram(10, Long.MAX_VALUE);
+		assertEquals(16, histogram.percentile(50));
+		assertEquals(Long.MAX_VALUE, histogram.percentile(51));
+		assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+	}
+
+	@Test
+	void emptyHistogram() {
+		Histogram histogram = histogram();
+		assertEquals(0, histogram.count());
+		assertEquals(0, histogram.percentile(0));
+		assertEquals(0, histogram.percentile(50));
+		assertEquals(0, histogram.percentile(100));
+	}
+
+	@Test
+	void recorder() {
+		Recorder recorder = new Recorder();
+		assertNull(recorder.stats("a"));
+
+		recorder.recordParse("a", 100, false);
+		recorder.recordParse("a", 5, true);
+		recorder.recordEval("a", 3, false);
+		recorder.recordEval("a", 3, false);
+		recorder.recordEval("a", 2000, true);
+		recorder.recordEval("b", 1, false);
+
+		Recorder.Stats a = recorder.stats("a");
+		assertArrayEquals(histogram(100, 5).buckets(), a.parseLatencies().buckets());
+		assertEquals(1, a.parseFailures());
+		assertArrayEquals(histogram(3, 3, 2000).buckets(), a.evalLatencies().buckets());
+		assertEquals(1, a.evalFailures());
+
+		Recorder.Stats b = recorder.stats("b");
+		assertEquals(0, b.parseLatencies().count());
+		assertEquals(1, b.evalLatencies().count());
+		assertEquals(0, b.evalFailures());
+		assertEquals(Set.of("a", "b"), recorder.ids());
+	}
+}
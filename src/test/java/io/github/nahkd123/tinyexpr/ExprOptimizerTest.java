@@ -0,0 +1,79 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+
+class ExprOptimizerTest {
+	static final ExprOptimizer OPTIMIZER = new ExprOptimizer(Map.of("math", MapValue.MATH));
+
+	void assertOptimized(String input, String expected) {
+		Expr optimized = ExprParser.parse(input, OPTIMIZER);
+		assertEquals(expected, optimized.toString());
+		assertEquals(ExprParser.parse(input).eval(name -> switch (name) {
+		case "x" -> new LongValue(3);
+		case "math" -> MapValue.MATH;
+		default -> null;
+		}), optimized.eval(name -> new LongValue(3)));
+	}
+
+	@Test
+	void folding() {
+		assertOptimized("math.pi / 2", Double.toString(Math.PI / 2));
+		assertOptimized("math.sqrt(16) + x", "(4.0 + x)");
+		assertOptimized("'abc'[1] + x", "(b + x)");
+	}
+
+	@Test
+	void deadBranches() {
+		assertOptimized("1 ? x : 2", "x");
+		assertOptimized("(1 > 2) ? x : ((3 > 2) + 0)", "1");
+	}
+
+	@Test
+	void identities() {
+		assertOptimized("(x ? 2 : 3) * 1", "(x ? 2 : 3)");
+		assertOptimized("(x ? 2.5 : 3.5) - 0", "(x ? 2.5 : 3.5)");
+		assertOptimized("x * 1", "(x * 1)");
+		assertOptimized("(x ? 2.5 : 3.5) + 0", "((x ? 2.5 : 3.5) + 0)");
+
+		Expr test = ExprParser.parse("x ? 1 : 0");
+		assertEquals(test, OPTIMIZER.optimize(new Expr.Unary(UnaryOp.NOT, new Expr.Unary(UnaryOp.NOT, test))));
+	}
+
+	@Test
+	void commonSubexpressions() {
+		Expr expr = ExprParser.parse("(x.price * x.qty > 100) ? (x.price * x.qty * 0.9) : (x.price * x.qty)");
+		Expr shared = CommonSubexprEliminator.eliminate(expr);
+		assertEquals(1, ((Expr.Scope) shared).temps());
+
+		int[] lookups = { 0 };
+		Value order = new MapValue(Map.of("price", new LongValue(30), "qty", new LongValue(4)));
+		assertEquals(expr.eval(name -> order), shared.eval(name -> {
+			lookups[0]++;
+			return order;
+		}));
+		assertEquals(2, lookups[0]);
+	}
+
+	@Test
+	void errorsAreKept() {
+		Expr expr = ExprParser.parse("1 / 0", OPTIMIZER);
+		assertEquals("(1 / 0)", expr.toString());
+		assertThrows(ArithmeticException.class, () -> expr.eval(null));
+	}
+
+	@Test
+	void report() {
+		ExprOptimizer.Report report = new ExprOptimizer().optimizeWithReport(ExprParser.parse("2 * 3 + x"));
+		assertEquals(5, report.nodesBefore());
+		assertEquals(3, report.nodesAfter());
+		assertEquals(1, report.folded());
+	}
+}
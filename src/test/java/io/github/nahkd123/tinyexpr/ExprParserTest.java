@@ -0,0 +1,39 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class ExprParserTest {
+	// Naming convention:
+	// - Last known bad commit: commit$<commit-hash>
+	// - Related to issue; issue$<issue-id>
+
+	void assertParsed(String input, String expected) {
+		assertEquals(expected, ExprParser.parse(input).toString());
+	}
+
+	@Test
+	void commit$99ab335() {
+		// Chains of 4 or more operators were grouped in pairs
+		assertParsed("a - b - c - d", "(((a - b) - c) - d)");
+		assertParsed("1 + 2 * 3 - 4 - 5", "(((1 + (2 * 3)) - 4) - 5)");
+		assertEquals(-8L, ExprParser.parse("1 - 2 - 3 - 4").eval(null).unwrap());
+	}
+
+	@Test
+	void danglingOperator() {
+		assertThrows(IllegalStateException.class, () -> ExprParser.parse("1 + 2 +"));
+	}
+
+	@Test
+	void logicalOperators() {
+		assertParsed("a && b || c && d", "((a && b) || (c && d))");
+		assertParsed("a == 1 && b | 2", "((a == 1) && (b | 2))");
+		assertParsed("a & b && c", "((a & b) && c)");
+		assertEquals(0L, ExprParser.parse("0 && 1 / 0").eval(null).unwrap());
+		assertEquals(1L, ExprParser.parse("2 || 1 / 0").eval(null).unwrap());
+		assertEquals(1L, ExprParser.parse("0.5 && 'x' == 'x'").eval(null).unwrap());
+	}
+}
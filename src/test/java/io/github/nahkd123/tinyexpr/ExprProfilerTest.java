@@ -0,0 +1,131 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.ExprProfiler.NodeProfile;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+class ExprProfilerTest {
+	static final Map<String, Value> VARS = Map.of(
+		"x", new LongValue(7),
+		"y", new LongValue(3),
+		"z", new LongValue(0),
+		"s", new StringValue("hello"));
+
+	static ExprProfiler profile(String input, int times) {
+		ExprProfiler profiler = new ExprProfiler(ExprParser.parse(input));
+		for (int i = 0; i < times; i++) assertEquals(profiler.expr().eval(VARS::get), profiler.eval(VARS::get));
+		return profiler;
+	}
+
+	static void forEach(NodeProfile node, Consumer<NodeProfile> consumer) {
+		consumer.accept(node);
+		for (NodeProfile child : node.children()) forEach(child, consumer);
+	}
+
+	static List<Long> calls(NodeProfile node) {
+		List<Long> calls = new ArrayList<>();
+		forEach(node, n -> calls.add(n.calls()));
+		return calls;
+	}
+
+	@Test
+	void calls() {
+		// The untaken branches are never called
+		assertEquals(List.of(3L, 3L, 3L, 3L, 3L, 0L), calls(profile("(x > 5) ? y : z", 3).profile()));
+		assertEquals(List.of(4L, 4L, 0L, 0L, 0L), calls(profile("z && (x + y)", 4).profile()));
+		assertEquals(List.of(2L, 2L, 0L), calls(profile("x || z", 2).profile()));
+		assertEquals(List.of(5L, 5L, 5L, 5L, 5L, 5L, 5L, 5L), calls(profile("s.len * (s[0] == 'h')", 5).profile()));
+	}
+
+	@Test
+	void totals() {
+		NodeProfile root = profile("(x * y + s.len) * ((x > 2) ? x - y : s.len)", 100).profile();
+		assertTrue(root.totalNanos() > 0);
+
+		forEach(root, node -> {
+			long children = 0;
+			for (NodeProfile child : node.children()) children += child.totalNanos();
+			assertTrue(node.totalNanos() >= children, node.expr().toString());
+			assertEquals(node.totalNanos(), node.selfNanos() + children, node.expr().toString());
+		});
+	}
+
+	@Test
+	void sharedOnce() {
+		Expr expr = CommonSubexprEliminator.eliminate(ExprParser.parse("x * y + x * y"));
+		assertTrue(expr instanceof Expr.Scope);
+		ExprProfiler profiler = new ExprProfiler(expr);
+		AtomicInteger lookups = new AtomicInteger();
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals(new LongValue(42), profiler.eval(name -> {
+				lookups.incrementAndGet();
+				return VARS.get(name);
+			}));
+		}
+
+		// Both occurrences are shared, but only the first one evaluates x * y
+		assertEquals(20, lookups.get());
+		AtomicInteger multiplies = new AtomicInteger();
+		AtomicInteger shared = new AtomicInteger();
+		forEach(profiler.profile(), node -> {
+			if (node.expr() instanceof Expr.Binary b && b.op() == BinaryOp.MULTIPLY) multiplies.addAndGet((int) node.calls());
+			if (node.expr() instanceof Expr.Shared) shared.addAndGet((int) node.calls());
+		});
+		assertEquals(10, multiplies.get());
+		assertEquals(20, shared.get());
+	}
+
+	@Test
+	void reset() {
+		ExprProfiler profiler = profile("s + (x * y)", 10);
+		profiler.reset();
+
+		forEach(profiler.profile(), node -> {
+			assertEquals(0, node.calls());
+			assertEquals(0, node.totalNanos());
+			assertEquals(0, node.selfNanos());
+			assertEquals(0, node.allocatedBytes());
+		});
+		assertEquals("", profiler.foldedStacks(false));
+
+		profiler.eval(VARS::get);
+		assertEquals(List.of(1L, 1L, 1L, 1L, 1L), calls(profiler.profile()));
+	}
+
+	@Test
+	void foldedStacks() {
+		ExprProfiler profiler = profile("'a;b' + (x * y)", 1000);
+		String folded = profiler.foldedStacks(false);
+		assertFalse(folded.contains("a;b"));
+
+		// Each node with a self time has a line with the path from the root
+		List<String> expected = new ArrayList<>();
+		stacks(profiler.profile(), "", expected);
+		assertEquals(expected, folded.lines().toList());
+		assertTrue(folded.contains("(a,b + (x * y));(x * y);x "), folded);
+
+		for (String line : folded.lines().toList()) {
+			assertTrue(line.matches("[^;]+(;[^;]+)* [1-9][0-9]*"), line);
+			assertTrue(line.startsWith("(a,b + (x * y))"), line);
+		}
+	}
+
+	static void stacks(NodeProfile node, String parent, List<String> stacks) {
+		String stack = parent + node.expr().toString().replace(';', ',');
+		if (node.selfNanos() > 0) stacks.add(stack + " " + node.selfNanos());
+		for (NodeProfile child : node.children()) stacks(child, stack + ";", stacks);
+	}
+}
@@ -0,0 +1,156 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+import io.github.nahkd123.tinyexpr.impl.NullValue;
+
+class ExprSerializerTest {
+	static final ExprSerializer SERIALIZER = new ExprSerializer();
+
+	static List<Expr> corpus() {
+		List<Expr> exprs = new ArrayList<>();
+		for (String source : new String[] {
+			"42 + 1.5 * x",
+			"'hello ' + \"wörld\" + 0.25",
+			"-5 + ~3 + !0",
+			"x - y / 2 << 1 >> 1 & 7 | 8 ^ 9",
+			"x == y != (x < y) + (x <= y) + (x > y) + (x >= y)",
+			"x > 0 && y > 0 || x < -1",
+			"'abc'[1] + order.customer.tier",
+			"math.max(x, math.sqrt(y)) + math.pi",
+			"(x > 0) ? x : ((y > 0) ? y : 0)"
+		}) exprs.add(ExprParser.parse(source));
+
+		exprs.add(ExprParser.parse("x * 5 + y * 3").bind(List.of("x", "y")));
+		exprs.add(CommonSubexprEliminator.eliminate(ExprParser.parse("(x * y + 1) + (x * y + 1) + x * y")));
+		exprs.add(new Expr.Const(NullValue.NULL));
+		exprs.add(new Expr.Const(MapValue.MATH));
+		return exprs;
+	}
+
+	@Test
+	void roundTrip() {
+		List<Expr> exprs = corpus();
+		List<Expr> read = SERIALIZER.read(ByteBuffer.wrap(SERIALIZER.write(exprs)));
+		assertEquals(exprs, read);
+
+		// Shared nodes are read back as one instance
+		Expr.Binary sum = (Expr.Binary) ((Expr.Scope) read.get(10)).body();
+		Expr.Shared parent = (Expr.Shared) ((Expr.Binary) sum.a()).a();
+		assertSame(parent, ((Expr.Binary) sum.a()).b());
+		Expr.Shared child = (Expr.Shared) ((Expr.Binary) parent.expr()).a();
+		assertSame(child, sum.b());
+	}
+
+	@Test
+	void sameScopeTwice() {
+		// For example, identical rules returned by ExprCache
+		Expr expr = CommonSubexprEliminator.eliminate(ExprParser.parse("(x * y + 1) * (x * y + 1)"));
+		Expr nested = CommonSubexprEliminator.eliminate(ExprParser.parse("(x * y + 1) * (x * y + 1) + (x * y + 1) * (x * y + 1)"));
+		List<Expr> exprs = List.of(expr, expr, new Expr.Binary(BinaryOp.ADD, expr, expr), nested, nested);
+		List<Expr> read = SERIALIZER.read(ByteBuffer.wrap(SERIALIZER.write(exprs)));
+		assertEquals(exprs, read);
+
+		Map<String, Value> vars = Map.of("x", new LongValue(2), "y", new LongValue(3));
+		for (int i = 0; i < exprs.size(); i++) assertEquals(exprs.get(i).eval(vars::get), read.get(i).eval(vars::get));
+	}
+
+	@Test
+	void depthLimit() {
+		Expr deep = new Expr.Const(new LongValue(1));
+		for (int i = 1; i < ExprSerializer.MAX_DEPTH; i++) deep = new Expr.Unary(UnaryOp.NEGATE, deep);
+		Expr read = SERIALIZER.read(ByteBuffer.wrap(SERIALIZER.write(List.of(deep)))).get(0);
+		assertEquals(deep.eval(null), read.eval(null));
+
+		Expr tooDeep = new Expr.Unary(UnaryOp.NEGATE, deep);
+		assertThrows(IllegalArgumentException.class, () -> SERIALIZER.write(List.of(tooDeep)));
+
+		// A crafted corpus of 200k nested unary nodes around the constant
+		byte[] bytes = SERIALIZER.write(List.of(new Expr.Const(new LongValue(1))));
+		int nesting = 200_000;
+		ByteBuffer crafted = ByteBuffer.allocate(bytes.length + nesting * 2);
+		crafted.put(bytes, 0, bytes.length - 2);
+		for (int i = 0; i < nesting; i++) crafted.put((byte) 4).put((byte) UnaryOp.NEGATE.ordinal());
+		crafted.put(bytes, bytes.length - 2, 2).flip();
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> SERIALIZER.read(crafted));
+		assertTrue(e.getMessage().contains("deeper"), e.getMessage());
+	}
+
+	@Test
+	void roundTripFile() throws IOException {
+		Path path = Files.createTempFile("exprs", ".bin");
+
+		try {
+			List<Expr> exprs = corpus();
+			Files.write(path, SERIALIZER.write(exprs));
+			assertEquals(exprs, SERIALIZER.read(path));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	void unknownSymbol() {
+		Value f = new Value() {};
+		ExprSerializer writer = new ExprSerializer(Map.of("f", f));
+		byte[] bytes = writer.write(List.of(new Expr.Call(new Expr.Const(f), new Expr[0])));
+		assertEquals(new Expr.Const(f), ((Expr.Call) writer.read(ByteBuffer.wrap(bytes)).get(0)).expr());
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+			() -> SERIALIZER.read(ByteBuffer.wrap(bytes)));
+		assertTrue(e.getMessage().contains("'f'"), e.getMessage());
+		assertThrows(IllegalArgumentException.class, () -> SERIALIZER.write(List.of(new Expr.Const(f))));
+	}
+
+	@Test
+	void notACorpus() {
+		assertThrows(IllegalArgumentException.class, () -> SERIALIZER.read(ByteBuffer.wrap(new byte[0])));
+		assertThrows(IllegalArgumentException.class, () -> SERIALIZER.read(ByteBuffer.wrap("x + 1".getBytes())));
+	}
+
+	@Test
+	void truncated() {
+		byte[] bytes = SERIALIZER.write(corpus());
+
+		for (int length = 0; length < bytes.length; length++) {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+			assertThrows(IllegalArgumentException.class, () -> SERIALIZER.read(buffer));
+		}
+	}
+
+	@Test
+	void corrupt() {
+		// Any byte of the corpus replaced with any value is either read as
+		// some corpus or rejected with IllegalArgumentException, never with
+		// another exception
+		byte[] bytes = SERIALIZER.write(corpus());
+
+		for (int i = 0; i < bytes.length; i++) {
+			for (int value = 0; value < 256; value++) {
+				byte[] corrupt = bytes.clone();
+				corrupt[i] = (byte) value;
+
+				try {
+					SERIALIZER.read(ByteBuffer.wrap(corrupt));
+				} catch (IllegalArgumentException e) {
+					// Expected
+				}
+			}
+		}
+	}
+}
@@ -27,4 +27,30 @@ class ExprTokenTest {
 			ExprToken.Keyword.GT,
 			new ExprToken.NumberLiteral("0", "", ExprToken.NumberLiteral.TYPE_DECIMAL));
 	}
+
+	@Test
+	void numberLiterals() {
+		assertTokens("0x1F 017 0.5 .25 12. 08",
+			new ExprToken.NumberLiteral("1F", "", ExprToken.NumberLiteral.TYPE_HEXADECIMAL),
+			new ExprToken.NumberLiteral("17", "", ExprToken.NumberLiteral.TYPE_OCTAL),
+			new ExprToken.NumberLiteral("0", "5", ExprToken.NumberLiteral.TYPE_DECIMAL),
+			new ExprToken.NumberLiteral("", "25", ExprToken.NumberLiteral.TYPE_DECIMAL),
+			new ExprToken.NumberLiteral("12", "", ExprToken.NumberLiteral.TYPE_DECIMAL),
+			new ExprToken.NumberLiteral("0", "", ExprToken.NumberLiteral.TYPE_DECIMAL),
+			new ExprToken.NumberLiteral("8", "", ExprToken.NumberLiteral.TYPE_DECIMAL));
+	}
+
+	@Test
+	void lexerCursor() {
+		ExprLexer lexer = new ExprLexer("a<<0x10 <= 1.5");
+		List<String> tokens = new ArrayList<>();
+
+		while (lexer.next()) tokens.add(switch (lexer.type()) {
+		case KEYWORD -> lexer.keyword().name();
+		case NUMBER -> lexer.isInteger() ? "L" + lexer.longValue() : "D" + lexer.doubleValue();
+		default -> lexer.text() + "@" + lexer.tokenStart() + ".." + lexer.tokenEnd();
+		});
+
+		assertEquals(List.of("a@0..1", "SHL", "L16", "LE", "D1.5"), tokens);
+	}
 }
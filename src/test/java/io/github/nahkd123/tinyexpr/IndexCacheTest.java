@@ -0,0 +1,90 @@
+package io.github.nahkd123.tinyexpr;
+
+import static io.github.nahkd123.tinyexpr.PropertyCacheTest.result;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.impl.ListValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+class IndexCacheTest {
+	static void assertSameResult(IndexCache cache, Value receiver, int index) {
+		assertEquals(result(() -> receiver.get(index)), result(() -> cache.get(receiver, index)));
+	}
+
+	record Repeat(long value) implements Value {
+		@Override
+		public Value get(int index) {
+			return new LongValue(value * index);
+		}
+	}
+
+	record Chars(String value) implements Value {
+		@Override
+		public Value get(int index) {
+			return new StringValue(value.substring(index, index + 1));
+		}
+	}
+
+	@Test
+	void outOfBounds() {
+		IndexCache cache = new IndexCache();
+		Value list = new ListValue(List.of(new LongValue(1), new LongValue(2)));
+		Value string = new StringValue("ab");
+
+		for (int round = 0; round < 2; round++) {
+			for (int index : new int[] { -1, 0, 1, 2, Integer.MAX_VALUE, Integer.MIN_VALUE }) {
+				assertSameResult(cache, list, index);
+				assertSameResult(cache, string, index);
+			}
+		}
+
+		assertThrows(IndexOutOfBoundsException.class, () -> cache.get(list, 2));
+		assertThrows(IndexOutOfBoundsException.class, () -> cache.get(string, -1));
+		Expr expr = ExprParser.parse("s[i]");
+		assertThrows(IndexOutOfBoundsException.class,
+			() -> expr.eval(Map.of("s", string, "i", new LongValue(5))::get));
+	}
+
+	@Test
+	void mutableLists() {
+		List<Value> elements = new ArrayList<>(List.of(new LongValue(1)));
+		ListValue receiver = new ListValue(elements);
+		IndexCache cache = new IndexCache();
+		assertEquals(new LongValue(1), cache.get(receiver, 0));
+		assertSameResult(cache, receiver, 1);
+
+		elements.set(0, new LongValue(5));
+		elements.add(new LongValue(6));
+		assertEquals(new LongValue(5), cache.get(receiver, 0));
+		assertEquals(new LongValue(6), cache.get(receiver, 1));
+	}
+
+	@Test
+	void manyReceiverClasses() {
+		List<Value> receivers = List.of(
+			new StringValue("hello"),
+			new ListValue(List.of(new LongValue(1), new LongValue(2))),
+			new Repeat(3),
+			new Chars("xyz"),
+			new MapValue(Map.of()),
+			new LongValue(1),
+			new Repeat(4),
+			new StringValue("world"));
+		IndexCache cache = new IndexCache();
+
+		for (int round = 0; round < 3; round++) {
+			for (Value receiver : receivers) {
+				for (int index = -1; index < 4; index++) assertSameResult(cache, receiver, index);
+			}
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+
+class MemoizingResolverTest {
+	static final class CountingResolver implements Function<String, Value> {
+		final Map<String, Integer> calls = new HashMap<>();
+
+		@Override
+		public Value apply(String name) {
+			calls.merge(name, 1, Integer::sum);
+			if (name.equals("missing")) return null;
+			return new LongValue(name.length() * 10L + name.charAt(name.length() - 1) % 10);
+		}
+	}
+
+	@Test
+	void oncePerNameAndEvaluation() {
+		CountingResolver counting = new CountingResolver();
+		MemoizingResolver resolver = new MemoizingResolver(counting);
+		Expr expr = ExprParser.parse("x * x + x * y + y + ((x > 0) ? y : x)");
+		Value expected = expr.eval(counting);
+		counting.calls.clear();
+
+		assertEquals(expected, resolver.eval(expr));
+		assertEquals(Map.of("x", 1, "y", 1), counting.calls);
+
+		// Each evaluation resolves the variables again
+		assertEquals(expected, resolver.eval(expr));
+		assertEquals(Map.of("x", 2, "y", 2), counting.calls);
+	}
+
+	@Test
+	void growsPastExpectedVariables() {
+		CountingResolver counting = new CountingResolver();
+		MemoizingResolver resolver = new MemoizingResolver(counting, 1);
+		StringBuilder input = new StringBuilder("v0");
+		for (int i = 1; i < 100; i++) input.append(" + v").append(i).append(" * v").append(i / 2);
+		Expr expr = ExprParser.parse(input.toString());
+		Value expected = expr.eval(counting);
+		counting.calls.clear();
+
+		for (int round = 1; round <= 3; round++) {
+			assertEquals(expected, resolver.eval(expr));
+			assertEquals(100, counting.calls.size());
+			for (int calls : counting.calls.values()) assertEquals(round, calls);
+		}
+	}
+
+	@Test
+	void batchWithPartialMap() {
+		CountingResolver counting = new CountingResolver();
+		MemoizingResolver resolver = new MemoizingResolver(counting);
+		Expr expr = ExprParser.parse("x * 10 + y * z + x");
+		List<Set<String>> batches = new ArrayList<>();
+
+		Value value = resolver.eval(expr, names -> {
+			batches.add(names);
+			return Map.of("x", new LongValue(1), "z", new LongValue(3));
+		});
+
+		assertEquals(List.of(Set.of("x", "y", "z")), batches);
+		// Only y was missing from the batch
+		assertEquals(Map.of("y", 1), counting.calls);
+		assertEquals(ExprParser.parse("1 * 10 + y * 3 + 1").eval(counting), value);
+
+		// Expressions without variables don't call the batch resolver
+		resolver.eval(ExprParser.parse("1 + 2"), names -> {
+			batches.add(names);
+			return Map.of();
+		});
+		assertEquals(1, batches.size());
+	}
+
+	@Test
+	void nullValues() {
+		CountingResolver counting = new CountingResolver();
+		MemoizingResolver resolver = new MemoizingResolver(counting);
+		resolver.reset();
+		assertNull(resolver.apply("missing"));
+		assertNull(resolver.apply("missing"));
+		assertEquals(Map.of("missing", 1), counting.calls);
+
+		// A null value from the batch resolver counts as resolved
+		Map<String, Value> batch = new HashMap<>();
+		batch.put("missing", null);
+		batch.put("x", new LongValue(5));
+		Value value = resolver.eval(ExprParser.parse("(x > 1) ? x : missing"), names -> batch);
+		assertEquals(new LongValue(5), value);
+		assertNull(resolver.apply("missing"));
+		assertEquals(Map.of("missing", 1), counting.calls);
+	}
+
+	@Test
+	void putAndReset() {
+		CountingResolver counting = new CountingResolver();
+		MemoizingResolver resolver = new MemoizingResolver(counting);
+		resolver.put("x", new LongValue(42));
+		assertEquals(new LongValue(42), resolver.apply("x"));
+		assertEquals(Map.of(), counting.calls);
+
+		resolver.reset();
+		assertEquals(new LongValue(10), resolver.apply("x"));
+		assertEquals(Map.of("x", 1), counting.calls);
+	}
+}
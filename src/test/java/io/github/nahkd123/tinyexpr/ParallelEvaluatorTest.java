@@ -0,0 +1,96 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+
+class ParallelEvaluatorTest {
+	// Not a multiple of 8, and more than one chunk of BatchEvaluator
+	static final int ROWS = 10_007;
+
+	static Map<String, Object> columns(int rows) {
+		long[] x = new long[rows];
+		double[] y = new double[rows];
+
+		for (int i = 0; i < rows; i++) {
+			x[i] = i % 13 - 6;
+			y[i] = i * 0.5;
+		}
+
+		return Map.of("x", x, "y", y, "math", MapValue.MATH);
+	}
+
+	static void assertSameResult(ParallelEvaluator parallel, String input, Map<String, Object> columns, int rows) {
+		Expr expr = ExprParser.parse(input);
+		double[] expectedDoubles = new double[rows], doubles = new double[rows];
+		long[] expectedLongs = new long[rows], longs = new long[rows];
+		BatchEvaluator.evalBatch(expr, columns, rows, expectedDoubles);
+		BatchEvaluator.evalBatch(expr, columns, rows, expectedLongs);
+		parallel.evalBatch(expr, columns, rows, doubles);
+		parallel.evalBatch(expr, columns, rows, longs);
+		assertArrayEquals(expectedDoubles, doubles);
+		assertArrayEquals(expectedLongs, longs);
+	}
+
+	@Test
+	void smallGrain() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			Map<String, Object> columns = columns(ROWS);
+
+			for (int grain : new int[] { 1, 7, 100, 1025, ROWS }) {
+				ParallelEvaluator parallel = new ParallelEvaluator(pool, grain);
+				assertSameResult(parallel, "x * 5 + y * 3", columns, ROWS);
+				assertSameResult(parallel, "(x != 0) ? y / x : math.sqrt(y)", columns, ROWS);
+				assertSameResult(parallel, "x > 0 && y > 100", columns, ROWS);
+			}
+
+			for (int rows = 0; rows <= 20; rows++) {
+				assertSameResult(new ParallelEvaluator(pool, 3), "x * y", columns(rows), rows);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void nestedEvaluation() {
+		// A method that evaluates another batch on the same pool, so that
+		// workers run other ranges of the outer batch while they wait
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		try {
+			ParallelEvaluator parallel = new ParallelEvaluator(pool, 5);
+			Map<String, Object> inner = Map.of("z", columns(97).get("x"));
+			Expr innerExpr = ExprParser.parse("z * 3 + 1");
+			Value sum = new Value() {
+				@Override
+				public Value call(Value[] params) {
+					long[] out = new long[97];
+					parallel.evalBatch(innerExpr, inner, 97, out);
+					long total = params[0].unwrapAs(long.class);
+					for (long v : out) total += v;
+					return new LongValue(total);
+				}
+			};
+
+			Map<String, Object> columns = Map.of("x", columns(2003).get("x"), "f", sum);
+			assertSameResult(parallel, "x * 7 + f(x) * (x + 1)", columns, 2003);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void invalidGrain() {
+		assertThrows(IllegalArgumentException.class, () -> new ParallelEvaluator(0));
+	}
+}
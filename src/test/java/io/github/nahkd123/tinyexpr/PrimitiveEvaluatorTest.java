@@ -0,0 +1,96 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.ListValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+class PrimitiveEvaluatorTest {
+	static final Map<String, Value> VARS = Map.of(
+		"x", new LongValue(7),
+		"n", new LongValue(-3),
+		"z", new LongValue(0),
+		"y", new DoubleValue(2.5),
+		"s", new StringValue("hello"),
+		"list", new ListValue(List.of(new LongValue(10), new DoubleValue(0.5), new StringValue("12"))),
+		"math", MapValue.MATH);
+
+	static final String[] EXPRESSIONS = {
+		// Long to double promotion
+		"x + y", "y - x", "x * 2.5", "x / y", "x == 7.0", "1 + 2 + 0.5",
+		// Integer division
+		"x / 2", "n / 2", "x / n", "x / 0", "x / 0.0", "7 / 2 * 2",
+		// Shifts and bitwise operators
+		"x << 3", "n >> 1", "1 << 62", "x & 3", "x | 8", "x ^ 5", "x ^ 2.5", "y << 1",
+		// Comparisons
+		"x == 7", "x != y", "x < y", "y <= 2.5", "x > n", "x >= 7.0", "z == 0", "(x > 2) == (y < 10)",
+		// Unary operators
+		"-5 + x", "~0 & x", "!1 + x", "!0.5 + x", "-2.5 * x",
+		// Logical operators
+		"x && y", "z && x", "z || y", "z || z", "x && (n < 0)", "z && (x / 0)", "x || (x / 0)",
+		// Ternaries and indexing
+		"(x > 5) ? y : n", "z ? 1 : 2.5", "(y > 3) ? x : (x + 1)", "list[0]", "list[1]", "list[x - 6] * 2",
+		"list[y]", "list[2]", "list[3]", "(list[0] > 5) ? list[1] : list[0]",
+		// Strings, properties and calls
+		"s", "s[1]", "s.len", "s.len * 2", "'12' + x", "s + x", "s == 'hello'", "math.sqrt(x)",
+		"math.sqrt(x) + 1", "math.pi / 2", "(math.sqrt(16) == 4) && s.len", "s && x",
+	};
+
+	static Object result(Supplier<?> supplier) {
+		try {
+			return supplier.get();
+		} catch (RuntimeException e) {
+			return e.getClass() + ": " + e.getMessage();
+		}
+	}
+
+	static void assertSameResults(Expr expr, Function<String, Value> vars) {
+		String source = expr.toString();
+		assertEquals(result(() -> expr.eval(vars).unwrapAs(double.class)), result(() -> expr.evalDouble(vars)), source);
+		assertEquals(result(() -> expr.eval(vars).unwrapAs(long.class)), result(() -> expr.evalLong(vars)), source);
+		assertEquals(result(() -> expr.eval(vars).unwrapAs(boolean.class)), result(() -> expr.evalBoolean(vars)), source);
+	}
+
+	@Test
+	void sameAsEval() {
+		for (String source : EXPRESSIONS) assertSameResults(ExprParser.parse(source), VARS::get);
+	}
+
+	@Test
+	void sameAsEvalForOtherTypes() {
+		// The same expressions with the variables swapped between long, double and string
+		Map<String, Value> swapped = Map.of(
+			"x", new DoubleValue(7.5),
+			"n", new StringValue("-3"),
+			"z", new DoubleValue(0),
+			"y", new LongValue(2),
+			"s", new LongValue(5),
+			"list", new StringValue("abc"),
+			"math", MapValue.MATH);
+		for (String source : EXPRESSIONS) assertSameResults(ExprParser.parse(source), swapped::get);
+	}
+
+	@Test
+	void exceptions() {
+		Expr divide = ExprParser.parse("x / 0");
+		assertEquals(
+			assertThrows(RuntimeException.class, () -> divide.eval(VARS::get)).getClass(),
+			assertThrows(RuntimeException.class, () -> divide.evalLong(VARS::get)).getClass());
+
+		Expr xor = ExprParser.parse("x ^ 2.5");
+		assertEquals(
+			assertThrows(RuntimeException.class, () -> xor.eval(VARS::get)).getClass(),
+			assertThrows(RuntimeException.class, () -> xor.evalDouble(VARS::get)).getClass());
+	}
+}
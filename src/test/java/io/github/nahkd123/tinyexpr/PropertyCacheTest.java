@@ -0,0 +1,145 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.ListValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+class PropertyCacheTest {
+	static Object result(Supplier<Value> supplier) {
+		try {
+			return supplier.get();
+		} catch (RuntimeException e) {
+			return e.getClass() + ": " + e.getMessage();
+		}
+	}
+
+	static void assertSameResult(PropertyCache cache, Value receiver) {
+		assertEquals(result(() -> receiver.get(cache.name())), result(() -> cache.get(receiver)));
+	}
+
+	record Named(String prefix) implements Value {
+		@Override
+		public Value get(String name) {
+			return new StringValue(prefix + name);
+		}
+	}
+
+	record Other(long value) implements Value {
+		@Override
+		public Value get(String name) {
+			return new LongValue(value);
+		}
+	}
+
+	@Test
+	void mutableMaps() {
+		Map<String, Value> map = new HashMap<>(Map.of("tier", new LongValue(1)));
+		MapValue receiver = new MapValue(map);
+		PropertyCache cache = new PropertyCache("tier");
+		assertEquals(new LongValue(1), cache.get(receiver));
+
+		map.put("tier", new LongValue(2));
+		assertEquals(new LongValue(2), cache.get(receiver));
+
+		map.remove("tier");
+		assertSameResult(cache, receiver);
+
+		Expr expr = ExprParser.parse("order.tier * 10");
+		Map<String, Value> vars = Map.of("order", receiver);
+		map.put("tier", new LongValue(3));
+		assertEquals(new LongValue(30), expr.eval(vars::get));
+		map.put("tier", new LongValue(4));
+		assertEquals(new LongValue(40), expr.eval(vars::get));
+	}
+
+	@Test
+	void immutableMaps() {
+		PropertyCache cache = new PropertyCache("tier");
+		Value first = new LongValue(1), second = new LongValue(2);
+		assertSame(first, cache.get(new MapValue(Map.of("tier", first))));
+		assertSame(second, cache.get(new MapValue(Map.of("tier", second, "name", new StringValue("a")))));
+		assertSame(first, cache.get(new MapValue(Map.of("tier", first))));
+		assertSameResult(cache, new MapValue(Map.of()));
+	}
+
+	@Test
+	void doesNotRetainMaps() throws InterruptedException {
+		PropertyCache cache = new PropertyCache("tier");
+		ReferenceQueue<Map<String, Value>> queue = new ReferenceQueue<>();
+		WeakReference<Map<String, Value>> ref = read(cache, queue);
+
+		// Allocate garbage as well, so that the map is collected even when System.gc() is disabled
+		long deadline = System.nanoTime() + 30_000_000_000L;
+		Reference<?> cleared = null;
+		while (cleared == null && System.nanoTime() < deadline) {
+			System.gc();
+			byte[][] garbage = new byte[64][];
+			for (int j = 0; j < garbage.length; j++) garbage[j] = new byte[16384];
+			cleared = queue.remove(10);
+		}
+
+		assertSame(ref, cleared);
+		// Reading another map works as before
+		assertEquals(new LongValue(5), cache.get(new MapValue(Map.of("tier", new LongValue(5)))));
+	}
+
+	static WeakReference<Map<String, Value>> read(PropertyCache cache, ReferenceQueue<Map<String, Value>> queue) {
+		Map<String, Value> map = Map.of("tier", new LongValue(12345));
+		assertEquals(new LongValue(12345), cache.get(new MapValue(map)));
+		assertEquals(new LongValue(12345), cache.get(new MapValue(map)));
+		return new WeakReference<>(map, queue);
+	}
+
+	@Test
+	void manyReceiverClasses() {
+		List<Value> receivers = List.of(
+			new StringValue("hello"),
+			new ListValue(List.of(new LongValue(1), new LongValue(2))),
+			new MapValue(Map.of("len", new LongValue(42))),
+			new Named("a."),
+			new Other(7),
+			new LongValue(1),
+			new DoubleValue(1.5),
+			new MapValue(new HashMap<>(Map.of("len", new LongValue(43)))),
+			new Named("b."));
+
+		for (String name : List.of("len", "length", "upper", "lower", "missing")) {
+			PropertyCache cache = new PropertyCache(name);
+
+			for (int round = 0; round < 3; round++) {
+				for (Value receiver : receivers) assertSameResult(cache, receiver);
+			}
+		}
+	}
+
+	@Test
+	void strings() {
+		StringValue receiver = new StringValue("Hello");
+		assertEquals(new LongValue(5), new PropertyCache("length").get(receiver));
+		assertEquals(new StringValue("HELLO"), new PropertyCache("uppercase").get(receiver));
+		assertEquals(new StringValue("hello"), new PropertyCache("lowercase").get(receiver));
+
+		List<Value> parts = new ArrayList<>();
+		for (int i = 0; i < 10; i++) parts.add(new StringValue("part" + i + " "));
+		StringValue rope = new StringValue("");
+		for (Value part : parts) rope = rope.concat(part);
+		assertSameResult(new PropertyCache("len"), rope);
+		assertSameResult(new PropertyCache("upper"), rope);
+	}
+}
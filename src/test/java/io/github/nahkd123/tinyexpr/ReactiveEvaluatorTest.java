@@ -0,0 +1,187 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.MapValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+class ReactiveEvaluatorTest {
+	static void assertCurrent(ReactiveEvaluator reactive, Map<String, Value> vars) {
+		assertEquals(reactive.expr().eval(vars::get), reactive.value());
+	}
+
+	static long recomputed(ReactiveEvaluator reactive) {
+		long before = reactive.recomputations();
+		reactive.value();
+		return reactive.recomputations() - before;
+	}
+
+	@Test
+	void variables() {
+		Map<String, Value> vars = new HashMap<>(Map.of("x", new LongValue(2), "y", new LongValue(3)));
+		ReactiveEvaluator reactive = new ReactiveEvaluator(ExprParser.parse("x * 5 + y * 3"), vars::get);
+		assertCurrent(reactive, vars);
+		assertEquals(7, reactive.recomputations());
+		assertEquals(0, recomputed(reactive));
+
+		vars.put("x", new LongValue(10));
+		reactive.invalidate("x");
+		assertCurrent(reactive, vars);
+		// x, x * 5 and the root
+		assertEquals(10, reactive.recomputations());
+
+		// Changes that are not reported are not seen
+		vars.put("y", new LongValue(100));
+		assertEquals(ExprParser.parse("10 * 5 + 3 * 3").eval(null), reactive.value());
+		reactive.invalidate("y");
+		assertCurrent(reactive, vars);
+
+		reactive.invalidate("unused");
+		assertEquals(0, recomputed(reactive));
+		reactive.invalidateAll();
+		assertEquals(7, recomputed(reactive));
+	}
+
+	@Test
+	void propertyPaths() {
+		Map<String, Value> customer = new HashMap<>(Map.of(
+			"tier", new LongValue(1),
+			"name", new StringValue("Alice")));
+		Map<String, Value> order = new HashMap<>(Map.of(
+			"customer", new MapValue(customer),
+			"total", new LongValue(100)));
+		Map<String, Value> vars = new HashMap<>(Map.of("order", new MapValue(order)));
+
+		Expr expr = ExprParser.parse("order.total * order.customer.tier + order.customer.name.len");
+		assertEquals(Set.of("order.total", "order.customer.tier", "order.customer.name.len"),
+			ExprDependencies.propertyPaths(expr));
+		ReactiveEvaluator reactive = new ReactiveEvaluator(expr, vars::get);
+		assertCurrent(reactive, vars);
+
+		// Changed in place, deep in the value
+		customer.put("tier", new LongValue(3));
+		reactive.invalidate("order.customer.tier");
+		assertCurrent(reactive, vars);
+
+		// Paths the expression doesn't read
+		customer.put("email", new StringValue("alice@example.com"));
+		reactive.invalidate("order.customer.email");
+		assertEquals(0, recomputed(reactive));
+
+		// A path above the properties that are read
+		customer.put("name", new StringValue("Bob"));
+		customer.put("tier", new LongValue(4));
+		reactive.invalidate("order.customer");
+		assertCurrent(reactive, vars);
+
+		// A new value for the variable
+		vars.put("order", new MapValue(Map.of(
+			"customer", new MapValue(Map.of("tier", new LongValue(2), "name", new StringValue("Carol"))),
+			"total", new LongValue(7))));
+		reactive.invalidate("order");
+		assertCurrent(reactive, vars);
+	}
+
+	@Test
+	void wholeValuesContainingTheChange() {
+		Map<String, Value> customer = new HashMap<>(Map.of("tier", new LongValue(1)));
+		Map<String, Value> vars = new HashMap<>(Map.of("customer", new MapValue(customer)));
+		Value describe = new Value() {
+			@Override
+			public Value call(Value[] params) {
+				return new LongValue(((MapValue) params[0]).map().get("tier").unwrapAs(long.class) * 100);
+			}
+		};
+		vars.put("describe", describe);
+
+		// The whole customer is passed to the method, so it depends on every
+		// property of it
+		ReactiveEvaluator reactive = new ReactiveEvaluator(ExprParser.parse("describe(customer) + 1"), vars::get);
+		assertCurrent(reactive, vars);
+		customer.put("tier", new LongValue(5));
+		reactive.invalidate("customer.tier");
+		assertCurrent(reactive, vars);
+	}
+
+	@Test
+	void branchSwitches() {
+		Map<String, Value> vars = new HashMap<>(Map.of(
+			"x", new LongValue(1),
+			"a", new LongValue(10),
+			"b", new LongValue(20)));
+
+		for (String input : new String[] { "(x > 0) ? a * 2 : b * 3", "x > 0 && a > 5 || b > 5" }) {
+			ReactiveEvaluator reactive = new ReactiveEvaluator(ExprParser.parse(input), vars::get);
+			assertCurrent(reactive, vars);
+
+			// b was never computed, so it is read once the branch is taken
+			vars.put("b", new LongValue(2));
+			reactive.invalidate("b");
+			assertCurrent(reactive, vars);
+			vars.put("x", new LongValue(-1));
+			reactive.invalidate("x");
+			assertCurrent(reactive, vars);
+
+			// a changes while its branch isn't taken
+			vars.put("a", new LongValue(1));
+			reactive.invalidate("a");
+			assertCurrent(reactive, vars);
+			vars.put("x", new LongValue(1));
+			reactive.invalidate("x");
+			assertCurrent(reactive, vars);
+
+			vars.put("b", new LongValue(30));
+			reactive.invalidate("b");
+			vars.put("x", new LongValue(0));
+			reactive.invalidate("x");
+			assertCurrent(reactive, vars);
+
+			vars.put("a", new LongValue(10));
+			vars.put("b", new LongValue(20));
+			vars.put("x", new LongValue(1));
+			reactive.invalidateAll();
+			assertCurrent(reactive, vars);
+		}
+	}
+
+	static String balancedSum(int from, int to) {
+		if (to - from == 1) return "v" + from + " * 2";
+		int mid = (from + to) / 2;
+		return "(" + balancedSum(from, mid) + ") + (" + balancedSum(mid, to) + ")";
+	}
+
+	@Test
+	void recomputationsFollowTheChange() {
+		int leaves = 256, depth = 8;
+		Map<String, Value> vars = new HashMap<>();
+		for (int i = 0; i < leaves; i++) vars.put("v" + i, new LongValue(i));
+		ReactiveEvaluator reactive = new ReactiveEvaluator(ExprParser.parse(balancedSum(0, leaves)), vars::get);
+		assertCurrent(reactive, vars);
+		long nodes = reactive.recomputations();
+		assertTrue(nodes > leaves * 2);
+
+		for (int i = 0; i < leaves; i += 17) {
+			vars.put("v" + i, new LongValue(i * 3));
+			reactive.invalidate("v" + i);
+			// The variable, the multiplication and one sum per level
+			assertEquals(depth + 2, recomputed(reactive));
+			assertCurrent(reactive, vars);
+		}
+
+		// Two changes share the nodes near the root
+		vars.put("v0", new LongValue(-1));
+		vars.put("v1", new LongValue(-2));
+		reactive.invalidate("v0");
+		reactive.invalidate("v1");
+		assertEquals(depth + 4, recomputed(reactive));
+		assertCurrent(reactive, vars);
+	}
+}
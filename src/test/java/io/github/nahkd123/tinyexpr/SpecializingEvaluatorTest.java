@@ -0,0 +1,120 @@
+package io.github.nahkd123.tinyexpr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import io.github.nahkd123.tinyexpr.impl.StringValue;
+
+class SpecializingEvaluatorTest {
+	static Object result(Expr expr, Map<String, Value> vars) {
+		try {
+			return expr.eval(vars::get);
+		} catch (RuntimeException e) {
+			return e.getClass();
+		}
+	}
+
+	static Object result(SpecializingEvaluator evaluator, Map<String, Value> vars) {
+		try {
+			return evaluator.eval(vars::get);
+		} catch (RuntimeException e) {
+			return e.getClass();
+		}
+	}
+
+	static void assertSameResult(SpecializingEvaluator evaluator, Map<String, Value> vars) {
+		assertEquals(result(evaluator.expr(), vars), result(evaluator, vars));
+	}
+
+	@Test
+	void transitions() {
+		SpecializingEvaluator evaluator = new SpecializingEvaluator(ExprParser.parse("x + y"));
+		Map<String, Value> vars = new HashMap<>();
+		assertEquals("(x + y): uninitialized\n", evaluator.specializations());
+
+		vars.put("x", new LongValue(2));
+		vars.put("y", new LongValue(3));
+		assertSameResult(evaluator, vars);
+		assertEquals("(x + y): long-long\n", evaluator.specializations());
+
+		vars.put("x", new DoubleValue(2.5));
+		assertSameResult(evaluator, vars);
+		assertEquals("(x + y): long-long, double-double\n", evaluator.specializations());
+
+		// Both specializations stay active
+		vars.put("x", new LongValue(7));
+		assertSameResult(evaluator, vars);
+		vars.put("y", new DoubleValue(0.5));
+		assertSameResult(evaluator, vars);
+		assertEquals("(x + y): long-long, double-double\n", evaluator.specializations());
+
+		vars.put("x", new StringValue("a"));
+		assertSameResult(evaluator, vars);
+		vars.put("y", new StringValue("b"));
+		assertSameResult(evaluator, vars);
+		assertEquals("(x + y): long-long, double-double, string-concat\n", evaluator.specializations());
+
+		// A number on the left of a string isn't specialized
+		vars.put("x", new LongValue(1));
+		assertSameResult(evaluator, vars);
+		assertEquals("(x + y): generic\n", evaluator.specializations());
+
+		// The generic node handles every type
+		for (Value x : new Value[] { new LongValue(4), new DoubleValue(1.25), new StringValue("c") }) {
+			for (Value y : new Value[] { new LongValue(5), new DoubleValue(-2), new StringValue("d") }) {
+				vars.put("x", x);
+				vars.put("y", y);
+				assertSameResult(evaluator, vars);
+			}
+		}
+
+		assertEquals("(x + y): generic\n", evaluator.specializations());
+	}
+
+	@Test
+	void operators() {
+		Value[] values = {
+			new LongValue(0), new LongValue(3), new LongValue(-7), new DoubleValue(0),
+			new DoubleValue(2.5), new DoubleValue(Double.NaN), new StringValue("s") };
+
+		for (BinaryOp op : BinaryOp.values()) {
+			if (op.isLogical()) continue;
+			SpecializingEvaluator evaluator = new SpecializingEvaluator(
+				new Expr.Binary(op, new Expr.Variable("x"), new Expr.Variable("y")));
+
+			// Twice, so that the second round goes through the specializations
+			for (int round = 0; round < 2; round++) {
+				for (Value x : values) {
+					for (Value y : values) assertSameResult(evaluator, Map.of("x", x, "y", y));
+				}
+			}
+		}
+	}
+
+	@Test
+	void nodesAreSpecializedSeparately() {
+		SpecializingEvaluator evaluator = new SpecializingEvaluator(
+			ExprParser.parse("(x > 0) ? x * 2 : s + x"));
+		Map<String, Value> vars = new HashMap<>(Map.of("x", new LongValue(3), "s", new StringValue("n")));
+		assertSameResult(evaluator, vars);
+		assertEquals("""
+			(x > 0): long-long
+			(x * 2): long-long
+			(s + x): uninitialized
+			""", evaluator.specializations());
+
+		vars.put("x", new DoubleValue(-1.5));
+		assertSameResult(evaluator, vars);
+		assertEquals("""
+			(x > 0): long-long, double-double
+			(x * 2): long-long
+			(s + x): string-concat
+			""", evaluator.specializations());
+	}
+}
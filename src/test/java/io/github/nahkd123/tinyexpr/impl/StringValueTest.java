@@ -0,0 +1,176 @@
+package io.github.nahkd123.tinyexpr.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.nahkd123.tinyexpr.BinaryOp;
+import io.github.nahkd123.tinyexpr.ExprParser;
+import io.github.nahkd123.tinyexpr.Value;
+
+class StringValueTest {
+	static boolean isFlat(StringValue value) throws ReflectiveOperationException {
+		Field flat = StringValue.class.getDeclaredField("flat");
+		flat.setAccessible(true);
+		return flat.get(value) != null;
+	}
+
+	static StringValue rope(String... parts) {
+		StringValue value = new StringValue("");
+		for (String part : parts) value = value.concat(new StringValue(part));
+		return value;
+	}
+
+	static final String[] PARTS = { "The quick brown fox ", "jumps over ", "the lazy dog, ", "again and again." };
+	static final String JOINED = String.join("", PARTS);
+
+	@Test
+	void ropesEqualFlatStrings() throws ReflectiveOperationException {
+		StringValue rope = rope(PARTS), flat = new StringValue(JOINED);
+		assertFalse(isFlat(rope));
+		assertEquals(flat.hashCode(), rope.hashCode());
+		assertEquals(flat, rope);
+		assertEquals(rope, flat);
+		assertEquals(rope, rope(PARTS));
+		assertTrue(Set.of(flat).contains(rope));
+		assertEquals(LongValue.TRUE, rope.op(BinaryOp.EQUALS, flat));
+
+		// Same length, different characters
+		assertNotEquals(rope, new StringValue(JOINED.replace('.', '!')));
+		assertNotEquals(rope, rope("The quick brown fox ", "jumps over ", "the lazy dog, ", "again and again!"));
+		assertNotEquals(rope, new StringValue(JOINED + " "));
+		assertEquals(JOINED, rope.toString());
+	}
+
+	@Test
+	void lengthDoesNotFlatten() throws ReflectiveOperationException {
+		StringValue rope = rope(PARTS);
+		assertEquals(JOINED.length(), rope.length());
+		assertEquals(new LongValue(JOINED.length()), rope.get("len"));
+		assertEquals(new LongValue(JOINED.length()), rope.get("length"));
+		assertEquals(new LongValue(JOINED.length()),
+			ExprParser.parse("s.len").eval(Map.<String, Value>of("s", rope)::get));
+		assertFalse(isFlat(rope));
+
+		rope.value();
+		assertTrue(isFlat(rope));
+	}
+
+	@Test
+	void shortConcatenationsAreCopied() throws ReflectiveOperationException {
+		StringValue value = new StringValue("ab").concat(new StringValue("cd"));
+		assertTrue(isFlat(value));
+		assertEquals(new StringValue("abcd"), value);
+
+		StringValue empty = new StringValue("");
+		StringValue rope = rope(PARTS);
+		assertSame(rope, rope.concat(empty));
+		assertSame(rope, StringValue.concat(empty, rope));
+		assertEquals(new StringValue("x12"), new StringValue("x").concat(new LongValue(12)));
+	}
+
+	@Test
+	void canonicalCharacters() {
+		StringValue value = new StringValue("héllo");
+		assertSame(StringValue.valueOf('h'), value.get(0));
+		assertSame(StringValue.valueOf('é'), value.get(1));
+		assertSame(StringValue.valueOf('q'), rope(PARTS).get(4));
+		assertEquals(new StringValue("o"), value.get(4));
+
+		// Only Latin-1 characters are canonical
+		StringValue other = new StringValue("日本");
+		assertEquals(new StringValue("日"), other.get(0));
+		assertNotSame(other.get(0), other.get(0));
+
+		Value indexed = ExprParser.parse("'hello'[1]").eval(null);
+		assertSame(StringValue.valueOf('e'), indexed);
+	}
+
+	@Test
+	void upperAndLowerAreCached() {
+		StringValue value = new StringValue("Hello");
+		StringValue upper = value.upper();
+		assertEquals(new StringValue("HELLO"), upper);
+		assertSame(upper, value.upper());
+		assertSame(upper, value.get("upper"));
+		assertSame(upper, value.get("uppercase"));
+
+		StringValue lower = value.lower();
+		assertEquals(new StringValue("hello"), lower);
+		assertSame(lower, value.lower());
+		assertSame(lower, value.get("lowercase"));
+
+		// Strings that don't change are returned as they are
+		assertSame(upper, upper.upper());
+		assertSame(lower, lower.lower());
+
+		StringValue rope = rope(PARTS);
+		assertEquals(new StringValue(JOINED.toUpperCase()), rope.upper());
+		assertSame(rope.upper(), rope.upper());
+	}
+
+	@Test
+	void longLeftDeepChain() {
+		int parts = 200_000;
+		StringBuilder expected = new StringBuilder();
+		StringValue value = new StringValue("");
+
+		for (int i = 0; i < parts; i++) {
+			String part = Integer.toString(i % 10);
+			expected.append(part);
+			value = value.concat(new StringValue(part));
+		}
+
+		assertEquals(parts, value.length());
+		assertEquals(expected.toString().hashCode(), value.hashCode());
+		assertEquals(expected.toString(), value.value());
+		assertEquals(new StringValue(expected.toString()), value);
+	}
+
+	@Test
+	void longRightDeepChain() {
+		int parts = 100_000;
+		StringBuilder expected = new StringBuilder();
+		StringValue value = new StringValue("");
+
+		for (int i = 0; i < parts; i++) {
+			String part = Integer.toString(i % 10);
+			expected.insert(0, part);
+			value = new StringValue(part).concat(value);
+		}
+
+		assertEquals(expected.toString(), value.value());
+	}
+
+	@Test
+	void concurrentFlattening() throws Exception {
+		StringValue shared = rope(PARTS);
+		StringValue rope = shared;
+		for (int i = 0; i < 1000; i++) rope = rope.concat(shared);
+		String expected = JOINED.repeat(1001);
+		StringValue target = rope;
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		try {
+			List<Future<String>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) futures.add(executor.submit(target::value));
+			for (Future<String> future : futures) assertEquals(expected, future.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,507 @@
+package io.github.nahkd123.tinyexpr.vector;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+
+import io.github.nahkd123.tinyexpr.BatchEvaluator;
+import io.github.nahkd123.tinyexpr.BinaryOp;
+import io.github.nahkd123.tinyexpr.Expr;
+import io.github.nahkd123.tinyexpr.UnaryOp;
+import io.github.nahkd123.tinyexpr.impl.DoubleValue;
+import io.github.nahkd123.tinyexpr.impl.LongValue;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <p>
+ * Evaluate an expression over many rows with SIMD instructions, using the
+ * incubating Vector API. This is only available when building with the
+ * {@code simd} profile, and the JVM must be started with
+ * {@code --add-modules jdk.incubator.vector}.
+ * </p>
+ * <p>
+ * Supported expressions are made of constant numbers, {@code double[]} and
+ * {@code long[]} columns, unary and binary operators, {@code &&}, {@code ||}
+ * and ternaries. Comparisons produce lane masks, and ternaries blend both
+ * branches with the mask of their test. Integer division only divides the
+ * lanes that are active in the enclosing ternaries and logical operators, so
+ * {@code (y != 0) ? (10 / y) : 0} does not throw. Other
+ * expressions, like method calls or {@code Value[]} columns, are evaluated with
+ * {@link BatchEvaluator} instead.
+ * </p>
+ *
+ * @see #isVectorizable(Expr, Map)
+ * @see #evalBatch(Expr, Map, int, double[])
+ */
+public final class VectorEvaluator {
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    static final int CHUNK_SIZE = 1024;
+
+    private static final int UNSUPPORTED = -1;
+    private static final int LONG = 0;
+    private static final int DOUBLE = 1;
+    private static final int MASK = 2;
+
+    private final Map<String, ?> columns;
+    private final ArrayDeque<Block> blocks = new ArrayDeque<>();
+    private final ArrayDeque<boolean[]> masks = new ArrayDeque<>();
+    private int offset;
+    private int size;
+    private int upper;
+
+    private static final class Block {
+        int kind;
+        final long[] l = new long[CHUNK_SIZE];
+        final double[] d = new double[CHUNK_SIZE];
+        final boolean[] m = new boolean[CHUNK_SIZE];
+    }
+
+    private VectorEvaluator(Map<String, ?> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * <p>
+     * Check if the expression can be evaluated with SIMD instructions for these
+     * columns.
+     * </p>
+     *
+     * @param expr    The expression.
+     * @param columns The columns, keyed by variable name.
+     * @return {@code true} if the expression is vectorizable.
+     */
+    public static boolean isVectorizable(Expr expr, Map<String, ?> columns) {
+        return kindOf(expr, columns) != UNSUPPORTED;
+    }
+
+    /**
+     * <p>
+     * Evaluate the expression for rows {@code 0} to {@code rows - 1} and store
+     * the results as {@code double}.
+     * </p>
+     *
+     * @param expr    The expression.
+     * @param columns The columns, keyed by variable name.
+     * @param rows    Number of rows.
+     * @param out     The output array.
+     */
+    public static void evalBatch(Expr expr, Map<String, ?> columns, int rows, double[] out) {
+        evalBatch(expr, columns, 0, rows, out);
+    }
+
+    /**
+     * <p>
+     * Evaluate the expression for rows {@code 0} to {@code rows - 1} and store
+     * the results as {@code long}.
+     * </p>
+     *
+     * @param expr    The expression.
+     * @param columns The columns, keyed by variable name.
+     * @param rows    Number of rows.
+     * @param out     The output array.
+     */
+    public static void evalBatch(Expr expr, Map<String, ?> columns, int rows, long[] out) {
+        evalBatch(expr, columns, 0, rows, out);
+    }
+
+    /**
+     * <p>
+     * Evaluate the expression for rows {@code from} (inclusive) to {@code to}
+     * (exclusive) and store the results as {@code double} at the same indices of
+     * the output array.
+     * </p>
+     *
+     * @param expr    The expression.
+     * @param columns The columns, keyed by variable name.
+     * @param from    The first row.
+     * @param to      The end row (exclusive).
+     * @param out     The output array.
+     */
+    public static void evalBatch(Expr expr, Map<String, ?> columns, int from, int to, double[] out) {
+        if (!isVectorizable(expr, columns)) {
+            BatchEvaluator.evalBatch(expr, columns, from, to, out);
+            return;
+        }
+
+        VectorEvaluator evaluator = new VectorEvaluator(columns);
+
+        for (int start = from; start < to; start += CHUNK_SIZE) {
+            Block result = evaluator.evalChunk(expr, start, Math.min(to - start, CHUNK_SIZE));
+            for (int i = 0; i < evaluator.size; i++) out[start + i] = switch (result.kind) {
+            case LONG -> (double) result.l[i];
+            case DOUBLE -> result.d[i];
+            default -> result.m[i] ? 1d : 0d;
+            };
+            evaluator.blocks.push(result);
+        }
+    }
+
+    /**
+     * <p>
+     * Evaluate the expression for rows {@code from} (inclusive) to {@code to}
+     * (exclusive) and store the results as {@code long} at the same indices of
+     * the output array.
+     * </p>
+     *
+     * @param expr    The expression.
+     * @param columns The columns, keyed by variable name.
+     * @param from    The first row.
+     * @param to      The end row (exclusive).
+     * @param out     The output array.
+     */
+    public static void evalBatch(Expr expr, Map<String, ?> columns, int from, int to, long[] out) {
+        if (!isVectorizable(expr, columns)) {
+            BatchEvaluator.evalBatch(expr, columns, from, to, out);
+            return;
+        }
+
+        VectorEvaluator evaluator = new VectorEvaluator(columns);
+
+        for (int start = from; start < to; start += CHUNK_SIZE) {
+            Block result = evaluator.evalChunk(expr, start, Math.min(to - start, CHUNK_SIZE));
+            for (int i = 0; i < evaluator.size; i++) out[start + i] = switch (result.kind) {
+            case LONG -> result.l[i];
+            case DOUBLE -> (long) result.d[i];
+            default -> result.m[i] ? 1L : 0L;
+            };
+            evaluator.blocks.push(result);
+        }
+    }
+
+    private static int kindOf(Expr expr, Map<String, ?> columns) {
+        return switch (expr) {
+        case Expr.Const c -> c.value() instanceof LongValue ? LONG
+            : c.value() instanceof DoubleValue ? DOUBLE
+            : UNSUPPORTED;
+        case Expr.Variable v -> columnKind(columns.get(v.name()));
+        case Expr.Slot s -> columnKind(columns.get(s.name()));
+        case Expr.Unary u -> {
+            int x = kindOf(u.expr(), columns);
+            if (x == UNSUPPORTED) yield UNSUPPORTED;
+            yield switch (u.op()) {
+            case NOT -> MASK;
+            case NEGATE -> x == DOUBLE ? DOUBLE : LONG;
+            case INVERT -> x == DOUBLE ? UNSUPPORTED : LONG;
+            };
+        }
+        case Expr.Binary b -> {
+            int x = kindOf(b.a(), columns), y = kindOf(b.b(), columns);
+            if (x == UNSUPPORTED || y == UNSUPPORTED) yield UNSUPPORTED;
+            boolean anyDouble = x == DOUBLE || y == DOUBLE;
+            yield switch (b.op()) {
+            case ADD, SUBTRACT, MULTIPLY, DIVIDE -> anyDouble ? DOUBLE : LONG;
+            case AND, OR, XOR, SHIFT_LEFT, SHIFT_RIGHT -> anyDouble ? UNSUPPORTED : LONG;
+            case LOGICAL_AND, LOGICAL_OR -> UNSUPPORTED;
+            default -> MASK;
+            };
+        }
+        case Expr.Logical l -> {
+            int x = kindOf(l.a(), columns), y = kindOf(l.b(), columns);
+            yield x == UNSUPPORTED || y == UNSUPPORTED ? UNSUPPORTED : MASK;
+        }
+        case Expr.Ternary t -> {
+            int test = kindOf(t.test(), columns);
+            int x = kindOf(t.ifTrue(), columns), y = kindOf(t.ifFalse(), columns);
+            if (test == UNSUPPORTED || x == UNSUPPORTED || y == UNSUPPORTED) yield UNSUPPORTED;
+            if (x == y) yield x;
+            // Rows taking different branches would have different value types
+            yield x != DOUBLE && y != DOUBLE ? LONG : UNSUPPORTED;
+        }
+        case Expr.Scope s -> kindOf(s.body(), columns);
+        case Expr.Shared s -> kindOf(s.expr(), columns);
+        default -> UNSUPPORTED;
+        };
+    }
+
+    private static int columnKind(Object column) {
+        if (column instanceof long[]) return LONG;
+        if (column instanceof double[]) return DOUBLE;
+        if (column instanceof LongValue) return LONG;
+        if (column instanceof DoubleValue) return DOUBLE;
+        return UNSUPPORTED;
+    }
+
+    private Block evalChunk(Expr expr, int offset, int size) {
+        this.offset = offset;
+        this.size = size;
+        // Process whole vectors, the extra lanes are never read back
+        this.upper = LONGS.loopBound(size + LONGS.length() - 1);
+        boolean[] active = acquireMask();
+        Arrays.fill(active, false);
+        Arrays.fill(active, 0, size, true);
+        Block result = eval(expr, active);
+        masks.push(active);
+        return result;
+    }
+
+    private Block acquire(int kind) {
+        Block block = blocks.poll();
+        if (block == null) block = new Block();
+        block.kind = kind;
+        return block;
+    }
+
+    private boolean[] acquireMask() {
+        boolean[] mask = masks.poll();
+        return mask != null ? mask : new boolean[CHUNK_SIZE];
+    }
+
+    /**
+     * <p>
+     * Evaluate the expression for all lanes. Lanes that are not active are
+     * computed as well, except for integer division, but their results are
+     * discarded by the enclosing ternaries.
+     * </p>
+     */
+    private Block eval(Expr expr, boolean[] active) {
+        return switch (expr) {
+        case Expr.Const c -> constant(c.value());
+        case Expr.Variable v -> column(v.name());
+        case Expr.Slot s -> column(s.name());
+        case Expr.Unary u -> unary(u.op(), eval(u.expr(), active));
+        case Expr.Binary b -> {
+            Block a = eval(b.a(), active);
+            yield binary(b.op(), a, eval(b.b(), active), active);
+        }
+        case Expr.Ternary t -> ternary(t, active);
+        case Expr.Logical l -> logical(l, active);
+        case Expr.Scope s -> eval(s.body(), active);
+        case Expr.Shared s -> eval(s.expr(), active);
+        default -> throw new IllegalStateException("Expression %s is not vectorizable".formatted(expr));
+        };
+    }
+
+    private Block constant(Object value) {
+        if (value instanceof LongValue x) {
+            Block result = acquire(LONG);
+            Arrays.fill(result.l, 0, upper, x.value());
+            return result;
+        }
+
+        Block result = acquire(DOUBLE);
+        Arrays.fill(result.d, 0, upper, ((DoubleValue) value).value());
+        return result;
+    }
+
+    private Block column(String name) {
+        Object column = columns.get(name);
+
+        if (column instanceof long[] array) {
+            Block result = acquire(LONG);
+            System.arraycopy(array, offset, result.l, 0, size);
+            return result;
+        }
+
+        if (column instanceof double[] array) {
+            Block result = acquire(DOUBLE);
+            System.arraycopy(array, offset, result.d, 0, size);
+            return result;
+        }
+
+        return constant(column);
+    }
+
+    private void toLongs(Block block) {
+        if (block.kind != MASK) return;
+        for (int i = 0; i < upper; i++) block.l[i] = block.m[i] ? 1 : 0;
+        block.kind = LONG;
+    }
+
+    private void toDoubles(Block block) {
+        toLongs(block);
+        if (block.kind != LONG) return;
+        for (int i = 0; i < upper; i += LONGS.length()) ((DoubleVector) LongVector.fromArray(LONGS, block.l, i)
+            .convert(VectorOperators.L2D, 0))
+            .intoArray(block.d, i);
+        block.kind = DOUBLE;
+    }
+
+    private void toMask(Block block) {
+        if (block.kind == LONG) {
+            for (int i = 0; i < upper; i += LONGS.length()) LongVector.fromArray(LONGS, block.l, i)
+                .compare(VectorOperators.NE, 0)
+                .intoArray(block.m, i);
+        } else if (block.kind == DOUBLE) {
+            for (int i = 0; i < upper; i += DOUBLES.length()) DoubleVector.fromArray(DOUBLES, block.d, i)
+                .compare(VectorOperators.NE, 0)
+                .intoArray(block.m, i);
+        }
+
+        block.kind = MASK;
+    }
+
+    private Block unary(UnaryOp op, Block x) {
+        if (op == UnaryOp.NOT) {
+            if (x.kind != MASK) toMask(x);
+            for (int i = 0; i < upper; i++) x.m[i] = !x.m[i];
+            return x;
+        }
+
+        toLongs(x);
+
+        if (x.kind == DOUBLE) {
+            for (int i = 0; i < upper; i += DOUBLES.length()) DoubleVector.fromArray(DOUBLES, x.d, i)
+                .neg()
+                .intoArray(x.d, i);
+            return x;
+        }
+
+        VectorOperators.Unary vop = op == UnaryOp.NEGATE ? VectorOperators.NEG : VectorOperators.NOT;
+        for (int i = 0; i < upper; i += LONGS.length()) LongVector.fromArray(LONGS, x.l, i)
+            .lanewise(vop)
+            .intoArray(x.l, i);
+        return x;
+    }
+
+    private Block binary(BinaryOp op, Block a, Block b, boolean[] active) {
+        toLongs(a);
+        toLongs(b);
+
+        if (a.kind == DOUBLE || b.kind == DOUBLE) {
+            toDoubles(a);
+            toDoubles(b);
+        }
+
+        switch (op) {
+        case EQUALS, NOT_EQUALS, LESS_THAN, LESS_THAN_OR_EQUALS, GREATER_THAN, GREATER_THAN_OR_EQUALS -> {
+            VectorOperators.Comparison cmp = switch (op) {
+            case EQUALS -> VectorOperators.EQ;
+            case NOT_EQUALS -> VectorOperators.NE;
+            case LESS_THAN -> VectorOperators.LT;
+            case LESS_THAN_OR_EQUALS -> VectorOperators.LE;
+            case GREATER_THAN -> VectorOperators.GT;
+            default -> VectorOperators.GE;
+            };
+
+            if (a.kind == DOUBLE) {
+                for (int i = 0; i < upper; i += DOUBLES.length()) DoubleVector.fromArray(DOUBLES, a.d, i)
+                    .compare(cmp, DoubleVector.fromArray(DOUBLES, b.d, i))
+                    .intoArray(a.m, i);
+            } else {
+                for (int i = 0; i < upper; i += LONGS.length()) LongVector.fromArray(LONGS, a.l, i)
+                    .compare(cmp, LongVector.fromArray(LONGS, b.l, i))
+                    .intoArray(a.m, i);
+            }
+
+            a.kind = MASK;
+        }
+        default -> {
+            VectorOperators.Binary vop = switch (op) {
+            case ADD -> VectorOperators.ADD;
+            case SUBTRACT -> VectorOperators.SUB;
+            case MULTIPLY -> VectorOperators.MUL;
+            case DIVIDE -> VectorOperators.DIV;
+            case AND -> VectorOperators.AND;
+            case OR -> VectorOperators.OR;
+            case XOR -> VectorOperators.XOR;
+            case SHIFT_LEFT -> VectorOperators.LSHL;
+            default -> VectorOperators.ASHR;
+            };
+
+            if (a.kind == DOUBLE) {
+                for (int i = 0; i < upper; i += DOUBLES.length()) DoubleVector.fromArray(DOUBLES, a.d, i)
+                    .lanewise(vop, DoubleVector.fromArray(DOUBLES, b.d, i))
+                    .intoArray(a.d, i);
+            } else if (op == BinaryOp.DIVIDE) {
+                // Division by zero throws, so only divide the active lanes
+                for (int i = 0; i < upper; i += LONGS.length()) LongVector.fromArray(LONGS, a.l, i)
+                    .lanewise(vop, LongVector.fromArray(LONGS, b.l, i), VectorMask.fromArray(LONGS, active, i))
+                    .intoArray(a.l, i);
+            } else {
+                for (int i = 0; i < upper; i += LONGS.length()) LongVector.fromArray(LONGS, a.l, i)
+                    .lanewise(vop, LongVector.fromArray(LONGS, b.l, i))
+                    .intoArray(a.l, i);
+            }
+        }
+        }
+
+        blocks.push(b);
+        return a;
+    }
+
+    /**
+     * <p>
+     * Evaluate the right operand only for the lanes where the left operand does
+     * not decide the result.
+     * </p>
+     */
+    private Block logical(Expr.Logical logical, boolean[] active) {
+        boolean and = logical.op() == BinaryOp.LOGICAL_AND;
+        Block a = eval(logical.a(), active);
+        toMask(a);
+        boolean[] rest = acquireMask();
+        boolean any = false;
+
+        for (int i = 0; i < upper; i++) {
+            rest[i] = active[i] && a.m[i] == and;
+            any |= rest[i];
+        }
+
+        if (any) {
+            Block b = eval(logical.b(), rest);
+            toMask(b);
+            for (int i = 0; i < upper; i++) if (rest[i]) a.m[i] = b.m[i];
+            blocks.push(b);
+        }
+
+        masks.push(rest);
+        return a;
+    }
+
+    private Block ternary(Expr.Ternary ternary, boolean[] active) {
+        Block test = eval(ternary.test(), active);
+        toMask(test);
+        boolean[] trueLanes = acquireMask(), falseLanes = acquireMask();
+        boolean anyTrue = false, anyFalse = false;
+
+        for (int i = 0; i < upper; i++) {
+            trueLanes[i] = active[i] && test.m[i];
+            falseLanes[i] = active[i] && !test.m[i];
+            anyTrue |= trueLanes[i];
+            anyFalse |= falseLanes[i];
+        }
+
+        Block result;
+
+        if (!anyTrue || !anyFalse) {
+            result = eval(anyTrue ? ternary.ifTrue() : ternary.ifFalse(), active);
+        } else {
+            Block a = eval(ternary.ifTrue(), trueLanes);
+            Block b = eval(ternary.ifFalse(), falseLanes);
+
+            if (a.kind != b.kind) {
+                toLongs(a);
+                toLongs(b);
+            }
+
+            switch (a.kind) {
+            case LONG -> {
+                for (int i = 0; i < upper; i += LONGS.length()) LongVector.fromArray(LONGS, b.l, i)
+                    .blend(LongVector.fromArray(LONGS, a.l, i), VectorMask.fromArray(LONGS, test.m, i))
+                    .intoArray(a.l, i);
+            }
+            case DOUBLE -> {
+                for (int i = 0; i < upper; i += DOUBLES.length()) DoubleVector.fromArray(DOUBLES, b.d, i)
+                    .blend(DoubleVector.fromArray(DOUBLES, a.d, i), VectorMask.fromArray(DOUBLES, test.m, i))
+                    .intoArray(a.d, i);
+            }
+            default -> {
+                for (int i = 0; i < upper; i++) a.m[i] = test.m[i] ? a.m[i] : b.m[i];
+            }
+            }
+
+            blocks.push(b);
+            result = a;
+        }
+
+        blocks.push(test);
+        masks.push(trueLanes);
+        masks.push(falseLanes);
+        return result;
+    }
+}